@@ -0,0 +1,64 @@
+package n10s;
+
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * Feeds the statements of one archive entry to the handler doing the import. The start and end
+ * of the entry are not forwarded, so that several entries can be loaded in a single run of the
+ * handler (see {@link CommonProcedures#parseRDFPayloadOrFromUrl}). Counts the statements parsed
+ * from the current entry.
+ */
+class ArchiveEntryHandler extends ConfiguredStatementHandler {
+
+  private final ConfiguredStatementHandler handler;
+  private long entryTriplesParsed = 0;
+
+  ArchiveEntryHandler(ConfiguredStatementHandler handler) {
+    this.handler = handler;
+  }
+
+  void nextEntry() {
+    entryTriplesParsed = 0;
+  }
+
+  long getEntryTriplesParsed() {
+    return entryTriplesParsed;
+  }
+
+  @Override
+  public RDFParserConfig getParserConfig() {
+    return handler.getParserConfig();
+  }
+
+  @Override
+  public void handleExcludedStatements(long count) {
+    entryTriplesParsed += count;
+    handler.handleExcludedStatements(count);
+  }
+
+  @Override
+  public void startRDF() throws RDFHandlerException {
+  }
+
+  @Override
+  public void endRDF() throws RDFHandlerException {
+  }
+
+  @Override
+  public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+    handler.handleNamespace(prefix, uri);
+  }
+
+  @Override
+  public void handleStatement(Statement st) throws RDFHandlerException {
+    entryTriplesParsed++;
+    handler.handleStatement(st);
+  }
+
+  @Override
+  public void handleComment(String comment) throws RDFHandlerException {
+    handler.handleComment(comment);
+  }
+}
@@ -6,19 +6,36 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
-import org.apache.commons.io.IOUtils;
+import n10s.rdf.parse.MappedFileInputStream;
+import n10s.rdf.parse.NTriplesLineParser;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.Rio;
@@ -111,19 +128,157 @@ public class CommonProcedures {
 
   protected void parseRDFPayloadOrFromUrl( RDFFormat format, String url, String rdfFragment,
      Map<String, Object> props, ConfiguredStatementHandler statementLoader) throws IOException {
-    if (rdfFragment != null) {
-      instantiateAndKickOffParser(
-          new ByteArrayInputStream(rdfFragment.getBytes(Charset.defaultCharset())),
-          "http://neo4j.com/base/", format, statementLoader);
-    } else {
-      instantiateAndKickOffParser(getInputStream(url, props), url, format, statementLoader);
+    long startNanos = System.nanoTime();
+    long bytesParsed = 0;
+    try {
+      if (rdfFragment != null) {
+        byte[] payload = rdfFragment.getBytes(Charset.defaultCharset());
+        bytesParsed = payload.length;
+        instantiateAndKickOffParser(new ByteArrayInputStream(payload), "http://neo4j.com/base/",
+            format, statementLoader);
+      } else if (isArchiveEntryGlob(url)) {
+        bytesParsed = parseArchiveEntries(format, url, props, statementLoader);
+      } else if (statementLoader.getParserConfig().isMemoryMapped() && isPlainLocalFile(url)) {
+        try (FileChannel file = FileChannel.open(localPath(url), StandardOpenOption.READ)) {
+          bytesParsed = file.size();
+          if (useLineParser(format, statementLoader)) {
+            new NTriplesLineParser(format == RDFFormat.NQUADS,
+                statementLoader.getParserConfig().getParseThreads()).parse(file, statementLoader);
+          } else {
+            instantiateAndKickOffParser(new MappedFileInputStream(file), url, format,
+                statementLoader);
+          }
+        }
+      } else {
+        CountingInputStream in = new CountingInputStream(getInputStream(url, props));
+        try {
+          instantiateAndKickOffParser(in, url, format, statementLoader);
+        } finally {
+          bytesParsed = in.getByteCount();
+        }
+      }
+    } finally {
+      statementLoader.setInputStats(bytesParsed, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+  }
+
+  /**
+   * Replaces the local (file:) urls containing wildcards with the urls of the files matching them
+   * (e.g. 'file:///data/dumps/**.ttl'), in path order. Other urls are kept as they are.
+   */
+  protected List<String> expandUrls(List<String> urls) throws IOException {
+    List<String> expanded = new ArrayList<>();
+    for (String url : urls) {
+      if (url.startsWith("file:") && !url.contains("!") && url.matches(".*[*?{\\[].*")) {
+        String pattern = url.replaceFirst("^file:(//)?", "");
+        // the walk starts at the deepest directory with no wildcards in its path
+        int firstWildcard = pattern.replaceAll("[*?{\\[]", "*").indexOf('*');
+        Path root = Paths.get(pattern.substring(0, pattern.lastIndexOf('/', firstWildcard) + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> files = Files.walk(root)) {
+          files.filter(Files::isRegularFile).filter(matcher::matches).sorted()
+              .forEach(file -> expanded.add(file.toUri().toString()));
+        }
+      } else {
+        expanded.add(url);
+      }
+    }
+    return expanded;
+  }
+
+  protected boolean isArchiveEntryGlob(String url) {
+    int separator = url.indexOf('!');
+    return separator > 0 && (url.indexOf('*', separator) > 0 || url.indexOf('?', separator) > 0)
+        && isMultiFileArchive(url.substring(0, separator));
+  }
+
+  private boolean isMultiFileArchive(String url) {
+    return url.endsWith(".zip") || url.endsWith(".tar.gz") || url.endsWith(".tgz");
+  }
+
+  /**
+   * Parses, one after the other, all the entries of the archive matching the glob after the '!'
+   * in the url (e.g. 'file:///data/dump.zip!**.ttl'). Entries are streamed from the archive, never
+   * held in memory as a whole, and all go through the same run of the handler. Per entry counts
+   * are added to the stats of the handler.
+   *
+   * @return the total number of (uncompressed) bytes parsed
+   */
+  private long parseArchiveEntries(RDFFormat format, String url, Map<String, Object> props,
+      ConfiguredStatementHandler handler) throws IOException {
+    String archiveUrl = url.substring(0, url.indexOf('!'));
+    PathMatcher entryMatcher = FileSystems.getDefault()
+        .getPathMatcher("glob:" + url.substring(url.indexOf('!') + 1));
+    ArchiveEntryHandler entryHandler = new ArchiveEntryHandler(handler);
+    long totalBytes = 0;
+    handler.startRDF();
+    try (InputStream archiveStream = openStream(archiveUrl, props);
+        ArchiveInputStream archive = archiveUrl.endsWith(".zip") ? new ZipArchiveInputStream(
+            archiveStream) : new TarArchiveInputStream(new GZIPInputStream(archiveStream))) {
+      ArchiveEntry entry;
+      while ((entry = archive.getNextEntry()) != null) {
+        if (entry.isDirectory() || !entryMatcher.matches(Paths.get(entry.getName()))) {
+          continue;
+        }
+        long loadedBefore = triplesLoadedSoFar(handler);
+        entryHandler.nextEntry();
+        CountingInputStream in = new CountingInputStream(new CloseShieldInputStream(archive));
+        instantiateAndKickOffParser(in, archiveUrl + "!" + entry.getName(), format, entryHandler);
+        totalBytes += in.getByteCount();
+        Map<String, Object> entryStats = new HashMap<>();
+        entryStats.put("entry", entry.getName());
+        entryStats.put("bytesParsed", in.getByteCount());
+        entryStats.put("triplesParsed", entryHandler.getEntryTriplesParsed());
+        if (handler instanceof RDFToLPGStatementProcessor) {
+          entryStats.put("triplesLoaded", triplesLoadedSoFar(handler) - loadedBefore);
+        }
+        handler.addEntryStats(entryStats);
+      }
+    }
+    handler.endRDF();
+    return totalBytes;
+  }
+
+  private long triplesLoadedSoFar(ConfiguredStatementHandler handler) {
+    if (handler instanceof RDFToLPGStatementProcessor) {
+      RDFToLPGStatementProcessor processor = (RDFToLPGStatementProcessor) handler;
+      return processor.totalTriplesMapped + processor.mappedTripleCounter;
+    }
+    return 0;
+  }
+
+  private boolean isPlainLocalFile(String url) {
+    return url.startsWith("file:") && !url.contains("!") && !(url.endsWith(".zip") || url
+        .endsWith(".tgz") || url.endsWith(".gz") || url.endsWith(".bz2"));
+  }
+
+  private Path localPath(String url) throws IOException {
+    try {
+      return Paths.get(new URL(url).toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      throw new IOException("Not a valid local file url: " + url, e);
     }
   }
 
+  private boolean useLineParser(RDFFormat format, ConfiguredStatementHandler handler) {
+    // only the line parser tracks positions for checkpoints
+    return isLineBased(format) && (handler.getParserConfig().isFastLineParser() || handler
+        .getParserConfig().isCheckpoint());
+  }
+
+  protected boolean isLineBased(RDFFormat format) {
+    return format == RDFFormat.NTRIPLES || format == RDFFormat.NQUADS;
+  }
+
   protected void instantiateAndKickOffParser(InputStream inputStream, @Name("url") String url,
       @Name("format") RDFFormat format,
       ConfiguredStatementHandler handler)
       throws IOException {
+    if (useLineParser(format, handler)) {
+      new NTriplesLineParser(format == RDFFormat.NQUADS,
+          handler.getParserConfig().getParseThreads()).parse(inputStream, handler);
+      return;
+    }
     RDFParser rdfParser = Rio.createParser(format);
     rdfParser
         .set(BasicParserSettings.VERIFY_URI_SYNTAX, handler.getParserConfig().isVerifyUriSyntax());
@@ -132,8 +287,6 @@ public class CommonProcedures {
   }
 
   protected InputStream getInputStream(String url, Map<String, Object> props) throws IOException {
-    URLConnection urlConn;
-
     if ((url.contains(".zip") || url.contains(".tgz")|| url.contains(".gz")|| url.contains(".bz2"))) {
       String zipFileName = null;
       if (url.contains("!")) {
@@ -147,64 +300,69 @@ public class CommonProcedures {
           throw new IllegalArgumentException("'!' notation for filenames can only be used with zip or tgz files");
         }
       }
-      urlConn = new URL(url).openConnection();
-
       if (url.endsWith(".zip")) {
-        ZipInputStream zip = new ZipInputStream(urlConn.getInputStream());
+        ZipInputStream zip = new ZipInputStream(openStream(url, props));
         if (zipFileName!=null){
           ZipEntry zipEntry;
           while ((zipEntry = zip.getNextEntry()) != null) {
             if (!zipEntry.isDirectory() && zipEntry.getName().equals(zipFileName)) {
-              return new ByteArrayInputStream(IOUtils.toByteArray(zip));
+              // positioned at the start of the entry, reads end with the entry
+              return zip;
             }
           }
         }else {
           throw new IllegalArgumentException("Filename is required for zip files (use '!' notation)");
         }
       } else if (url.endsWith(".tar.gz") || url.endsWith(".tgz")) {
-        TarArchiveInputStream tgz = new TarArchiveInputStream(new GZIPInputStream(urlConn.getInputStream()));
+        TarArchiveInputStream tgz = new TarArchiveInputStream(new GZIPInputStream(openStream(url, props)));
         if (zipFileName!=null){
           ArchiveEntry zipEntry;
           while ((zipEntry = tgz.getNextEntry()) != null) {
             if (!zipEntry.isDirectory() && zipEntry.getName().equals(zipFileName)) {
-              return new ByteArrayInputStream(IOUtils.toByteArray(tgz));
+              return tgz;
             }
           }
         } else {
           return tgz;
         }
       } else if (url.endsWith(".gz")){
-        return new GZIPInputStream(urlConn.getInputStream());
+        return new GZIPInputStream(openStream(url, props));
       } else if (url.endsWith(".bz2")){
-        return new BZip2CompressorInputStream(urlConn.getInputStream());
+        return new BZip2CompressorInputStream(openStream(url, props));
       }
-    }else {
-      urlConn = new URL(url).openConnection();
     }
+    return openStream(url, props);
+  }
 
-
-      if (props.containsKey("headerParams")) {
-        Map<String, String> headerParams = (Map<String, String>) props.get("headerParams");
-        Object method = headerParams.get("method");
-        if (method != null && urlConn instanceof HttpURLConnection) {
-          HttpURLConnection http = (HttpURLConnection) urlConn;
-          http.setRequestMethod(method.toString());
-        }
-        headerParams.forEach((k, v) -> urlConn.setRequestProperty(k, v));
+  /**
+   * Opens the url applying the 'headerParams' and 'payload' params (if any) and following
+   * redirects.
+   */
+  private InputStream openStream(String url, Map<String, Object> props) throws IOException {
+    URLConnection urlConn = new URL(url).openConnection();
+
+    if (props.containsKey("headerParams")) {
+      Map<String, String> headerParams = (Map<String, String>) props.get("headerParams");
+      Object method = headerParams.get("method");
+      if (method != null && urlConn instanceof HttpURLConnection) {
+        HttpURLConnection http = (HttpURLConnection) urlConn;
+        http.setRequestMethod(method.toString());
       }
-      if (props.containsKey("payload")) {
-        urlConn.setDoOutput(true);
-        BufferedWriter writer = new BufferedWriter(
-            new OutputStreamWriter(urlConn.getOutputStream(), "UTF-8"));
-        writer.write(props.get("payload").toString());
-        writer.close();
-      }
-      String newUrl = handleRedirect(urlConn, url);
-      if (newUrl != null && !url.equals(newUrl)) {
-        urlConn.getInputStream().close();
-        return getInputStream(newUrl, props);
-      }
-      return urlConn.getInputStream();
+      headerParams.forEach((k, v) -> urlConn.setRequestProperty(k, v));
+    }
+    if (props.containsKey("payload")) {
+      urlConn.setDoOutput(true);
+      BufferedWriter writer = new BufferedWriter(
+          new OutputStreamWriter(urlConn.getOutputStream(), "UTF-8"));
+      writer.write(props.get("payload").toString());
+      writer.close();
+    }
+    String newUrl = handleRedirect(urlConn, url);
+    if (newUrl != null && !url.equals(newUrl)) {
+      urlConn.getInputStream().close();
+      return openStream(newUrl, props);
+    }
+    return urlConn.getInputStream();
   }
 
   //Taken from APOC (apoc.util.Util)
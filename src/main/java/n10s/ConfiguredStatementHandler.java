@@ -1,13 +1,74 @@
 package n10s;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import n10s.graphconfig.RDFParserConfig;
 import org.eclipse.rdf4j.rio.RDFHandler;
 import org.eclipse.rdf4j.rio.RDFParseException;
 
 public abstract class ConfiguredStatementHandler implements RDFHandler {
 
+    protected long bytesParsed = 0;
+    protected long parseMillis = 0;
+    protected final List<Map<String, Object>> entryStats = new ArrayList<>();
+
     public abstract RDFParserConfig getParserConfig();
 
+    /**
+     * Notifies the handler of statements dropped by the parser without being materialised
+     * because their predicate is in the exclusion list (see {@link n10s.rdf.parse.NTriplesLineParser}).
+     */
+    public void handleExcludedStatements(long count) {
+    }
+
+    /**
+     * Records the size of the input and the time it took to parse (and process) it.
+     */
+    public void setInputStats(long bytes, long millis) {
+      bytesParsed = bytes;
+      parseMillis = millis;
+    }
+
+    /**
+     * Records the counts for one of the entries of an archive imported in a single run.
+     */
+    public void addEntryStats(Map<String, Object> stats) {
+      entryStats.add(stats);
+    }
+
+    /**
+     * Notifies the handler of the position in the input of the statement about to be handled, for
+     * parsers that track it (see {@link n10s.rdf.parse.NTriplesLineParser}).
+     *
+     * @param byteOffset offset of the start of the line after the statement
+     * @param line number of the line holding the statement
+     */
+    public void setSourcePosition(long byteOffset, long line) {
+    }
+
+    /**
+     * @return offset (start of a line) where a parser that can seek should start reading the input
+     */
+    public long getResumeOffset() {
+      return 0;
+    }
+
+    /**
+     * @return number of lines before {@link #getResumeOffset()}
+     */
+    public long getResumeLine() {
+      return 0;
+    }
+
+    /**
+     * @return prefix for the ids of the blank nodes of the input, kept across the runs of a
+     * resumed import. null for a new one on every parse
+     */
+    public String getBlankNodePrefix() {
+      return null;
+    }
+
     public class TripleLimitReached extends RDFParseException {
 
     public TripleLimitReached(String s) {
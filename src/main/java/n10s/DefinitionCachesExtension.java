@@ -0,0 +1,71 @@
+package n10s;
+
+import java.util.UUID;
+import n10s.graphconfig.GraphConfigCache;
+import n10s.utils.DefinitionNodeCache;
+import n10s.utils.NsPrefixMapCache;
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.kernel.extension.ExtensionFactory;
+import org.neo4j.kernel.extension.ExtensionType;
+import org.neo4j.kernel.extension.context.ExtensionContext;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.kernel.lifecycle.Lifecycle;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+/**
+ * Sets up the caches of the namespace prefix definitions ({@link NsPrefixMapCache}) and of the
+ * graph config ({@link GraphConfigCache}) for each database, kept up to date by listening to the
+ * transactions committed on it.
+ */
+public class DefinitionCachesExtension extends
+    ExtensionFactory<DefinitionCachesExtension.Dependencies> {
+
+  public interface Dependencies {
+
+    GraphDatabaseAPI graphdatabaseAPI();
+
+    DatabaseManagementService databaseManagementService();
+  }
+
+  public DefinitionCachesExtension() {
+    super(ExtensionType.DATABASE, "n10sDefinitionCaches");
+  }
+
+  @Override
+  public Lifecycle newInstance(ExtensionContext context, Dependencies dependencies) {
+    GraphDatabaseAPI db = dependencies.graphdatabaseAPI();
+    DatabaseManagementService dbms = dependencies.databaseManagementService();
+    return new LifecycleAdapter() {
+
+      private DefinitionNodeCache<?, ?>[] caches;
+
+      @Override
+      public void start() {
+        if (db.databaseId().isSystemDatabase()) {
+          return;
+        }
+        caches = new DefinitionNodeCache<?, ?>[]{NsPrefixMapCache.register(databaseId()),
+            GraphConfigCache.register(databaseId())};
+        for (DefinitionNodeCache<?, ?> cache : caches) {
+          dbms.registerTransactionEventListener(db.databaseName(), cache);
+        }
+      }
+
+      @Override
+      public void stop() {
+        if (caches != null) {
+          for (DefinitionNodeCache<?, ?> cache : caches) {
+            dbms.unregisterTransactionEventListener(db.databaseName(), cache);
+          }
+          NsPrefixMapCache.unregister(databaseId());
+          GraphConfigCache.unregister(databaseId());
+          caches = null;
+        }
+      }
+
+      private UUID databaseId() {
+        return db.databaseId().databaseId().uuid();
+      }
+    };
+  }
+}
@@ -2,6 +2,7 @@ package n10s;
 
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.RDFParserConfig;
+import n10s.utils.AdaptiveCommitSize;
 import n10s.utils.DateUtils;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
 import n10s.utils.NsPrefixMap;
@@ -11,6 +12,8 @@ import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.internal.helpers.collection.Iterables;
 import org.neo4j.logging.Log;
@@ -20,6 +23,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -56,6 +61,25 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
   protected final ValueFactory vf = SimpleValueFactory.getInstance();
   protected StringBuilder loadWarnings = new StringBuilder();
   protected boolean datatypeConflictFound = false;
+  protected final AdaptiveCommitSize adaptiveCommitSize;
+  // resolved names of vocabulary IRIs, one map per element type. Bounded: once full, new IRIs are
+  // resolved every time
+  private static final int MAX_CACHED_ELEMENT_NAMES = 10000;
+  private final List<Map<IRI, String>> elementNames = Arrays
+      .asList(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>());
+  private long elementNameHits = 0;
+  private long elementNameMisses = 0;
+  private final Map<IRI, RelationshipType> relationshipTypes = new HashMap<>();
+  // labels are looked up by the writer threads too
+  private final Map<String, Label> labels = new ConcurrentHashMap<>();
+  // converters for the xsd datatypes mapped to property types and the config read by
+  // getObjectValue, resolved once instead of on every literal
+  private static final Map<IRI, Function<Literal, Object>> literalConverters =
+      createLiteralConverters();
+  private final String languageFilter;
+  private final boolean keepLangTag;
+  private final boolean keepCustomDataTypes;
+  private final Set<String> customDataTypePropList;
 
 
   public RDFToLPGStatementProcessor(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
@@ -64,6 +88,19 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     this.tx = tx;
     this.parserConfig = conf;
     log = l;
+    adaptiveCommitSize = (conf.isAdaptiveCommit() && conf.getCommitSize() != Long.MAX_VALUE
+        ? new AdaptiveCommitSize(conf.getCommitSize(), conf.getMinCommitSize(),
+        conf.getMaxCommitSize(), conf.getTargetCommitMillis()) : null);
+    if (adaptiveCommitSize != null) {
+      conf.setCommitSize(adaptiveCommitSize.getCommitSize());
+    }
+    GraphConfig gc = conf.getGraphConf();
+    languageFilter = conf.getLanguageFilter();
+    keepLangTag = gc.isKeepLangTag();
+    keepCustomDataTypes = gc.isKeepCustomDataTypes() && !(
+        gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
+            || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP);
+    customDataTypePropList = gc.getCustomDataTypePropList();
     //initialise vocMappings  if needed
     if (this.parserConfig.getGraphConf().getHandleVocabUris()
         == GraphConfig.GRAPHCONF_VOC_URI_MAP) {
@@ -81,7 +118,17 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
   }
 
   private void loadNamespaces() throws InvalidNamespacePrefixDefinitionInDB {
-    namespaces = new NsPrefixMap(tx, false);
+    if (namespaces == null) {
+      namespaces = new NsPrefixMap(tx, false);
+    }
+  }
+
+  /**
+   * Makes the processor use (and update) the given namespace prefix map instead of loading its
+   * own from the DB on start. Used when several imports share the same map.
+   */
+  public void setNamespaces(NsPrefixMap sharedNamespaces) {
+    this.namespaces = sharedNamespaces;
   }
 
   /**
@@ -96,56 +143,56 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     IRI datatype = object.getDatatype();
     if (datatype.equals(XMLSchema.STRING) || datatype.equals(RDF.LANGSTRING)) {
       final Optional<String> language = object.getLanguage();
-      if (parserConfig.getLanguageFilter() == null || !language.isPresent() || parserConfig
-          .getLanguageFilter().equals(language.get())) {
-        return object.stringValue() + (
-            parserConfig.getGraphConf().isKeepLangTag() && language.isPresent() ? "@"
-                + language.get()
-                : "");
+      if (languageFilter == null || !language.isPresent() || languageFilter
+          .equals(language.get())) {
+        return keepLangTag && language.isPresent() ? object.stringValue() + "@" + language.get()
+            : object.stringValue();
       } else {
         //filtered by lang
         return null;
       }
-    } else if (typeMapsToLongType(datatype)) {
-      return object.longValue();
-    } else if (typeMapsToDouble(datatype)) {
-      return object.doubleValue();
-    } else if (datatype.equals(XMLSchema.BOOLEAN)) {
-      return object.booleanValue();
-    } else if (datatype.equals(XMLSchema.DATETIME)) {
-      try {
-        return DateUtils.parseDateTime(object.stringValue());
-      } catch (IllegalArgumentException e) {
-        //if date cannot be parsed we return string value
-        return object.stringValue();
-      }
-    } else if (datatype.equals(XMLSchema.DATE)) {
-      try {
-        return DateUtils.parseDate(object.stringValue());
-      } catch (IllegalArgumentException e) {
-        //if date cannot be parsed we return string value
-        return object.stringValue();
-      }
-    } else {
-      //it's a custom data type
-      if (parserConfig.getGraphConf().isKeepCustomDataTypes() && !(
-          parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
-              || parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP)) {
-        //keep custom type as long as property is not absent from customDT list
-        if (parserConfig.getGraphConf().getCustomDataTypePropList() == null || parserConfig
-            .getGraphConf().getCustomDataTypePropList()
-            .contains(propertyIRI.stringValue())) {
-          return getValueWithDatatype(datatype, object.stringValue());
-        } else {
-          return object.stringValue();
-        }
-      }
+    }
+    Function<Literal, Object> converter = literalConverters.get(datatype);
+    if (converter != null) {
+      return converter.apply(object);
+    } else if (keepCustomDataTypes && (customDataTypePropList == null || customDataTypePropList
+        .contains(propertyIRI.stringValue()))) {
+      //it's a custom data type. Kept as long as property is not absent from customDT list
+      return getValueWithDatatype(datatype, object.stringValue());
     }
     // default
     return object.stringValue();
   }
-  
-  
+
+  /**
+   * @return the conversion of literals to property values for each of the xsd datatypes mapped to
+   * a property type (see {@link #getObjectValue})
+   */
+  private static Map<IRI, Function<Literal, Object>> createLiteralConverters() {
+    Map<IRI, Function<Literal, Object>> converters = new HashMap<>();
+    for (IRI datatype : Arrays.asList(XMLSchema.INTEGER, XMLSchema.LONG, XMLSchema.INT,
+        XMLSchema.SHORT, XMLSchema.BYTE, XMLSchema.NON_NEGATIVE_INTEGER,
+        XMLSchema.POSITIVE_INTEGER, XMLSchema.UNSIGNED_LONG, XMLSchema.UNSIGNED_INT,
+        XMLSchema.UNSIGNED_SHORT, XMLSchema.UNSIGNED_BYTE, XMLSchema.NON_POSITIVE_INTEGER,
+        XMLSchema.NEGATIVE_INTEGER)) {
+      converters.put(datatype, Literal::longValue);
+    }
+    for (IRI datatype : Arrays.asList(XMLSchema.DECIMAL, XMLSchema.DOUBLE, XMLSchema.FLOAT)) {
+      converters.put(datatype, Literal::doubleValue);
+    }
+    converters.put(XMLSchema.BOOLEAN, Literal::booleanValue);
+    converters.put(XMLSchema.DATETIME, object -> {
+      LocalDateTime dateTime = DateUtils.parseDateTimeOrNull(object.stringValue());
+      //if date cannot be parsed we return string value
+      return dateTime != null ? dateTime : object.stringValue();
+    });
+    converters.put(XMLSchema.DATE, object -> {
+      LocalDate date = DateUtils.parseDateOrNull(object.stringValue());
+      //if date cannot be parsed we return string value
+      return date != null ? date : object.stringValue();
+    });
+    return converters;
+  }
 
   protected String getValueWithDatatype(IRI datatype, String value) {
     StringBuilder result = new StringBuilder(value);
@@ -158,31 +205,60 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     return result.toString();
   }
 
-  private boolean typeMapsToDouble(IRI datatype) {
-    return datatype.equals(XMLSchema.DECIMAL) || datatype.equals(XMLSchema.DOUBLE) ||
-        datatype.equals(XMLSchema.FLOAT);
-  }
-
-  private boolean typeMapsToLongType(IRI datatype) {
-    return datatype.equals(XMLSchema.INTEGER) || datatype.equals(XMLSchema.LONG) || datatype
-        .equals(XMLSchema.INT) ||
-        datatype.equals(XMLSchema.SHORT) || datatype.equals(XMLSchema.BYTE) ||
-        datatype.equals(XMLSchema.NON_NEGATIVE_INTEGER) || datatype
-        .equals(XMLSchema.POSITIVE_INTEGER) ||
-        datatype.equals(XMLSchema.UNSIGNED_LONG) || datatype.equals(XMLSchema.UNSIGNED_INT) ||
-        datatype.equals(XMLSchema.UNSIGNED_SHORT) || datatype.equals(XMLSchema.UNSIGNED_BYTE) ||
-        datatype.equals(XMLSchema.NON_POSITIVE_INTEGER) || datatype
-        .equals(XMLSchema.NEGATIVE_INTEGER);
-  }
-
   @Override
   public void handleComment(String comment) throws RDFHandlerException {
 
   }
 
 
+  /**
+   * @return the name of the label, relationship type, property or datatype for the IRI. Names are
+   * resolved once per import (the vocabulary handling and mappings don't change during an import).
+   */
   protected String handleIRI(IRI iri, int elementType) {
-    //TODO: would caching this improve perf? It's kind of cached in getPrefix()
+    Map<IRI, String> names = elementNames.get(elementType);
+    String name = names.get(iri);
+    if (name != null) {
+      elementNameHits++;
+      return name;
+    }
+    elementNameMisses++;
+    name = resolveIRI(iri, elementType);
+    if (names.size() < MAX_CACHED_ELEMENT_NAMES) {
+      names.put(iri, name);
+    }
+    return name;
+  }
+
+  /**
+   * @return the relationship type for a predicate, built once per import
+   */
+  protected RelationshipType relationshipTypeFor(IRI predicate) {
+    RelationshipType type = relationshipTypes.get(predicate);
+    if (type == null) {
+      type = RelationshipType.withName(handleIRI(predicate, RELATIONSHIP));
+      if (relationshipTypes.size() < MAX_CACHED_ELEMENT_NAMES) {
+        relationshipTypes.put(predicate, type);
+      }
+    }
+    return type;
+  }
+
+  /**
+   * @return the label with the given name, built once per import
+   */
+  protected Label labelFor(String name) {
+    Label label = labels.get(name);
+    if (label == null) {
+      label = Label.label(name);
+      if (labels.size() < MAX_CACHED_ELEMENT_NAMES) {
+        labels.put(name, label);
+      }
+    }
+    return label;
+  }
+
+  private String resolveIRI(IRI iri, int elementType) {
     if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN ||
         parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN_STRICT) {
       String localName = iri.getLocalName();
@@ -426,6 +502,11 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     }
   }
 
+  @Override
+  public void handleExcludedStatements(long count) {
+    totalTriplesParsed += count;
+  }
+
   protected boolean addRelProp(Statement stmt, IRI predicate, Literal propValueRaw){
 
     Map<String, Object> props;
@@ -493,6 +574,46 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
 
   protected abstract void periodicOperation();
 
+  /**
+   * Feeds the outcome of a partial commit to the adaptive commit sizing (if enabled) and applies
+   * the commit size chosen for the next batch.
+   *
+   * @param pendingState nodes and relationships written in the partial commit
+   */
+  protected void adaptCommitSize(long triples, long pendingState, long startNanos,
+      boolean success) {
+    if (adaptiveCommitSize != null) {
+      parserConfig.setCommitSize(adaptiveCommitSize.batchCommitted(triples, pendingState,
+          (System.nanoTime() - startNanos) / 1_000_000, success));
+    }
+  }
+
+  /**
+   * @return counters collected during the import, reported along with the import results
+   */
+  public Map<String, Object> getImportStats() {
+    Map<String, Object> stats = new HashMap<>();
+    if (adaptiveCommitSize != null) {
+      stats.put("commitSizes", adaptiveCommitSize.getChosenSizes());
+    }
+    stats.put("elementNameCacheHits", elementNameHits);
+    stats.put("elementNameCacheMisses", elementNameMisses);
+    if (bytesParsed > 0) {
+      stats.put("bytesParsed", bytesParsed);
+      stats.put("mbPerSecond",
+          (bytesParsed / (1024.0 * 1024.0)) / (Math.max(parseMillis, 1) / 1000.0));
+    }
+    if (!entryStats.isEmpty()) {
+      stats.put("entries", entryStats);
+    }
+    if (namespaces != null) {
+      stats.put("nsPrefixSyncs", namespaces.getSyncCount());
+      stats.put("nsPrefixSyncsSkipped", namespaces.getSkippedSyncCount());
+      stats.put("nsPrefixLockWaitMillis", namespaces.getLockWaitMillis());
+    }
+    return stats;
+  }
+
   public String getWarnings() {
     return loadWarnings.toString() + (datatypeConflictFound?datatypeConflictMessage():"");
   }
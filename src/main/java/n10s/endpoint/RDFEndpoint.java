@@ -21,6 +21,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.rdf.export.ExportProcessor;
 import n10s.rdf.export.LPGRDFToRDFProcesssor;
 import n10s.rdf.export.LPGToRDFProcesssor;
@@ -147,7 +148,7 @@ public class RDFEndpoint {
   private GraphConfig getGraphConfig(Transaction tx) {
     GraphConfig result = null;
     try {
-      result = new GraphConfig(tx);
+      result = GraphConfigCache.get(tx);
     } catch (GraphConfigNotFound graphConfigNotFound) {
       //it's an LPG (no RDF import config)
     }
@@ -8,6 +8,7 @@ import java.util.UUID;
 import java.util.stream.Stream;
 import n10s.RDFImportException;
 import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.graphconfig.RDFParserConfig;
 import n10s.rdf.RDFProcedures;
 import n10s.result.NodeResult;
@@ -40,7 +41,7 @@ public class ExperimentalImports extends RDFProcedures {
 
     try {
       checkConstraintExist();
-      RDFParserConfig conf = new RDFParserConfig(new HashMap<>(), new GraphConfig(tx));
+      RDFParserConfig conf = new RDFParserConfig(new HashMap<>(), GraphConfigCache.get(tx));
       String containerUri = (String) containerNode.getProperty("uri", null);
       PlainJsonStatementLoader plainJSONStatementLoader = new PlainJsonStatementLoader(db, tx, conf,
           log);
@@ -504,7 +504,7 @@ public class GraphConfig {
     }
   }
 
-  public class GraphConfigNotFound extends Throwable {
+  public static class GraphConfigNotFound extends Throwable {
 
   }
 }
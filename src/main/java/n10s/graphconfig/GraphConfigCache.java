@@ -0,0 +1,75 @@
+package n10s.graphconfig;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
+import n10s.utils.DefinitionNodeCache;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+
+/**
+ * Per database copy of the graph config (the _GraphConfig node), including the fact that there is
+ * none, so that imports, previews, exports, the endpoint and the inference functions don't have
+ * to query and parse it on every call.
+ * <p>
+ * Caches are created for each database by the {@code DefinitionCachesExtension}. Without one, the
+ * config is read from the db as before.
+ */
+public class GraphConfigCache extends DefinitionNodeCache<GraphConfig, RuntimeException> {
+
+  private static final Map<UUID, GraphConfigCache> caches = new ConcurrentHashMap<>();
+
+  private GraphConfigCache() {
+    super(Label.label("_GraphConfig"));
+  }
+
+  public static GraphConfigCache register(UUID databaseId) {
+    return caches.computeIfAbsent(databaseId, id -> new GraphConfigCache());
+  }
+
+  public static void unregister(UUID databaseId) {
+    caches.remove(databaseId);
+  }
+
+  /**
+   * @return the graph config as seen by the transaction. The config returned can be shared with
+   * other transactions and must not be modified.
+   */
+  public static GraphConfig get(Transaction tx) throws GraphConfigNotFound {
+    GraphConfigCache cache = cacheFor(tx);
+    if (cache == null) {
+      return new GraphConfig(tx);
+    }
+    GraphConfig graphConfig = cache.lookup(tx);
+    if (graphConfig == null) {
+      throw new GraphConfigNotFound();
+    }
+    return graphConfig;
+  }
+
+  /**
+   * Records that the transaction has changed the graph config in the db.
+   */
+  static void changedIn(Transaction tx) {
+    GraphConfigCache cache = cacheFor(tx);
+    if (cache != null) {
+      cache.recordChange(tx);
+    }
+  }
+
+  private static GraphConfigCache cacheFor(Transaction tx) {
+    return tx instanceof InternalTransaction ? caches
+        .get(((InternalTransaction) tx).getDatabaseId()) : null;
+  }
+
+  @Override
+  protected GraphConfig load(Transaction tx) {
+    try {
+      return new GraphConfig(tx);
+    } catch (GraphConfigNotFound e) {
+      return null;
+    }
+  }
+}
@@ -41,6 +41,7 @@ public class GraphConfigProcedures {
         Map<String, Object> queryParams = new HashMap<>();
         queryParams.put("props", currentGraphConfig.serialiseConfig());
         tx.execute("MERGE (gc:_GraphConfig) SET gc+= $props", queryParams);
+        GraphConfigCache.changedIn(tx);
         return currentGraphConfig.getAsGraphConfigResults().stream();
       } catch (InvalidParamException ipe) {
         throw new GraphConfigException(ipe.getMessage());
@@ -72,6 +73,7 @@ public class GraphConfigProcedures {
       Map<String, Object> queryParams = new HashMap<>();
       queryParams.put("props", currentGraphConfig.serialiseConfig());
       tx.execute("MERGE (gc:_GraphConfig) SET gc+= $props", queryParams);
+      GraphConfigCache.changedIn(tx);
       return currentGraphConfig.getAsGraphConfigResults().stream();
     } else {
       throw new GraphConfigException("The graph is non-empty. Config cannot be changed.");
@@ -82,7 +84,7 @@ public class GraphConfigProcedures {
   @Description("Shows the current graph config")
   public Stream<GraphConfigItemResult> show() throws GraphConfigException {
     try {
-      return new GraphConfig(tx).getAsGraphConfigResults().stream();
+      return GraphConfigCache.get(tx).getAsGraphConfigResults().stream();
     } catch (GraphConfigNotFound e) {
       return Stream.empty();
     }
@@ -100,6 +102,7 @@ public class GraphConfigProcedures {
 
     if (graphConfigs.hasNext()) {
       graphConfigs.next().delete();
+      GraphConfigCache.changedIn(tx);
     }
 
     return Stream.empty();
@@ -8,6 +8,13 @@ public class Params {
   public static final String DEFAULT_BASE_SCH_NS = "neo4j://graph.schema#";
   public static final String DEFAULT_BASE_SCH_PREFIX = "n4sch";
   public static final String NOT_MATCHING_NS = "__NONE__";
+  // ids of the sources (see the 'source' import param) that wrote a node or relationship
+  public static final String SOURCES_PROPERTY = "_sources";
+  // placeholder source of the nodes and relationships written by an import without 'source' before
+  // a source tagged them, so that they are kept when that source is deleted
+  public static final String UNTAGGED_SOURCE = "_untagged";
+  // digest of the statements about a subject, as of the last sync of its source
+  public static final String DIGEST_PROPERTY = "_digest";
 
   public static final Pattern PREFIX_PATTERN = Pattern.compile("^[-\\w]+$");
   public static final String PREFIX_SEPARATOR = "__";
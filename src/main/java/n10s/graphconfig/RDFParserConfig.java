@@ -12,17 +12,51 @@ public class RDFParserConfig {
   private static final long DEFAULT_COMMIT_SIZE = 25000;
   //nodes kept in the cache when writing to disk
   private static final long DEFAULT_NODE_CACHE_SIZE = 10000;
+  //memory (MB) for the uri to node id cache kept across partial commits
+  private static final long DEFAULT_NODE_ID_CACHE_MB = 64;
   //number of triples streamed by default
   private static final int DEFAULT_STREAM_TRIPLE_LIMIT = 1000;
+  //writer threads for partial commits. Zero means commits run in the parsing thread
+  private static final int DEFAULT_PARALLELISM = 0;
+  //batches parsed and waiting to be written when running with writer threads
+  private static final int DEFAULT_QUEUE_DEPTH = 2;
+  //bounds and target commit duration (ms) when the commit size is adapted during the import
+  private static final long DEFAULT_MIN_COMMIT_SIZE = 1000;
+  private static final long DEFAULT_MAX_COMMIT_SIZE = 500000;
+  private static final long DEFAULT_TARGET_COMMIT_MILLIS = 2000;
+  //threads tokenizing N-Triples/N-Quads chunks when using the line parser
+  private static final int DEFAULT_PARSE_THREADS = 1;
+  //files imported concurrently by the multi-file import
+  private static final int DEFAULT_WORKERS = 1;
   private final Set<String> predicateExclusionList;
   private final boolean verifyUriSyntax;
   private final long nodeCacheSize;
+  private final long nodeIdCacheMB;
   private final String languageFilter;
   private long commitSize;
   private long streamTripleLimit;
   private boolean abortOnError;
   private GraphConfig graphConf;
   private boolean strictDataTypeCheck;
+  private final int parallelism;
+  private final int queueDepth;
+  private final boolean partitionRels;
+  private final boolean partitionByGraph;
+  private final boolean compactBatches;
+  private final boolean adaptiveCommit;
+  private final long minCommitSize;
+  private final long maxCommitSize;
+  private final long targetCommitMillis;
+  private final boolean fastLineParser;
+  private final int parseThreads;
+  private final boolean memoryMapped;
+  private final int workers;
+  private final boolean checkpoint;
+  private final boolean resumeFromCheckpoint;
+  private final long resumeOffset;
+  private final boolean assumeNoExistingRels;
+  private final boolean deferTypeRels;
+  private final String source;
 
   public RDFParserConfig(Map<String, Object> props, GraphConfig gc) {
     this.graphConf = gc;
@@ -35,6 +69,8 @@ public class RDFParserConfig {
         : DEFAULT_COMMIT_SIZE);
     nodeCacheSize = (props.containsKey("nodeCacheSize") ? (long) props
         .get("nodeCacheSize") : DEFAULT_NODE_CACHE_SIZE);
+    nodeIdCacheMB = (props.containsKey("nodeIdCacheMB") ? (long) props
+        .get("nodeIdCacheMB") : DEFAULT_NODE_ID_CACHE_MB);
     languageFilter = (props.containsKey("languageFilter") ? (String) props
         .get("languageFilter") : null);
     verifyUriSyntax = props.containsKey("verifyUriSyntax") ? (Boolean) props
@@ -45,6 +81,38 @@ public class RDFParserConfig {
             .get("abortOnError") : true;
     strictDataTypeCheck = props.containsKey("strictDataTypeCheck") ? (Boolean) props
             .get("strictDataTypeCheck") : true;
+    parallelism = (props.containsKey("parallelism") && (long) props.get("parallelism") > 0
+        ? (int) (long) props.get("parallelism") : DEFAULT_PARALLELISM);
+    queueDepth = (props.containsKey("queueDepth") && (long) props.get("queueDepth") > 0
+        ? (int) (long) props.get("queueDepth") : DEFAULT_QUEUE_DEPTH);
+    partitionRels = props.containsKey("partitionRels") && (Boolean) props.get("partitionRels");
+    partitionByGraph = props.containsKey("partitionByGraph") && (Boolean) props
+        .get("partitionByGraph");
+    compactBatches = props.containsKey("compactBatches") && (Boolean) props.get("compactBatches");
+    adaptiveCommit = props.containsKey("adaptiveCommit") && (Boolean) props.get("adaptiveCommit");
+    minCommitSize = (props.containsKey("minCommitSize") && (long) props.get("minCommitSize") > 0
+        ? (long) props.get("minCommitSize") : DEFAULT_MIN_COMMIT_SIZE);
+    maxCommitSize = (props.containsKey("maxCommitSize") ? Math
+        .max((long) props.get("maxCommitSize"), minCommitSize) : Math
+        .max(DEFAULT_MAX_COMMIT_SIZE, minCommitSize));
+    targetCommitMillis = (props.containsKey("targetCommitMillis")
+        && (long) props.get("targetCommitMillis") > 0 ? (long) props.get("targetCommitMillis")
+        : DEFAULT_TARGET_COMMIT_MILLIS);
+    fastLineParser = props.containsKey("fastLineParser") && (Boolean) props.get("fastLineParser");
+    parseThreads = (props.containsKey("parseThreads") && (long) props.get("parseThreads") > 0
+        ? (int) (long) props.get("parseThreads") : DEFAULT_PARSE_THREADS);
+    memoryMapped = props.containsKey("memoryMapped") && (Boolean) props.get("memoryMapped");
+    workers = (props.containsKey("workers") && (long) props.get("workers") > 0
+        ? (int) (long) props.get("workers") : DEFAULT_WORKERS);
+    // either 'checkpoint' (the one saved for the url) or a byte offset
+    resumeFromCheckpoint = "checkpoint".equals(props.get("resumeFrom"));
+    resumeOffset = (props.get("resumeFrom") instanceof Long ? (long) props.get("resumeFrom") : 0);
+    checkpoint = (props.containsKey("checkpoint") && (Boolean) props.get("checkpoint"))
+        || props.containsKey("resumeFrom");
+    assumeNoExistingRels = props.containsKey("assumeNoExistingRels") && (Boolean) props
+        .get("assumeNoExistingRels");
+    deferTypeRels = props.containsKey("deferTypeRels") && (Boolean) props.get("deferTypeRels");
+    source = (props.containsKey("source") ? (String) props.get("source") : null);
   }
 
   public Set<String> getPredicateExclusionList() {
@@ -67,6 +135,13 @@ public class RDFParserConfig {
     return nodeCacheSize;
   }
 
+  /**
+   * @return memory bound (in bytes) of the uri to node id cache. Zero or less disables it.
+   */
+  public long getNodeIdCacheMemory() {
+    return nodeIdCacheMB * 1024 * 1024;
+  }
+
   public String getLanguageFilter() {
     return languageFilter;
   }
@@ -83,6 +158,98 @@ public class RDFParserConfig {
 
   public boolean isStrictDataTypeCheck() { return strictDataTypeCheck;  }
 
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  public boolean isPartitionRels() {
+    return partitionRels;
+  }
+
+  /**
+   * @return true if quads are to be committed by workers that each own a share of the named
+   * graphs (see {@link n10s.quadrdf.RDFQuadDirectStatementLoader})
+   */
+  public boolean isPartitionByGraph() {
+    return partitionByGraph;
+  }
+
+  public boolean isCompactBatches() {
+    return compactBatches;
+  }
+
+  public boolean isAdaptiveCommit() {
+    return adaptiveCommit;
+  }
+
+  public long getMinCommitSize() {
+    return minCommitSize;
+  }
+
+  public long getMaxCommitSize() {
+    return maxCommitSize;
+  }
+
+  public long getTargetCommitMillis() {
+    return targetCommitMillis;
+  }
+
+  public boolean isFastLineParser() {
+    return fastLineParser;
+  }
+
+  public int getParseThreads() {
+    return parseThreads;
+  }
+
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public boolean isCheckpoint() {
+    return checkpoint;
+  }
+
+  public boolean isResumeFromCheckpoint() {
+    return resumeFromCheckpoint;
+  }
+
+  public long getResumeOffset() {
+    return resumeOffset;
+  }
+
+  /**
+   * @return true if relationships are created without checking for existing ones (first load of
+   * a source that doesn't repeat relationship triples across partial commits)
+   */
+  public boolean isAssumeNoExistingRels() {
+    return assumeNoExistingRels;
+  }
+
+  /**
+   * @return true if rdf:type relationships (to class nodes) are written in a final phase, after
+   * all the partial commits of the import
+   */
+  public boolean isDeferTypeRels() {
+    return deferTypeRels;
+  }
+
+  /**
+   * @return id of the source the imported nodes and relationships are tagged with, so that they
+   * can be deleted with n10s.rdf.delete.bySource. {@code null} if not tagging.
+   */
+  public String getSource() {
+    return source;
+  }
+
   public Map<String, Object> getConfigSummary() {
     Map<String, Object> summary = new HashMap<>();
 
@@ -98,6 +265,10 @@ public class RDFParserConfig {
       summary.put("nodeCacheSize", nodeCacheSize);
     }
 
+    if (nodeIdCacheMB != DEFAULT_NODE_ID_CACHE_MB) {
+      summary.put("nodeIdCacheMB", nodeIdCacheMB);
+    }
+
     if (languageFilter != null) {
       summary.put("languageFilter", languageFilter);
     }
@@ -114,6 +285,71 @@ public class RDFParserConfig {
       summary.put("limit", streamTripleLimit);
     }
 
+    if (parallelism != DEFAULT_PARALLELISM) {
+      summary.put("parallelism", parallelism);
+    }
+
+    if (queueDepth != DEFAULT_QUEUE_DEPTH) {
+      summary.put("queueDepth", queueDepth);
+    }
+
+    if (partitionRels) {
+      summary.put("partitionRels", partitionRels);
+    }
+
+    if (partitionByGraph) {
+      summary.put("partitionByGraph", partitionByGraph);
+    }
+
+    if (compactBatches) {
+      summary.put("compactBatches", compactBatches);
+    }
+
+    if (adaptiveCommit) {
+      summary.put("adaptiveCommit", adaptiveCommit);
+      summary.put("minCommitSize", minCommitSize);
+      summary.put("maxCommitSize", maxCommitSize);
+      summary.put("targetCommitMillis", targetCommitMillis);
+    }
+
+    if (fastLineParser) {
+      summary.put("fastLineParser", fastLineParser);
+    }
+
+    if (parseThreads != DEFAULT_PARSE_THREADS) {
+      summary.put("parseThreads", parseThreads);
+    }
+
+    if (memoryMapped) {
+      summary.put("memoryMapped", memoryMapped);
+    }
+
+    if (workers != DEFAULT_WORKERS) {
+      summary.put("workers", workers);
+    }
+
+    if (checkpoint) {
+      summary.put("checkpoint", checkpoint);
+    }
+
+    if (resumeFromCheckpoint) {
+      summary.put("resumeFrom", "checkpoint");
+    } else if (resumeOffset > 0) {
+      summary.put("resumeFrom", resumeOffset);
+    }
+
+    if (assumeNoExistingRels) {
+      summary.put("assumeNoExistingRels", assumeNoExistingRels);
+    }
+
+    if (deferTypeRels) {
+      summary.put("deferTypeRels", deferTypeRels);
+    }
+
+    if (source != null) {
+      summary.put("source", source);
+    }
+
     return summary;
   }
 }
@@ -12,6 +12,7 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.result.NodeResult;
 import n10s.result.RelAndNodeResult;
 import org.neo4j.graphdb.Direction;
@@ -94,7 +95,7 @@ public class MicroReasoners {
 
   private GraphConfig getGraphConfig() {
     try {
-      return new GraphConfig(tx);
+      return GraphConfigCache.get(tx);
     } catch (GraphConfig.GraphConfigNotFound graphConfigNotFound) {
       //no graph config
       return null;
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.stream.Stream;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
 import n10s.utils.NsPrefixMap;
+import n10s.utils.NsPrefixMapCache;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -44,7 +45,7 @@ public class MappingUtils {
       throws MappingDefinitionException, InvalidNamespacePrefixDefinitionInDB {
 
     IRI rdfVocElementIri = vf.createIRI(rdfVocElement);
-    NsPrefixMap prefixDefs = new NsPrefixMap(tx, false);
+    NsPrefixMap prefixDefs = NsPrefixMapCache.get(tx);
     if(!prefixDefs.hasNs(rdfVocElementIri.getNamespace())){
       throw new MappingDefinitionException(
           "No namespace prefix defined for vocabulary " + rdfVocElementIri.getNamespace() + ".  "
@@ -11,6 +11,7 @@ import n10s.RDFImportException;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
 import n10s.graphconfig.GraphConfig.InvalidParamException;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.graphconfig.RDFParserConfig;
 import n10s.rdf.RDFProcedures.ImportResults;
 import n10s.result.GraphResult;
@@ -48,7 +49,7 @@ public class OntoProcedures extends CommonProcedures {
     ImportResults importResults = new ImportResults();
     try {
       checkConstraintExist();
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       ontoImporter = new OntologyImporter(db, tx, conf, log);
     } catch (RDFImportPreRequisitesNotMet e) {
@@ -62,11 +63,13 @@ public class OntoProcedures extends CommonProcedures {
         parseRDFPayloadOrFromUrl(rdfFormat, url, rdfFragment, props, ontoImporter);
         importResults.setTriplesLoaded(ontoImporter.totalTriplesMapped);
         importResults.setTriplesParsed(ontoImporter.totalTriplesParsed);
+        importResults.setStats(ontoImporter.getImportStats());
         importResults.setConfigSummary(props);
       } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
         importResults.setTerminationKO(e.getMessage());
         importResults.setTriplesLoaded(ontoImporter.totalTriplesMapped);
         importResults.setTriplesParsed(ontoImporter.totalTriplesParsed);
+        importResults.setStats(ontoImporter.getImportStats());
         importResults.setConfigSummary(props);
         e.printStackTrace();
       }
@@ -85,7 +88,7 @@ public class OntoProcedures extends CommonProcedures {
     List<Relationship> virtualRels = new ArrayList<>();
 
     try {
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       ontoViewer = new OntologyPreviewer(db, tx, conf, virtualNodes, virtualRels, log);
     } catch (RDFImportBadParams e) {
@@ -24,7 +24,6 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
-import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 
@@ -74,14 +73,19 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
       }
     }
 
+    long triples = mappedTripleCounter;
+    long pendingState = resourceLabels.size() + statements.size();
+    long startNanos = System.nanoTime();
     try (Transaction tempTransaction = graphdb.beginTx()) {
       this.runPartialTx(tempTransaction);
       tempTransaction.commit();
       log.debug("partial commit: " + mappedTripleCounter + " triples ingested. Total so far: "
               + totalTriplesMapped);
       totalTriplesMapped += mappedTripleCounter;
+      adaptCommitSize(triples, pendingState, startNanos, true);
     } catch (Exception e) {
       log.error("Problems when running partial commit. Partial transaction rolled back. "  + mappedTripleCounter + " triples lost.", e);
+      adaptCommitSize(triples, pendingState, startNanos, false);
       if (getParserConfig().isAbortOnError()){
         throw new PartialCommitException("Problems when running partial commit. Partial transaction rolled back. " , e);
       }
@@ -301,7 +305,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
             }
           });
 
-          entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
+          entry.getValue().forEach(l -> node.addLabel(labelFor(l)));
 
           resourceProps.get(entry.getKey()).forEach((k, v) -> {
             //node.setProperty(k, v);
@@ -406,13 +410,13 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         // check if the rel is already present. If so, don't recreate.
         // explore the node with the lowest degree
         boolean found = false;
-        if (fromNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+        if (fromNode.getDegree(relationshipTypeFor(translateRelName(st.getPredicate())),
             Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+            toNode.getDegree(relationshipTypeFor(translateRelName(st.getPredicate())),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP)))) {
+                  relationshipTypeFor(translateRelName(st.getPredicate())))) {
             if (rel.getEndNode().equals(toNode)) {
               found = true;
               break;
@@ -421,7 +425,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP)))) {
+                  relationshipTypeFor(translateRelName(st.getPredicate())))) {
             if (rel.getStartNode().equals(fromNode)) {
               found = true;
               break;
@@ -432,7 +436,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         if (!found) {
           fromNode.createRelationshipTo(
               toNode,
-              RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP)));
+              relationshipTypeFor(translateRelName(st.getPredicate())));
         }
       } catch (ExecutionException e) {
         e.printStackTrace();
@@ -466,8 +470,8 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         boolean found = false;
         for (Relationship rel : fromNode
                 .getRelationships(Direction.OUTGOING,
-                        RelationshipType.withName(handleIRI(vf.createIRI(DEFAULT_BASE_SCH_NS +
-                                getRestrictionRelName(type)), RELATIONSHIP)))) {
+                        relationshipTypeFor(vf.createIRI(DEFAULT_BASE_SCH_NS +
+                                getRestrictionRelName(type))))) {
           if (rel.getEndNode().equals(toNode)) {
             found = rel.getProperty("onPropertyURI").equals(rest.getRelName().stringValue()) &&
                     rel.getProperty("onPropertyName").equals(rest.getRelName().getLocalName()) &&
@@ -480,7 +484,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
 
           Relationship restrictionRel = fromNode.createRelationshipTo(
                   toNode,
-                  RelationshipType.withName(handleIRI(vf.createIRI(DEFAULT_BASE_SCH_NS + getRestrictionRelName(type)), RELATIONSHIP)));
+                  relationshipTypeFor(vf.createIRI(DEFAULT_BASE_SCH_NS + getRestrictionRelName(type))));
           restrictionRel.setProperty("onPropertyURI", rest.getRelName().stringValue());
           restrictionRel.setProperty("onPropertyName", rest.getRelName().getLocalName());
           restrictionRel.setProperty("restrictionType", getTypeAsString(rest));
@@ -18,7 +18,6 @@ import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
-import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 
@@ -77,7 +76,7 @@ public class OntologyPreviewer extends OntologyImporter {
         vRels.add(
             new VirtualRelationship(vNodes.get(st.getSubject().stringValue().replace("'", "\'")),
                 vNodes.get(st.getObject().stringValue().replace("'", "\'")),
-                RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP))));
+                relationshipTypeFor(translateRelName(st.getPredicate()))));
       } catch (NamespacePrefixConflictException e) {
         e.printStackTrace();
       }
@@ -94,7 +93,7 @@ public class OntologyPreviewer extends OntologyImporter {
       vRels.add(
               new VirtualRelationship(vNodes.get(c.stringValue().replace("'", "\'")),
                       vNodes.get(rest.getTargetClass().stringValue().replace("'", "\'")),
-                      RelationshipType.withName(handleIRI(vf.createIRI(DEFAULT_BASE_SCH_NS + getRestrictionRelName(type)), RELATIONSHIP)), relProps));
+                      relationshipTypeFor(vf.createIRI(DEFAULT_BASE_SCH_NS + getRestrictionRelName(type))), relProps));
     };
     } catch (NamespacePrefixConflictException e) {
       e.printStackTrace();
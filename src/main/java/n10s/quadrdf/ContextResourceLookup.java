@@ -0,0 +1,209 @@
+package n10s.quadrdf;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Iterator;
+import java.util.Objects;
+import org.neo4j.exceptions.KernelException;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.kernel.api.IndexQueryConstraints;
+import org.neo4j.internal.kernel.api.IndexReadSession;
+import org.neo4j.internal.kernel.api.InternalIndexState;
+import org.neo4j.internal.kernel.api.NodeValueIndexCursor;
+import org.neo4j.internal.kernel.api.PropertyIndexQuery;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.internal.schema.IndexDescriptor;
+import org.neo4j.internal.schema.SchemaDescriptor;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+
+/**
+ * Finds the node of a {@link ContextResource} (a :Resource with a uri and, in named graphs, a
+ * graphUri) going straight to the indexes through the kernel API, with no Cypher query to parse
+ * and plan for each lookup. Resources in named graphs are looked up in the composite
+ * :Resource(uri, graphUri) index when there is one, and otherwise among the nodes with the uri in
+ * the :Resource(uri) index (the one required for importing quads).
+ * <p>
+ * The ids of the nodes found (or created) are cached across the partial transactions of an import,
+ * bounded by an estimate of their memory footprint. Like in {@link n10s.rdf.load.NodeIdCache},
+ * cached ids are checked against the uri and graphUri of the node they point to, so entries left
+ * behind by rolled back transactions or deleted nodes are detected and evicted.
+ */
+class ContextResourceLookup {
+
+  private static final Label RESOURCE = Label.label("Resource");
+  // approximate cost of an entry on top of the uri characters: ContextResource, String and Long
+  // headers plus the cache entry itself
+  private static final int ENTRY_OVERHEAD_BYTES = 152;
+
+  private final Cache<ContextResource, Long> ids;
+
+  // index sessions for the transaction in use, opened on its first lookup
+  private Transaction sessionTx;
+  private KernelTransaction ktx;
+  private int uriKey;
+  private int graphUriKey;
+  private IndexReadSession uriIndex;
+  private IndexReadSession uriAndGraphUriIndex;
+
+  ContextResourceLookup(long maxMemoryBytes) {
+    ids = CacheBuilder.newBuilder()
+        .maximumWeight(Math.max(maxMemoryBytes, 0))
+        .weigher((ContextResource r, Long id) -> ENTRY_OVERHEAD_BYTES + r.getUri().length()
+            + (r.getGraphUri() != null ? r.getGraphUri().length() : 0))
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * @return the node of the resource, {@code null} if there's none
+   * @throws IllegalStateException if more than one node matches the resource
+   */
+  Node find(Transaction tx, ContextResource resource) {
+    Long cachedId = ids.getIfPresent(resource);
+    if (cachedId != null) {
+      try {
+        Node node = tx.getNodeById(cachedId);
+        if (matches(node, resource)) {
+          return node;
+        }
+      } catch (NotFoundException e) {
+        // deleted or never committed
+      }
+      ids.invalidate(resource);
+    }
+    Node node = seek(tx, resource);
+    if (node != null) {
+      ids.put(resource, node.getId());
+    }
+    return node;
+  }
+
+  /**
+   * Records the node just created for the resource.
+   */
+  void put(ContextResource resource, Node node) {
+    ids.put(resource, node.getId());
+  }
+
+  long getHitCount() {
+    return ids.stats().hitCount();
+  }
+
+  long getMissCount() {
+    return ids.stats().missCount();
+  }
+
+  private static boolean matches(Node node, ContextResource resource) {
+    return resource.getUri().equals(node.getProperty("uri", null)) && Objects
+        .equals(resource.getGraphUri(), node.getProperty("graphUri", null));
+  }
+
+  private Node seek(Transaction tx, ContextResource resource) {
+    if (tx != sessionTx) {
+      openSessions(tx);
+    }
+    if (uriIndex == null) {
+      // index still being populated or dropped since the import started
+      return scan(tx, tx.findNodes(RESOURCE, "uri", resource.getUri()), resource);
+    }
+    if (resource.getGraphUri() != null && graphUriKey == TokenRead.NO_TOKEN) {
+      // no node had a graphUri when the sessions were opened, maybe one has been created since
+      openSessions(tx);
+      if (graphUriKey == TokenRead.NO_TOKEN) {
+        return null;
+      }
+    }
+    try (NodeValueIndexCursor cursor = ktx.cursors()
+        .allocateNodeValueIndexCursor(ktx.cursorContext(), ktx.memoryTracker())) {
+      if (resource.getGraphUri() != null && uriAndGraphUriIndex != null) {
+        ktx.dataRead().nodeIndexSeek(uriAndGraphUriIndex, cursor,
+            IndexQueryConstraints.unconstrained(),
+            PropertyIndexQuery.exact(uriKey, resource.getUri()),
+            PropertyIndexQuery.exact(graphUriKey, resource.getGraphUri()));
+      } else {
+        ktx.dataRead().nodeIndexSeek(uriIndex, cursor, IndexQueryConstraints.unconstrained(),
+            PropertyIndexQuery.exact(uriKey, resource.getUri()));
+      }
+      Node found = null;
+      while (cursor.next()) {
+        Node node = tx.getNodeById(cursor.nodeReference());
+        if (matches(node, resource)) {
+          if (found != null) {
+            throw multipleMatches(resource);
+          }
+          found = node;
+        }
+      }
+      return found;
+    } catch (KernelException e) {
+      throw new IllegalStateException("Index lookup failed for " + describe(resource), e);
+    }
+  }
+
+  private Node scan(Transaction tx, ResourceIterator<Node> candidates, ContextResource resource) {
+    Node found = null;
+    try (ResourceIterator<Node> nodes = candidates) {
+      while (nodes.hasNext()) {
+        Node node = nodes.next();
+        if (matches(node, resource)) {
+          if (found != null) {
+            throw multipleMatches(resource);
+          }
+          found = node;
+        }
+      }
+    }
+    return found;
+  }
+
+  private void openSessions(Transaction tx) {
+    sessionTx = tx;
+    ktx = ((InternalTransaction) tx).kernelTransaction();
+    TokenRead tokens = ktx.tokenRead();
+    int label = tokens.nodeLabel(RESOURCE.name());
+    uriKey = tokens.propertyKey("uri");
+    graphUriKey = tokens.propertyKey("graphUri");
+    uriIndex = null;
+    uriAndGraphUriIndex = null;
+    if (label == TokenRead.NO_TOKEN || uriKey == TokenRead.NO_TOKEN) {
+      return;
+    }
+    uriIndex = readSession(SchemaDescriptor.forLabel(label, uriKey));
+    if (graphUriKey != TokenRead.NO_TOKEN) {
+      uriAndGraphUriIndex = readSession(SchemaDescriptor.forLabel(label, uriKey, graphUriKey));
+    }
+  }
+
+  /**
+   * @return a session on the online index for the schema, {@code null} if there's none
+   */
+  private IndexReadSession readSession(SchemaDescriptor schema) {
+    Iterator<IndexDescriptor> indexes = ktx.schemaRead().index(schema);
+    while (indexes.hasNext()) {
+      IndexDescriptor index = indexes.next();
+      try {
+        if (ktx.schemaRead().indexGetState(index) == InternalIndexState.ONLINE) {
+          return ktx.dataRead().indexReadSession(index);
+        }
+      } catch (KernelException e) {
+        // dropped in the meantime
+      }
+    }
+    return null;
+  }
+
+  private static IllegalStateException multipleMatches(ContextResource resource) {
+    return new IllegalStateException(
+        "There are multiple matching nodes for the given properties " + describe(resource));
+  }
+
+  private static String describe(ContextResource resource) {
+    return "{uri: " + resource.getUri() + (resource.getGraphUri() == null ? "}"
+        : ", graphUri: " + resource.getGraphUri() + "}");
+  }
+}
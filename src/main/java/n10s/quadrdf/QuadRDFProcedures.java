@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.Map;
 import n10s.CommonProcedures;
 import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.graphconfig.RDFParserConfig;
 import n10s.rdf.RDFProcedures.DeleteResults;
 import n10s.rdf.RDFProcedures.ImportResults;
@@ -25,7 +26,7 @@ public class QuadRDFProcedures extends CommonProcedures {
     ImportResults importResults = new ImportResults();
     try {
       checkIndexExist();
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       if (rdfFormat != RDFFormat.TRIG && rdfFormat != RDFFormat.NQUADS) {
         throw new RDFImportBadParams(rdfFormat.getName() + " is not a Quad serialisation format");
@@ -45,13 +46,21 @@ public class QuadRDFProcedures extends CommonProcedures {
         parseRDFPayloadOrFromUrl(rdfFormat, url, rdfFragment, props, statementLoader);
         importResults.setTriplesLoaded(statementLoader.totalTriplesMapped);
         importResults.setTriplesParsed(statementLoader.totalTriplesParsed);
+        importResults.setStats(statementLoader.getImportStats());
         importResults.setNamespaces(statementLoader.getNamespaces());
         importResults.setConfigSummary(props);
 
       } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+        try {
+          //batches already handed over to the graph writers (if any) are completed before reporting
+          statementLoader.awaitPendingWrites();
+        } catch (RDFHandlerException writeFailure) {
+          log.error("Problems when writing quads", writeFailure);
+        }
         importResults.setTerminationKO(e.getMessage());
         importResults.setTriplesLoaded(statementLoader.totalTriplesMapped);
         importResults.setTriplesParsed(statementLoader.totalTriplesParsed);
+        importResults.setStats(statementLoader.getImportStats());
         importResults.setConfigSummary(props);
       }
     }
@@ -70,7 +79,7 @@ public class QuadRDFProcedures extends CommonProcedures {
     DeleteResults deleteResults = new DeleteResults();
     try {
       checkIndexExist();
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       if (rdfFormat != RDFFormat.TRIG && rdfFormat != RDFFormat.NQUADS) {
         throw new RDFImportBadParams(rdfFormat.getName() + " is not a Quad serialisation format");
@@ -2,18 +2,25 @@ package n10s.quadrdf;
 
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
-import n10s.RDFToLPGStatementProcessor;
 import n10s.graphconfig.RDFParserConfig;
+import n10s.rdf.load.PipelinedBatchWriter;
+import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.neo4j.graphdb.Direction;
@@ -22,12 +29,17 @@ import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
-import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 
 /**
  * Created on 06/06/2019.
+ * <p>
+ * With the 'partitionByGraph' param, the quads of each partial commit are split by named graph
+ * among a number of workers ('parallelism'), each committing its share in its own transaction. A
+ * graph always goes to the same worker, so its batches are written in order. Nodes are keyed by
+ * (uri, graphUri) and relationships never cross graphs, so the workers never write the same nodes.
+ * Per graph counts are reported in the stats of the import.
  *
  * @author Emre Arkan
  */
@@ -35,226 +47,288 @@ import org.neo4j.logging.Log;
 public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor {
 
   private static final Label RESOURCE = Label.label("Resource");
-  private Cache<ContextResource, Node> nodeCache;
+  // key for the default graph in the per graph counts
+  private static final String DEFAULT_GRAPH = "";
+  private final ContextResourceLookup nodeLookup;
+
+  // only when partitioning by graph
+  private ExecutorService[] graphWriters;
+  private ContextResourceLookup[] writerLookups;
+  private final Deque<List<Future<?>>> pendingCommits = new ArrayDeque<>();
+  private final Map<String, GraphStats> graphStats = new ConcurrentHashMap<>();
+  private Map<String, Long> pendingTriplesByGraph = new HashMap<>();
+  private String currentGraph = DEFAULT_GRAPH;
+  private long countedForCurrentGraph = 0;
 
   public RDFQuadDirectStatementLoader(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
       Log l) {
 
     super(db, tx, conf, l);
-    nodeCache = CacheBuilder.newBuilder()
-        .maximumSize(conf.getNodeCacheSize())
-        .build();
+    nodeLookup = new ContextResourceLookup(conf.getNodeIdCacheMemory());
+    if (conf.isPartitionByGraph()) {
+      int workers = conf.getParallelism() > 0 ? conf.getParallelism()
+          : Runtime.getRuntime().availableProcessors();
+      graphWriters = new ExecutorService[workers];
+      writerLookups = new ContextResourceLookup[workers];
+      for (int i = 0; i < workers; i++) {
+        graphWriters[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("n10s-graph-writer-" + i).setDaemon(true).build());
+        // graphs are not shared by the workers, and neither are the ids of their nodes
+        writerLookups[i] = new ContextResourceLookup(conf.getNodeIdCacheMemory() / workers);
+      }
+    }
+  }
+
+  /**
+   * Quads of a partial commit, or of the share of the named graphs of a worker.
+   */
+  private static class QuadBatch {
+
+    final Map<ContextResource, Set<String>> resourceLabels;
+    final Map<ContextResource, Map<String, Object>> resourceProps;
+    final List<Statement> statements = new ArrayList<>();
+    // resolved in the parser thread, as that can add namespace prefixes
+    final List<RelationshipType> relTypes = new ArrayList<>();
+    final Map<String, Long> triplesByGraph = new HashMap<>();
+
+    QuadBatch(Map<ContextResource, Set<String>> resourceLabels,
+        Map<ContextResource, Map<String, Object>> resourceProps) {
+      this.resourceLabels = resourceLabels;
+      this.resourceProps = resourceProps;
+    }
+
+    boolean isEmpty() {
+      return resourceLabels.isEmpty() && statements.isEmpty();
+    }
+  }
+
+  private static class GraphStats {
+
+    final String graphUri;
+    long triplesLoaded = 0;
+    long triplesFailed = 0;
+    long commits = 0;
+
+    GraphStats(String graphKey) {
+      this.graphUri = graphKey.equals(DEFAULT_GRAPH) ? null : graphKey;
+    }
+
+    Map<String, Object> toMap() {
+      Map<String, Object> map = new HashMap<>();
+      map.put("graphUri", graphUri);
+      map.put("triplesLoaded", triplesLoaded);
+      map.put("triplesFailed", triplesFailed);
+      map.put("commits", commits);
+      return map;
+    }
+  }
+
+  @Override
+  public void handleStatement(Statement st) {
+    if (graphWriters == null) {
+      super.handleStatement(st);
+      return;
+    }
+    currentGraph = graphKey(st.getContext());
+    countedForCurrentGraph = mappedTripleCounter;
+    super.handleStatement(st);
+    countTriplesForCurrentGraph();
+  }
+
+  private static String graphKey(Resource context) {
+    return context != null ? context.stringValue() : DEFAULT_GRAPH;
+  }
+
+  private static String graphKey(String graphUri) {
+    return graphUri != null ? graphUri : DEFAULT_GRAPH;
+  }
+
+  /**
+   * Adds the triples mapped from the statement being handled to the counts of its graph.
+   */
+  private void countTriplesForCurrentGraph() {
+    if (mappedTripleCounter > countedForCurrentGraph) {
+      pendingTriplesByGraph.merge(currentGraph, mappedTripleCounter - countedForCurrentGraph,
+          Long::sum);
+    }
+    countedForCurrentGraph = mappedTripleCounter;
   }
 
   @Override
   public void endRDF() throws RDFHandlerException {
 
     periodicOperation();
+    awaitPendingWrites();
     log.debug("Import complete: " + totalTriplesMapped + "  triples ingested out of "
         + totalTriplesParsed + " parsed");
   }
 
 
-  public Integer runPartialTx(Transaction txInThread) {
-    int count = 0;
-
-    for (Map.Entry<ContextResource, Set<String>> entry : resourceLabels.entrySet()) {
-      try {
-        final Node node = nodeCache.get(entry.getKey(), new Callable<Node>() {
-          @Override
-          public Node call() {
-            Node node = null;
-            Map<String, Object> params = new HashMap<>();
-            String cypher = buildCypher(entry.getKey().getUri(),
-                entry.getKey().getGraphUri(),
-                params);
-            Result result = txInThread.execute(cypher, params);
-            if (result.hasNext()) {
-              node = (Node) result.next().get("n");
-              if (result.hasNext()) {
-                String props =
-                    "{uri: " + entry.getKey().getUri() +
-                        (entry.getKey().getGraphUri() == null ? "}" :
-                            ", graphUri: " + entry.getKey().getGraphUri() + "}");
-                throw new IllegalStateException(
-                    "There are multiple matching nodes for the given properties " + props);
-              }
-            }
-            if (node == null) {
-              node = txInThread.createNode(RESOURCE);
-              node.setProperty("uri", entry.getKey().getUri());
-              if (entry.getKey().getGraphUri() != null) {
-                node.setProperty("graphUri", entry.getKey().getGraphUri());
-              }
-            }
-            return node;
-          }
-        });
-
-        entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
-        resourceProps.get(entry.getKey()).forEach((k, v) -> {
-          if (v instanceof List) {
-            Object currentValue = node.getProperty(k, null);
-            if (currentValue == null) {
-              node.setProperty(k, toPropertyValue(v));
-            } else {
-              if (currentValue.getClass().isArray()) {
-                Object[] properties = (Object[]) currentValue;
-                for (int i = 0; i < properties.length; i++) {
-                  ((List) v).add(properties[i]);
-                  //here an exception can be raised if types are conflicting
-                }
-              } else {
-                ((List) v).add(node.getProperty(k));
-              }
-              //we make it a set to remove duplicates. Semantics of multivalued props in RDF.
-              node.setProperty(k, toPropertyValue(((List) v).stream().collect(Collectors.toSet())));
-            }
-          } else {
-            node.setProperty(k, v);
-          }
-        });
-      } catch (ExecutionException e) {
-        e.printStackTrace();
+  /**
+   * Waits for the partial commits handed over to the graph writers (if any) and stops them.
+   */
+  public void awaitPendingWrites() {
+    if (graphWriters == null) {
+      return;
+    }
+    try {
+      while (!pendingCommits.isEmpty()) {
+        awaitCommits(pendingCommits.poll());
+      }
+    } finally {
+      for (ExecutorService writer : graphWriters) {
+        writer.shutdownNow();
       }
     }
+  }
 
+  public Integer runPartialTx(Transaction txInThread) {
+    QuadBatch batch = new QuadBatch(resourceLabels, resourceProps);
     for (Statement st : statements) {
-      try {
-        ContextResource from = new ContextResource(st.getSubject().stringValue(),
-            st.getContext() != null ? st.getContext().stringValue() : null);
-        final Node fromNode = nodeCache.get(from, new Callable<Node>() {
-          @Override
-          public Node call() {  //throws AnyException
-            Node node;
-            Map<String, Object> params = new HashMap<>();
-            String cypher = buildCypher(st.getSubject().stringValue(),
-                st.getContext() != null ? st.getContext().stringValue() : null,
-                params);
-            Result result = txInThread.execute(cypher, params);
-            if (result.hasNext()) {
-              node = (Node) result.next().get("n");
-              if (result.hasNext()) {
-                String props =
-                    "{uri: " + st.getSubject().stringValue() +
-                        (st.getContext() == null ? "}" :
-                            ", graphUri: " + st.getContext().stringValue() + "}");
-                throw new IllegalStateException(
-                    "There are multiple matching nodes for the given properties " + props);
-              }
-            } else {
-              throw new NoSuchElementException(
-                  "There exists no node with \"uri\": " + st.getSubject().stringValue()
-                      + " and \"graphUri\": " + st.getContext().stringValue());
-            }
-            return node;
-          }
-        });
-        ContextResource to = new ContextResource(st.getObject().stringValue(),
-            st.getContext() != null ? st.getContext().stringValue() : null);
-        final Node toNode = nodeCache.get(to, new Callable<Node>() {
-          @Override
-          public Node call() {  //throws AnyException
-            Node node;
-            Map<String, Object> params = new HashMap<>();
-            String cypher = buildCypher(st.getObject().stringValue(),
-                st.getContext() != null ? st.getContext().stringValue() : null,
-                params);
-            Result result = txInThread.execute(cypher, params);
-            if (result.hasNext()) {
-              node = (Node) result.next().get("n");
-              if (result.hasNext()) {
-                String props =
-                    "{uri: " + st.getObject().stringValue() +
-                        (st.getContext() == null ? "}" :
-                            ", graphUri: " + st.getContext().stringValue() + "}");
-                throw new IllegalStateException(
-                    "There are multiple matching nodes for the given properties " + props);
+      batch.statements.add(st);
+      batch.relTypes.add(relationshipTypeFor(st.getPredicate()));
+    }
+    write(txInThread, batch, nodeLookup);
+
+    statements.clear();
+    resourceLabels.clear();
+    resourceProps.clear();
+    relProps.clear();
+    Integer result = 0;
+    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
+      result = namespaces.partialRefresh(txInThread);
+    }
+
+    return result;
+  }
+
+  private void write(Transaction txInThread, QuadBatch batch, ContextResourceLookup lookup) {
+    for (Map.Entry<ContextResource, Set<String>> entry : batch.resourceLabels.entrySet()) {
+      Node found = lookup.find(txInThread, entry.getKey());
+      if (found == null) {
+        found = txInThread.createNode(RESOURCE);
+        found.setProperty("uri", entry.getKey().getUri());
+        if (entry.getKey().getGraphUri() != null) {
+          found.setProperty("graphUri", entry.getKey().getGraphUri());
+        }
+        lookup.put(entry.getKey(), found);
+      }
+      final Node node = found;
+
+      entry.getValue().forEach(l -> node.addLabel(labelFor(l)));
+      batch.resourceProps.get(entry.getKey()).forEach((k, v) -> {
+        if (v instanceof List) {
+          Object currentValue = node.getProperty(k, null);
+          if (currentValue == null) {
+            node.setProperty(k, toPropertyValue(v));
+          } else {
+            if (currentValue.getClass().isArray()) {
+              Object[] properties = (Object[]) currentValue;
+              for (int i = 0; i < properties.length; i++) {
+                ((List) v).add(properties[i]);
+                //here an exception can be raised if types are conflicting
               }
             } else {
-              throw new NoSuchElementException(
-                  "There exists no node with \"uri\": " + st.getSubject().stringValue()
-                      + " and \"graphUri\": " + st.getContext().stringValue());
-            }
-            return node;
-          }
-        });
-
-        // check if the rel is already present. If so, don't recreate.
-        // explore the node with the lowest degree
-        boolean found = false;
-        if (fromNode.getDegree(RelationshipType
-                .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)),
-            Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType
-                    .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)),
-                Direction.INCOMING)) {
-          for (Relationship rel : fromNode
-              .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(
-                      handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)))) {
-            if (rel.getEndNode().equals(toNode)) {
-              found = true;
-              break;
+              ((List) v).add(node.getProperty(k));
             }
+            //we make it a set to remove duplicates. Semantics of multivalued props in RDF.
+            node.setProperty(k, toPropertyValue(((List) v).stream().collect(Collectors.toSet())));
           }
         } else {
-          for (Relationship rel : toNode
-              .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(
-                      handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)))) {
-            if (rel.getStartNode().equals(fromNode)) {
-              found = true;
-              break;
-            }
-          }
+          node.setProperty(k, v);
         }
+      });
+    }
 
-        if (!found) {
-          fromNode.createRelationshipTo(
-              toNode,
-              RelationshipType
-                  .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)));
+    for (int i = 0; i < batch.statements.size(); i++) {
+      Statement st = batch.statements.get(i);
+      RelationshipType relType = batch.relTypes.get(i);
+      String graphUri = st.getContext() != null ? st.getContext().stringValue() : null;
+      final Node fromNode = existingNode(txInThread, lookup,
+          new ContextResource(st.getSubject().stringValue(), graphUri));
+      final Node toNode = existingNode(txInThread, lookup,
+          new ContextResource(st.getObject().stringValue(), graphUri));
+
+      // check if the rel is already present. If so, don't recreate.
+      // explore the node with the lowest degree
+      boolean found = false;
+      if (fromNode.getDegree(relType, Direction.OUTGOING) <
+          toNode.getDegree(relType, Direction.INCOMING)) {
+        for (Relationship rel : fromNode.getRelationships(Direction.OUTGOING, relType)) {
+          if (rel.getEndNode().equals(toNode)) {
+            found = true;
+            break;
+          }
         }
-      } catch (ExecutionException e) {
-        e.printStackTrace();
+      } else {
+        for (Relationship rel : toNode.getRelationships(Direction.INCOMING, relType)) {
+          if (rel.getStartNode().equals(fromNode)) {
+            found = true;
+            break;
+          }
+        }
+      }
+
+      if (!found) {
+        fromNode.createRelationshipTo(toNode, relType);
       }
     }
+  }
 
-    statements.clear();
-    resourceLabels.clear();
-    resourceProps.clear();
-    relProps.clear();
-    nodeCache.invalidateAll();
-    Integer result = 0;
-    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
-      result = namespaces.partialRefresh(txInThread);
+  /**
+   * @return the node of a resource written in the current or in a previous partial commit
+   */
+  private Node existingNode(Transaction txInThread, ContextResourceLookup lookup,
+      ContextResource resource) {
+    Node node = lookup.find(txInThread, resource);
+    if (node == null) {
+      throw new NoSuchElementException("There exists no node with \"uri\": " + resource.getUri()
+          + " and \"graphUri\": " + resource.getGraphUri());
     }
+    return node;
+  }
 
-    return result;
+  @Override
+  public Map<String, Object> getImportStats() {
+    Map<String, Object> stats = super.getImportStats();
+    long hits = nodeLookup.getHitCount();
+    long misses = nodeLookup.getMissCount();
+    if (writerLookups != null) {
+      for (ContextResourceLookup lookup : writerLookups) {
+        hits += lookup.getHitCount();
+        misses += lookup.getMissCount();
+      }
+      stats.put("graphs", graphStats.entrySet().stream().sorted(Map.Entry.comparingByKey())
+          .map(graph -> graph.getValue().toMap()).collect(Collectors.toList()));
+    }
+    stats.put("nodeIdCacheHits", hits);
+    stats.put("nodeIdCacheMisses", misses);
+    return stats;
   }
 
 
   @Override
   protected void periodicOperation() {
 
-    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
-      try (Transaction tempTransaction = graphdb.beginTx()) {
-        namespaces.partialRefresh(tempTransaction);
-        tempTransaction.commit();
-        log.debug("namespace prefixes synced: " + namespaces.toString());
-      }catch (Exception e) {
-        e.printStackTrace();
-      }
+    if (graphWriters != null) {
+      commitByGraph();
+      return;
     }
 
+    saveNamespacePrefixes();
+
+    long triples = mappedTripleCounter;
+    long pendingState = resourceLabels.size() + statements.size();
+    long startNanos = System.nanoTime();
     try (Transaction tempTransaction = graphdb.beginTx()) {
       this.runPartialTx(tempTransaction);
       tempTransaction.commit();
       log.debug("partial commit: " + mappedTripleCounter + " triples ingested. Total so far: "
           + totalTriplesMapped);
+      adaptCommitSize(triples, pendingState, startNanos, true);
     }catch (Exception e) {
       e.printStackTrace();
+      adaptCommitSize(triples, pendingState, startNanos, false);
     }
 
     totalTriplesMapped += mappedTripleCounter;
@@ -262,4 +336,110 @@ public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor
 
   }
 
+  /**
+   * Hands over the share of the pending quads of each worker. The parser waits when there are
+   * more than 'queueDepth' partial commits still being written.
+   */
+  private void commitByGraph() {
+    countTriplesForCurrentGraph();
+    QuadBatch[] shares = new QuadBatch[graphWriters.length];
+    for (int i = 0; i < shares.length; i++) {
+      shares[i] = new QuadBatch(new HashMap<>(), new HashMap<>());
+    }
+    for (Map.Entry<ContextResource, Set<String>> entry : resourceLabels.entrySet()) {
+      QuadBatch share = shares[writerFor(graphKey(entry.getKey().getGraphUri()))];
+      share.resourceLabels.put(entry.getKey(), entry.getValue());
+      share.resourceProps.put(entry.getKey(), resourceProps.get(entry.getKey()));
+    }
+    for (Statement st : statements) {
+      QuadBatch share = shares[writerFor(graphKey(st.getContext()))];
+      share.statements.add(st);
+      share.relTypes.add(relationshipTypeFor(st.getPredicate()));
+    }
+    for (Map.Entry<String, Long> graphTriples : pendingTriplesByGraph.entrySet()) {
+      shares[writerFor(graphTriples.getKey())].triplesByGraph
+          .put(graphTriples.getKey(), graphTriples.getValue());
+      graphStats.computeIfAbsent(graphTriples.getKey(), GraphStats::new);
+    }
+    pendingTriplesByGraph = new HashMap<>();
+    // the maps now belong to the shares
+    resourceLabels = new HashMap<>();
+    resourceProps = new HashMap<>();
+    statements = new HashSet<>();
+    relProps.clear();
+    // the relationship types of the shares can add prefixes, save them before the shares are
+    // written
+    saveNamespacePrefixes();
+
+    List<Future<?>> commits = new ArrayList<>();
+    for (int i = 0; i < shares.length; i++) {
+      if (!shares[i].isEmpty()) {
+        QuadBatch share = shares[i];
+        ContextResourceLookup lookup = writerLookups[i];
+        commits.add(graphWriters[i].submit(() -> commitShare(share, lookup)));
+      }
+    }
+    pendingCommits.add(commits);
+    totalTriplesMapped += mappedTripleCounter;
+    mappedTripleCounter = 0;
+    countedForCurrentGraph = 0;
+    while (pendingCommits.size() > parserConfig.getQueueDepth()) {
+      awaitCommits(pendingCommits.poll());
+    }
+  }
+
+  private void saveNamespacePrefixes() {
+    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
+      try (Transaction tempTransaction = graphdb.beginTx()) {
+        namespaces.partialRefresh(tempTransaction);
+        tempTransaction.commit();
+        log.debug("namespace prefixes synced: " + namespaces.toString());
+      }catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private int writerFor(String graphKey) {
+    return Math.floorMod(graphKey.hashCode(), graphWriters.length);
+  }
+
+  private void commitShare(QuadBatch share, ContextResourceLookup lookup) {
+    boolean committed;
+    try {
+      PipelinedBatchWriter.commitWithRetries(graphdb, log, false, tx -> {
+        write(tx, share, lookup);
+        return 0;
+      });
+      committed = true;
+    } catch (Exception e) {
+      log.error("Problems when committing the quads of " + share.triplesByGraph.size()
+          + " graphs. Partial transaction rolled back.", e);
+      committed = false;
+    }
+    // a graph is only ever written by one worker
+    for (Map.Entry<String, Long> graphTriples : share.triplesByGraph.entrySet()) {
+      GraphStats stats = graphStats.get(graphTriples.getKey());
+      if (committed) {
+        stats.triplesLoaded += graphTriples.getValue();
+        stats.commits++;
+      } else {
+        stats.triplesFailed += graphTriples.getValue();
+      }
+    }
+  }
+
+  private void awaitCommits(List<Future<?>> commits) {
+    try {
+      for (Future<?> commit : commits) {
+        commit.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RDFHandlerException("Interrupted while waiting for the graph writers", e);
+    } catch (ExecutionException e) {
+      throw new RDFHandlerException("Problems when writing quads", e.getCause());
+    }
+  }
+
 }
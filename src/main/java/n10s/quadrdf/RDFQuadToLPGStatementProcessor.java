@@ -3,7 +3,6 @@ package n10s.quadrdf;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_RDFTYPES_AS_LABELS;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_RDFTYPES_AS_LABELS_AND_NODES;
 
-import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -96,22 +95,6 @@ abstract class RDFQuadToLPGStatementProcessor extends RDFToLPGStatementProcessor
 
   protected abstract void periodicOperation();
 
-  String buildCypher(String uri, String graphUri, Map<String, Object> params) {
-    Preconditions.checkNotNull(uri);
-    StringBuilder cypher = new StringBuilder();
-    params.put("uri", uri);
-    cypher.append("MATCH (n:Resource) ");
-    cypher.append("WHERE n.uri = $uri ");
-    if (graphUri != null) {
-      cypher.append("AND n.graphUri = $graphUri ");
-      params.put("graphUri", graphUri);
-    } else {
-      cypher.append("AND NOT EXISTS(n.graphUri) ");
-    }
-    cypher.append("RETURN n");
-    return cypher.toString();
-  }
-
   private boolean setProp(ContextResource contextResource, IRI propertyIRI,
       Literal propValueRaw) {
     Map<String, Object> props;
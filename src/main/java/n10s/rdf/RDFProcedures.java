@@ -1,11 +1,13 @@
 package n10s.rdf;
 
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
 import static n10s.graphconfig.Params.DATATYPE_REGULAR_PATTERN;
 import static n10s.graphconfig.Params.DATATYPE_SHORTENED_PATTERN;
 import static n10s.graphconfig.Params.LANGUAGE_TAGGED_VALUE_PATTERN;
 import static n10s.graphconfig.Params.PREFIX_SEPARATOR;
 import static n10s.graphconfig.Params.SHORTENED_URI_PATTERN;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -13,22 +15,32 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import n10s.CommonProcedures;
 import n10s.ConfiguredStatementHandler.TripleLimitReached;
 import n10s.RDFImportException;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfig.InvalidParamException;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.graphconfig.RDFParserConfig;
 import n10s.rdf.delete.DirectStatementDeleter;
 import n10s.rdf.load.DirectStatementLoader;
+import n10s.rdf.load.ImportCheckpoint;
+import n10s.rdf.load.NodeIdCache;
 import n10s.rdf.preview.StatementPreviewer;
 import n10s.rdf.stream.StatementStreamer;
 import n10s.result.GraphResult;
 import n10s.result.StreamedStatement;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
 import n10s.utils.NsPrefixMap;
+import n10s.utils.NsPrefixMapCache;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.util.URIUtil;
@@ -39,6 +51,7 @@ import org.eclipse.rdf4j.rio.RDFParseException;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.QueryExecutionException;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.UserFunction;
@@ -60,9 +73,11 @@ public class RDFProcedures extends CommonProcedures {
     ImportResults importResults = new ImportResults();
     try {
       checkConstraintExist();
-      conf = new RDFParserConfig(props, (overrideGC != null ? overrideGC : new GraphConfig(tx)));
+      conf = new RDFParserConfig(props, (overrideGC != null ? overrideGC : GraphConfigCache.get(tx)));
       rdfFormat = getFormat(format);
-      statementLoader = new DirectStatementLoader(db, tx, conf, log);
+      DirectStatementLoader loader = new DirectStatementLoader(db, tx, conf, log);
+      configureCheckpoints(loader, conf, rdfFormat, url);
+      statementLoader = loader;
     } catch (RDFImportPreRequisitesNotMet e) {
       importResults.setTerminationKO(e.getMessage());
     } catch (GraphConfig.GraphConfigNotFound e) {
@@ -80,17 +95,151 @@ public class RDFProcedures extends CommonProcedures {
         importResults.setNamespaces(statementLoader.getNamespaces());
         importResults.setConfigSummary(props);
         importResults.setExtraInfo(statementLoader.getWarnings());
+        importResults.setStats(statementLoader.getImportStats());
 
       } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+        //batches already handed over to writer threads (if any) are completed before reporting
+        statementLoader.awaitPendingWrites();
         importResults.setTerminationKO(e.getMessage());
         importResults.setTriplesLoaded(statementLoader.totalTriplesMapped);
         importResults.setTriplesParsed(statementLoader.totalTriplesParsed);
         importResults.setConfigSummary(props);
+        importResults.setStats(statementLoader.getImportStats());
       }
     }
     return importResults;
   }
 
+  /**
+   * Imports the files in the list (urls or local globs, see {@link #expandUrls}) on a bounded pool
+   * of workers. The graph config, the constraint check and the namespace prefix map are taken from
+   * the DB once and, like the node id cache, shared by the loaders of all files. The results of
+   * each file are streamed in list order as soon as the file is imported.
+   */
+  protected Stream<FileImportResults> doImportAll(List<String> urls, String format,
+      Map<String, Object> props) {
+
+    GraphConfig graphConfig;
+    RDFParserConfig conf;
+    RDFFormat rdfFormat;
+    NsPrefixMap sharedNamespaces;
+    List<String> fileUrls;
+    try {
+      checkConstraintExist();
+      graphConfig = GraphConfigCache.get(tx);
+      conf = new RDFParserConfig(props, graphConfig);
+      rdfFormat = getFormat(format);
+      sharedNamespaces = new NsPrefixMap(tx, false);
+      fileUrls = expandUrls(urls);
+    } catch (GraphConfig.GraphConfigNotFound e) {
+      return Stream.of(new FileImportResults(null)
+          .setTerminationKO("A Graph Config is required for RDF importing procedures to run"));
+    } catch (RDFImportPreRequisitesNotMet | RDFImportBadParams | InvalidNamespacePrefixDefinitionInDB
+        | IOException e) {
+      return Stream.of(new FileImportResults(null).setTerminationKO(e.getMessage()));
+    }
+    if (fileUrls.isEmpty()) {
+      return Stream.empty();
+    }
+
+    NodeIdCache sharedNodeIdCache = conf.getNodeIdCacheMemory() > 0 ? new NodeIdCache(
+        conf.getNodeIdCacheMemory()) : null;
+    if (graphConfig.getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN && conf.getWorkers() > 1) {
+      // created upfront: concurrent loaders creating it on their first sync would duplicate it
+      try (Transaction tempTransaction = db.beginTx()) {
+        tempTransaction.execute("MERGE (:_NsPrefDef)");
+        tempTransaction.commit();
+      }
+    }
+    ExecutorService workers = Executors.newFixedThreadPool(
+        Math.min(conf.getWorkers(), fileUrls.size()),
+        new ThreadFactoryBuilder().setNameFormat("n10s-file-import-%d").setDaemon(true).build());
+    List<Future<FileImportResults>> pending = new ArrayList<>();
+    for (String fileUrl : fileUrls) {
+      pending.add(workers.submit(() -> importFile(fileUrl, rdfFormat, props, graphConfig,
+          sharedNamespaces, sharedNodeIdCache)));
+    }
+    workers.shutdown();
+
+    return IntStream.range(0, pending.size()).mapToObj(i -> {
+      try {
+        return pending.get(i).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return new FileImportResults(fileUrls.get(i)).setTerminationKO("Interrupted");
+      } catch (ExecutionException e) {
+        return new FileImportResults(fileUrls.get(i))
+            .setTerminationKO(e.getCause().getMessage());
+      }
+    }).onClose(() -> awaitImports(pending, workers));
+  }
+
+  /**
+   * Run when the results are closed, also when the caller stops reading them early: files not
+   * started yet are skipped and the ones being imported are completed before returning, so that no
+   * worker keeps writing once the procedure is done.
+   */
+  private void awaitImports(List<Future<FileImportResults>> pending, ExecutorService workers) {
+    for (Future<FileImportResults> file : pending) {
+      file.cancel(false);
+    }
+    try {
+      workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private FileImportResults importFile(String url, RDFFormat rdfFormat, Map<String, Object> props,
+      GraphConfig graphConfig, NsPrefixMap sharedNamespaces, NodeIdCache sharedNodeIdCache) {
+    FileImportResults fileResults = new FileImportResults(url);
+    RDFParserConfig conf = new RDFParserConfig(props, graphConfig);
+    DirectStatementLoader statementLoader = new DirectStatementLoader(db, tx, conf, log,
+        sharedNamespaces, sharedNodeIdCache);
+    try {
+      configureCheckpoints(statementLoader, conf, rdfFormat, url);
+    } catch (RDFImportBadParams e) {
+      return fileResults.setTerminationKO(e.getMessage());
+    }
+    try {
+      parseRDFPayloadOrFromUrl(rdfFormat, url, null, props, statementLoader);
+      fileResults.setExtraInfo(statementLoader.getWarnings());
+    } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+      statementLoader.awaitPendingWrites();
+      fileResults.setTerminationKO(e.getMessage());
+    }
+    fileResults.triplesLoaded = statementLoader.totalTriplesMapped;
+    fileResults.triplesParsed = statementLoader.totalTriplesParsed;
+    fileResults.stats = statementLoader.getImportStats();
+    return fileResults;
+  }
+
+  private void configureCheckpoints(DirectStatementLoader statementLoader, RDFParserConfig conf,
+      RDFFormat rdfFormat, String url) throws RDFImportBadParams {
+    if (!conf.isCheckpoint() || url == null) {
+      return;
+    }
+    if (isArchiveEntryGlob(url)) {
+      // positions are tracked within an entry, there's no single offset to resume from
+      throw new RDFImportBadParams("Checkpoints can't be saved when importing the archive "
+          + "entries matching a glob. Import the entries one by one ('archive!entry') instead");
+    }
+    if ((conf.isResumeFromCheckpoint() || conf.getResumeOffset() > 0) && !isLineBased(
+        rdfFormat)) {
+      throw new RDFImportBadParams(
+          "Imports can only be resumed for line based formats (N-Triples, N-Quads)");
+    }
+    ImportCheckpoint resumeFrom = null;
+    if (conf.isResumeFromCheckpoint()) {
+      resumeFrom = ImportCheckpoint.load(db, url);
+    } else if (conf.getResumeOffset() > 0) {
+      ImportCheckpoint saved = ImportCheckpoint.load(db, url);
+      resumeFrom = new ImportCheckpoint(url, conf.getResumeOffset(), 0, 0, 0, null,
+          saved != null ? saved.getBlankNodePrefix() : null);
+    }
+    statementLoader.enableCheckpoints(url, resumeFrom);
+  }
+
   protected GraphResult doPreview(@Name("url") String url, @Name("rdf") String rdfFragment,
       @Name("format") String format,
       @Name(value = "params", defaultValue = "{}") Map<String, Object> props)
@@ -102,7 +251,7 @@ public class RDFProcedures extends CommonProcedures {
     List<Relationship> virtualRels = new ArrayList<>();
 
     try {
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       statementViewer = new StatementPreviewer(db, tx, conf, virtualNodes, virtualRels, log);
     } catch (RDFImportBadParams e) {
@@ -163,7 +312,7 @@ public class RDFProcedures extends CommonProcedures {
 
     try {
       checkConstraintExist();
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       statementDeleter = new DirectStatementDeleter(db, tx, conf, log);
     } catch (RDFImportPreRequisitesNotMet e) {
@@ -323,7 +472,7 @@ public class RDFProcedures extends CommonProcedures {
       throw new InvalidShortenedName(
           "Wrong Syntax: " + str + " is not a valid n10s shortened schema name.");
     }
-    NsPrefixMap prefixDefs = new NsPrefixMap(tx, false);
+    NsPrefixMap prefixDefs = NsPrefixMapCache.get(tx);
     if (!prefixDefs.hasPrefix(m.group(1))) {
       throw new InvalidShortenedName("Prefix Undefined: " + str + " is using an undefined prefix.");
     }
@@ -337,7 +486,7 @@ public class RDFProcedures extends CommonProcedures {
       throws InvalidNamespacePrefixDefinitionInDB, InvalidShortenedName {
 
     IRI iri = SimpleValueFactory.getInstance().createIRI(str);
-    NsPrefixMap prefixDefs = new NsPrefixMap(tx, false);
+    NsPrefixMap prefixDefs = NsPrefixMapCache.get(tx);
     if (!prefixDefs.hasNs(iri.getNamespace())) {
       throw new InvalidShortenedName(
           "Prefix Undefined: No prefix defined for this namespace <" + str + "> .");
@@ -354,6 +503,7 @@ public class RDFProcedures extends CommonProcedures {
     public Map<String, String> namespaces;
     public String extraInfo = "";
     public Map<String, Object> callParams;
+    public Map<String, Object> stats = new HashMap<>();
 
     public void setTriplesLoaded(long count) {
       this.triplesLoaded = count;
@@ -380,6 +530,34 @@ public class RDFProcedures extends CommonProcedures {
       this.extraInfo = message;
     }
 
+    public void setStats(Map<String, Object> stats) {
+      this.stats = stats;
+    }
+
+  }
+
+  public static class FileImportResults {
+
+    public String url;
+    public String terminationStatus = "OK";
+    public long triplesLoaded = 0;
+    public long triplesParsed = 0;
+    public String extraInfo = "";
+    public Map<String, Object> stats = new HashMap<>();
+
+    public FileImportResults(String url) {
+      this.url = url;
+    }
+
+    public FileImportResults setTerminationKO(String message) {
+      this.terminationStatus = "KO";
+      this.extraInfo = message;
+      return this;
+    }
+
+    public void setExtraInfo(String message) {
+      this.extraInfo = message;
+    }
 
   }
 
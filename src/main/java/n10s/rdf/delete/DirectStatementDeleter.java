@@ -1,18 +1,25 @@
 package n10s.rdf.delete;
 
+import static n10s.graphconfig.Params.DIGEST_PROPERTY;
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
+
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
 import com.google.common.collect.Iterators;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import n10s.RDFToLPGStatementProcessor;
 import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.collections.api.set.primitive.MutableDoubleSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.set.mutable.UnifiedSet;
+import org.eclipse.collections.impl.set.mutable.primitive.DoubleHashSet;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
 import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Statement;
@@ -22,7 +29,6 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
-import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 
@@ -81,8 +87,8 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
         }
         node = tempNode;
         entry.getValue().forEach(l -> {
-          if (node != null && node.hasLabel(Label.label(l))) {
-            node.removeLabel(Label.label(l));
+          if (node != null && node.hasLabel(labelFor(l))) {
+            node.removeLabel(labelFor(l));
           } else {
             notDeletedStatementCount++;
           }
@@ -91,55 +97,7 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
           if (v instanceof List) {
             List valuesToDelete = (List) v;
             if (node != null && node.hasProperty(k)) {
-              ArrayList<Object> newProps = new ArrayList<>();
-              Object prop = node.getProperty(k);
-              if (prop instanceof long[]) {
-                long[] props = (long[]) prop;
-                for (long currentVal : props) {
-                  if (!valuesToDelete.contains(currentVal)) {
-                    newProps.add(currentVal);
-                  }
-                }
-              } else if (prop instanceof double[]) {
-                double[] props = (double[]) prop;
-                for (double currentVal : props) {
-                  if (!valuesToDelete.contains(currentVal)) {
-                    newProps.add(currentVal);
-                  }
-                }
-              } else if (prop instanceof boolean[]) {
-                boolean[] props = (boolean[]) prop;
-                for (boolean currentVal : props) {
-                  if (!valuesToDelete.contains(currentVal)) {
-                    newProps.add(currentVal);
-                  }
-                }
-              } else if (prop instanceof LocalDateTime[]) {
-                LocalDateTime[] props = (LocalDateTime[]) prop;
-                for (LocalDateTime currentVal : props) {
-                  if (!valuesToDelete.contains(currentVal)) {
-                    newProps.add(currentVal);
-                  }
-                }
-              } else if (prop instanceof LocalDate[]) {
-                LocalDate[] props = (LocalDate[]) prop;
-                for (LocalDate currentVal : props) {
-                  if (!valuesToDelete.contains(currentVal)) {
-                    newProps.add(currentVal);
-                  }
-                }
-              } else {
-                Object[] props = (Object[]) prop;
-                for (Object currentVal : props) {
-                  if (!valuesToDelete.contains(currentVal)) {
-                    newProps.add(currentVal);
-                  }
-                }
-              }
-              node.removeProperty(k);
-              if (!newProps.isEmpty()) {
-                node.setProperty(k, toPropertyValue(newProps));
-              }
+              removeValues(node, k, node.getProperty(k), valuesToDelete);
             } else {
               notDeletedStatementCount += valuesToDelete.size();
             }
@@ -192,13 +150,13 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
         }
         // find relationship if it exists
         if (fromNode
-            .getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
+            .getDegree(relationshipTypeFor(st.getPredicate()),
                 Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
+            toNode.getDegree(relationshipTypeFor(st.getPredicate()),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP))
+                  relationshipTypeFor(st.getPredicate())
               )) {
             if (rel.getEndNode().equals(toNode)) {
               rel.delete();
@@ -208,7 +166,7 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP))
+                  relationshipTypeFor(st.getPredicate())
               )) {
             if (rel.getStartNode().equals(fromNode)) {
               rel.delete();
@@ -261,8 +219,83 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
     this.bNodeInfo = bNodeInfo;
   }
 
+  /**
+   * Removes the values from the array stored in the property, looking them up in a hash set (of
+   * primitives for long[] and double[]) rather than scanning the list of values for every element.
+   * The property is only rewritten if a value was removed, and removed if none is left.
+   */
+  private void removeValues(Node node, String k, Object prop, List<?> valuesToDelete) {
+    int size;
+    Object remaining;
+    if (prop instanceof long[]) {
+      MutableLongSet toDelete = new LongHashSet();
+      for (Object x : valuesToDelete) {
+        if (x instanceof Long) {
+          toDelete.add((Long) x);
+        }
+      }
+      long[] props = (long[]) prop;
+      long[] kept = new long[props.length];
+      size = 0;
+      for (long currentVal : props) {
+        if (!toDelete.contains(currentVal)) {
+          kept[size++] = currentVal;
+        }
+      }
+      remaining = Arrays.copyOf(kept, size);
+    } else if (prop instanceof double[]) {
+      MutableDoubleSet toDelete = new DoubleHashSet();
+      for (Object x : valuesToDelete) {
+        if (x instanceof Double) {
+          toDelete.add((Double) x);
+        }
+      }
+      double[] props = (double[]) prop;
+      double[] kept = new double[props.length];
+      size = 0;
+      for (double currentVal : props) {
+        if (!toDelete.contains(currentVal)) {
+          kept[size++] = currentVal;
+        }
+      }
+      remaining = Arrays.copyOf(kept, size);
+    } else if (prop instanceof boolean[]) {
+      boolean deleteTrue = valuesToDelete.contains(Boolean.TRUE);
+      boolean deleteFalse = valuesToDelete.contains(Boolean.FALSE);
+      boolean[] props = (boolean[]) prop;
+      boolean[] kept = new boolean[props.length];
+      size = 0;
+      for (boolean currentVal : props) {
+        if (!(currentVal ? deleteTrue : deleteFalse)) {
+          kept[size++] = currentVal;
+        }
+      }
+      remaining = Arrays.copyOf(kept, size);
+    } else {
+      // strings and temporal values
+      Set<Object> toDelete = UnifiedSet.newSet(valuesToDelete);
+      Object[] props = (Object[]) prop;
+      Object[] kept = Arrays.copyOf(props, props.length);
+      size = 0;
+      for (Object currentVal : props) {
+        if (!toDelete.contains(currentVal)) {
+          kept[size++] = currentVal;
+        }
+      }
+      remaining = Arrays.copyOf(kept, size);
+    }
+    if (size == 0) {
+      node.removeProperty(k);
+    } else if (size < Array.getLength(prop)) {
+      node.setProperty(k, remaining);
+    }
+  }
+
   private void deleteNodeIfEmpty(Node node) {
-    int nodePropertyCount = node.getAllProperties().size();
+    // source tags and sync digests don't count
+    int nodePropertyCount = node.getAllProperties().size()
+        - (node.hasProperty(SOURCES_PROPERTY) ? 1 : 0)
+        - (node.hasProperty(DIGEST_PROPERTY) ? 1 : 0);
     int labelCount = Iterators.size(node.getLabels().iterator());
     if (!node.hasRelationship(Direction.OUTGOING) &&
         !node.hasRelationship(Direction.INCOMING) &&
@@ -1,6 +1,7 @@
 package n10s.rdf.delete;
 
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
 import n10s.rdf.RDFProcedures;
 import org.neo4j.procedure.Description;
@@ -10,6 +11,8 @@ import org.neo4j.procedure.Procedure;
 
 public class RDFDeleteProcedures extends RDFProcedures {
 
+  //nodes per transaction when deleting by source
+  private static final int DEFAULT_SOURCE_DELETE_BATCH_SIZE = 10000;
 
   @Procedure(mode = Mode.WRITE)
   @Description(
@@ -30,4 +33,47 @@ public class RDFDeleteProcedures extends RDFProcedures {
     return Stream.of(doDelete(format, null, rdf, props));
   }
 
+  @Procedure(mode = Mode.WRITE)
+  @Description(
+      "Deletes the nodes and relationships written by imports run with the given 'source' param, "
+          + "without parsing the RDF again. Those shared with other sources only lose the tag.")
+  public Stream<SourceDeleteResults> bySource(@Name("source") String source,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+    SourceDeleteResults results = new SourceDeleteResults();
+    int batchSize = (props.containsKey("batchSize") && (long) props.get("batchSize") > 0
+        ? (int) (long) props.get("batchSize") : DEFAULT_SOURCE_DELETE_BATCH_SIZE);
+    int parallelism = (props.containsKey("parallelism") && (long) props.get("parallelism") > 0
+        ? (int) (long) props.get("parallelism") : 1);
+    SourceDeleter deleter = new SourceDeleter(db, log, source, batchSize, parallelism);
+    try {
+      deleter.run();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      results.setTerminationKO("Interrupted");
+    } catch (ExecutionException e) {
+      log.error("Problems deleting source " + source, e.getCause());
+      results.setTerminationKO(e.getCause().getMessage());
+    }
+    results.nodesDeleted = deleter.getNodesDeleted();
+    results.nodesUntagged = deleter.getNodesUntagged();
+    results.relationshipsDeleted = deleter.getRelationshipsDeleted();
+    results.relationshipsUntagged = deleter.getRelationshipsUntagged();
+    return Stream.of(results);
+  }
+
+  public static class SourceDeleteResults {
+
+    public String terminationStatus = "OK";
+    public long nodesDeleted = 0;
+    public long nodesUntagged = 0;
+    public long relationshipsDeleted = 0;
+    public long relationshipsUntagged = 0;
+    public String extraInfo = "";
+
+    public void setTerminationKO(String message) {
+      this.terminationStatus = "KO";
+      this.extraInfo = message;
+    }
+  }
+
 }
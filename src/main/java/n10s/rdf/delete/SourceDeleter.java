@@ -0,0 +1,197 @@
+package n10s.rdf.delete;
+
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
+import static n10s.graphconfig.Params.UNTAGGED_SOURCE;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import n10s.rdf.load.PipelinedBatchWriter;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+/**
+ * Deletes what an import tagged with a source (see the 'source' import param) wrote, without
+ * parsing the RDF again. The source is removed from the tags of the nodes and relationships that
+ * have it. Relationships left without tags are deleted, and so are nodes left without tags nor
+ * relationships. Those an untagged import wrote before the source tagged them carry the {@link
+ * n10s.graphconfig.Params#UNTAGGED_SOURCE} placeholder: they are kept, without tags as they were.
+ * Labels and properties of the nodes that other sources (or untagged imports) share are kept, as
+ * they are not tagged individually.
+ * <p>
+ * Tagged nodes are found scanning the :Resource nodes. They are then processed in batches,
+ * committed concurrently: first the relationships starting at them, then the nodes themselves.
+ */
+public class SourceDeleter {
+
+  private static final Label RESOURCE = Label.label("Resource");
+
+  private final GraphDatabaseService db;
+  private final Log log;
+  private final String source;
+  private final int batchSize;
+  private final int parallelism;
+  private final AtomicLong nodesDeleted = new AtomicLong();
+  private final AtomicLong nodesUntagged = new AtomicLong();
+  private final AtomicLong relationshipsDeleted = new AtomicLong();
+  private final AtomicLong relationshipsUntagged = new AtomicLong();
+
+  public SourceDeleter(GraphDatabaseService db, Log log, String source, int batchSize,
+      int parallelism) {
+    this.db = db;
+    this.log = log;
+    this.source = source;
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+  }
+
+  public void run() throws InterruptedException, ExecutionException {
+    LongArrayList taggedNodeIds = new LongArrayList();
+    try (Transaction tx = db.beginTx(); ResourceIterator<Node> resources = tx
+        .findNodes(RESOURCE)) {
+      while (resources.hasNext()) {
+        Node node = resources.next();
+        if (isTagged(node)) {
+          taggedNodeIds.add(node.getId());
+        }
+      }
+    }
+    log.debug(taggedNodeIds.size() + " nodes tagged with source " + source);
+    // relationships go first, so that nodes can then be deleted when left without any
+    inBatches(taggedNodeIds, this::deleteRelationships);
+    inBatches(taggedNodeIds, this::deleteNode);
+  }
+
+  private interface NodeOperation {
+
+    /**
+     * @param counts of nodes deleted, nodes untagged, relationships deleted and relationships
+     * untagged, to be added to
+     */
+    void apply(Node node, long[] counts);
+  }
+
+  private void inBatches(LongArrayList nodeIds, NodeOperation operation)
+      throws InterruptedException, ExecutionException {
+    long[] ids = nodeIds.toArray();
+    ExecutorService writers = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setNameFormat("n10s-source-deleter-%d").setDaemon(true)
+            .build());
+    try {
+      List<Future<?>> batches = new ArrayList<>();
+      for (int first = 0; first < ids.length; first += batchSize) {
+        int from = first;
+        int to = Math.min(ids.length, first + batchSize);
+        batches.add(writers.submit(() -> {
+          long[] counts = new long[4];
+          PipelinedBatchWriter.commitWithRetries(db, log, false, tx -> {
+            // only the counts of the attempt that commits
+            Arrays.fill(counts, 0);
+            for (int i = from; i < to; i++) {
+              try {
+                operation.apply(tx.getNodeById(ids[i]), counts);
+              } catch (NotFoundException e) {
+                // deleted since it was found
+              }
+            }
+            return 0;
+          });
+          nodesDeleted.addAndGet(counts[0]);
+          nodesUntagged.addAndGet(counts[1]);
+          relationshipsDeleted.addAndGet(counts[2]);
+          relationshipsUntagged.addAndGet(counts[3]);
+        }));
+      }
+      for (Future<?> batch : batches) {
+        batch.get();
+      }
+    } finally {
+      writers.shutdownNow();
+    }
+  }
+
+  private void deleteRelationships(Node node, long[] counts) {
+    for (Relationship rel : node.getRelationships(Direction.OUTGOING)) {
+      if (isTagged(rel)) {
+        if (untag(rel, source)) {
+          rel.delete();
+          counts[2]++;
+        } else {
+          counts[3]++;
+        }
+      }
+    }
+  }
+
+  private void deleteNode(Node node, long[] counts) {
+    if (untag(node, source) && !node.hasRelationship()) {
+      node.delete();
+      counts[0]++;
+    } else {
+      counts[1]++;
+    }
+  }
+
+  private boolean isTagged(Entity entity) {
+    String[] sources = (String[]) entity.getProperty(SOURCES_PROPERTY, null);
+    return sources != null && Arrays.asList(sources).contains(source);
+  }
+
+  /**
+   * Removes the source from the tags of the entity, and the untagged placeholder when it's the
+   * only one left.
+   *
+   * @return true if no tag is left (and the entity was not there before the source)
+   */
+  public static boolean untag(Entity entity, String source) {
+    String[] sources = (String[]) entity.getProperty(SOURCES_PROPERTY, null);
+    if (sources == null) {
+      return true;
+    }
+    String[] remaining = Arrays.stream(sources).filter(s -> !s.equals(source))
+        .toArray(String[]::new);
+    if (remaining.length == 0) {
+      entity.removeProperty(SOURCES_PROPERTY);
+      return true;
+    }
+    if (remaining.length == 1 && remaining[0].equals(UNTAGGED_SOURCE)) {
+      entity.removeProperty(SOURCES_PROPERTY);
+      return false;
+    }
+    if (remaining.length < sources.length) {
+      entity.setProperty(SOURCES_PROPERTY, remaining);
+    }
+    return false;
+  }
+
+  public long getNodesDeleted() {
+    return nodesDeleted.get();
+  }
+
+  public long getNodesUntagged() {
+    return nodesUntagged.get();
+  }
+
+  public long getRelationshipsDeleted() {
+    return relationshipsDeleted.get();
+  }
+
+  public long getRelationshipsUntagged() {
+    return relationshipsUntagged.get();
+  }
+}
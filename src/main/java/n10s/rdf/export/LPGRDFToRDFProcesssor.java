@@ -3,7 +3,9 @@ package n10s.rdf.export;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_MULTIVAL_PROP_ARRAY;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_RDFTYPES_AS_LABELS;
 import static n10s.graphconfig.Params.CUSTOM_DATA_TYPE_SEPERATOR;
+import static n10s.graphconfig.Params.DIGEST_PROPERTY;
 import static n10s.graphconfig.Params.PREFIX_SEPARATOR;
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
 import static n10s.utils.UriUtils.translateUri;
 
 import java.time.LocalDate;
@@ -20,6 +22,7 @@ import java.util.stream.Stream;
 import n10s.graphconfig.GraphConfig;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
 import n10s.utils.NsPrefixMap;
+import n10s.utils.NsPrefixMapCache;
 import n10s.utils.UriUtils.UriNamespaceHasNoAssociatedPrefix;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
@@ -47,7 +50,7 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
       throws InvalidNamespacePrefixDefinitionInDB {
     super(tx,graphdb, gc);
     this.exportPropertiesInRels = isRDFStarSerialisation;
-    this.namespaces = new NsPrefixMap(tx, false);
+    this.namespaces = NsPrefixMapCache.get(tx);
 
   }
 
@@ -61,7 +64,8 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
       String catName = node.getAllProperties().get("name").toString();
       if (!catName.equals("Resource") && !catName.equals("_NsPrefDef")
           && !catName.equals("_GraphConfig") && !catName.equals("_n10sValidatorConfig")
-          && !catName.equals("_MapNs") && !catName.equals("_MapDef") && !catName.equals("_GraphConfig")) {
+          && !catName.equals("_MapNs") && !catName.equals("_MapDef") && !catName.equals("_GraphConfig")
+          && !catName.equals("_ImportCheckpoint")) {
         IRI subject = vf.createIRI(buildURI(BASE_SCH_NS, catName));
         statements.add(vf.createStatement(subject, RDF.TYPE, OWL.CLASS));
         statements.add(vf.createStatement(subject, RDFS.LABEL,
@@ -214,6 +218,9 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
   protected void processPropOnRel(Set<Statement> statementSet, Statement baseStatement, String key,
       Object propertyValueObject) {
 
+    if (key.equals(SOURCES_PROPERTY)) {
+      return;
+    }
     IRI predicate = vf.createIRI(buildURI(BASE_SCH_NS, key));
     if (propertyValueObject instanceof Object[]) {
       for (Object o : (Object[]) propertyValueObject) {
@@ -275,7 +282,8 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
 
     Map<String, Object> allProperties = node.getAllProperties();
     for (String key : allProperties.keySet()) {
-      if (!key.equals("uri") && !key.equals("graphUri") && (propNameFilter==null || key.equals(propNameFilter))) {
+      if (!key.equals("uri") && !key.equals("graphUri") && !key.equals(SOURCES_PROPERTY)
+          && !key.equals(DIGEST_PROPERTY) && (propNameFilter==null || key.equals(propNameFilter))) {
         Resource subject = buildSubjectOrContext(node.getProperty("uri").toString());
         IRI predicate = vf.createIRI(buildURI(BASE_SCH_NS, key));
         Object propertyValueObject = allProperties.get(key);
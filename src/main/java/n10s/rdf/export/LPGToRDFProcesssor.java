@@ -1,5 +1,8 @@
 package n10s.rdf.export;
 
+import static n10s.graphconfig.Params.DIGEST_PROPERTY;
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
+
 import n10s.graphconfig.GraphConfig;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
 import n10s.utils.UriUtils;
@@ -48,7 +51,8 @@ public class LPGToRDFProcesssor extends ExportProcessor {
       // Resource and NamespacePrefix should be named _Resource... to avoid conflicts
       if (!catName.equals("Resource") && !catName.equals("_NsPrefDef")
           && !catName.equals("_n10sValidatorConfig") && !catName.equals("_MapNs")
-          && !catName.equals("_MapDef") && !catName.equals("_GraphConfig")) {
+          && !catName.equals("_MapDef") && !catName.equals("_GraphConfig")
+          && !catName.equals("_ImportCheckpoint")) {
         IRI subject = vf.createIRI(BASE_SCH_NS, catName);
         statements.add(vf.createStatement(subject, RDF.TYPE, OWL.CLASS));
         statements.add(vf
@@ -151,14 +155,17 @@ public class LPGToRDFProcesssor extends ExportProcessor {
   protected boolean filterNode(Node node, Map<Long, IRI> ontologyEntitiesUris) {
     return node.hasLabel(Label.label("_MapDef")) || node.hasLabel(Label.label("_MapNs"))||
         node.hasLabel(Label.label("_NsPrefDef")) || node.hasLabel(Label.label("_n10sValidatorConfig"))
-        || node.hasLabel(Label.label("_GraphConfig"));
+        || node.hasLabel(Label.label("_GraphConfig"))
+        || node.hasLabel(Label.label("_ImportCheckpoint"));
   }
 
   @Override
   protected void processPropOnRel(Set<Statement> statementSet,
       Statement baseStatement, String key, Object propertyValueObject) {
 
-
+      if (key.equals(SOURCES_PROPERTY)) {
+        return;
+      }
       if (!exportOnlyMappedElems || exportMappings.containsKey(key)) {
         IRI predicate = (exportMappings.containsKey(key) ? vf.createIRI(exportMappings.get(key)) :
             vf.createIRI(BASE_SCH_NS, key));
@@ -238,6 +245,9 @@ public class LPGToRDFProcesssor extends ExportProcessor {
     // Do not serialise uri as a property.
     // When present, it will be the resource uri.
     allProperties.remove("uri");
+    // nor the bookkeeping of the imports tagged with a source and of the syncs
+    allProperties.remove(SOURCES_PROPERTY);
+    allProperties.remove(DIGEST_PROPERTY);
 
     for (String key : allProperties.keySet()) {
       if(propNameFilter == null || propNameFilter.equals(vf.createIRI(BASE_SCH_NS, key).stringValue())){
@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.stream.Stream;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.rdf.RDFProcedures;
 import n10s.result.StreamedStatement;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
@@ -109,7 +110,7 @@ public class RDFExportProcedures extends RDFProcedures {
   private GraphConfig getGraphConfig(Transaction tx) {
     GraphConfig result = null;
     try {
-      result = new GraphConfig(tx);
+      result = GraphConfigCache.get(tx);
     } catch (GraphConfigNotFound graphConfigNotFound) {
       //it's an LPG (no RDF import config)
     }
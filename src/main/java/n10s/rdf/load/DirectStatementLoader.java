@@ -1,21 +1,40 @@
 package n10s.rdf.load;
 
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
-
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
+import static n10s.graphconfig.Params.UNTAGGED_SOURCE;
 
 import java.lang.reflect.Array;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import n10s.RDFToLPGStatementProcessor;
 import n10s.graphconfig.RDFParserConfig;
+import n10s.rdf.parse.NTriplesLineParser;
+import n10s.utils.NsPrefixMap;
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
+import org.eclipse.collections.api.set.primitive.MutableDoubleSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.UnifiedSet;
+import org.eclipse.collections.impl.set.mutable.primitive.DoubleHashSet;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.neo4j.graphdb.*;
 import org.neo4j.logging.Log;
@@ -27,128 +46,570 @@ import org.neo4j.logging.Log;
 public class DirectStatementLoader extends RDFToLPGStatementProcessor {
 
   private static final Label RESOURCE = Label.label("Resource");
-  private Cache<String, Node> nodeCache;
+  private PipelinedBatchWriter batchWriter;
+  private final NodeIdCache nodeIdCache;
+  // other loaders may be writing the same nodes concurrently (multi-file import)
+  private final boolean concurrentLoaders;
+  // checkpoints of the position in the source, saved with the partial commits when enabled
+  private String checkpointUrl;
+  private ImportCheckpoint resumedFrom;
+  // ids of the blank nodes, saved with the checkpoints (null if not checkpointing)
+  private String blankNodePrefix;
+  private long sourceOffset = -1;
+  private long sourceLine = 0;
+  // batches handed over to the writer threads that the checkpoint hasn't moved past yet
+  private final Deque<StatementBatch> checkpointQueue = new ArrayDeque<>();
+  private final Map<StatementBatch, Long> uncheckpointedTriples = new IdentityHashMap<>();
+  private long checkpointedTriples = 0;
+  private boolean checkpointsStopped = false;
+  private final List<Long> batchHeapBytes = new ArrayList<>();
+  // first load of the data: relationships are created without checking for existing ones
+  private final boolean assumeNoExistingRels;
+  private final LongAdder relGroupsScanned = new LongAdder();
+  // rdf:type relationships left for a final phase once all the batches are written, as pairs of
+  // instance and class node ids
+  private final boolean deferTypeRels;
+  // source the written nodes and relationships are tagged with (null if not tagging)
+  private final String source;
+  private final LongArrayList deferredTypeRels = new LongArrayList();
+  private long deferredTypeRelCount = 0;
+  private boolean deferIgnoredWarned = false;
+  // multivalued properties not written because no new value was added to the stored array
+  private final LongAdder multivalWritesSkipped = new LongAdder();
+  // compact batch buffers, used instead of 'statements' when compactBatches is set
+  private UriDictionary uriDictionary;
+  private TripleColumns relColumns;
+  private Map<IRI, Integer> predicateIds;
+  private List<IRI> predicateList;
 
   public DirectStatementLoader(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
       Log l) {
+    this(db, tx, conf, l, conf.getNodeIdCacheMemory() > 0 ? new NodeIdCache(
+        conf.getNodeIdCacheMemory()) : null, false);
+  }
+
+  /**
+   * Loader for one of the files of a multi-file import. The namespace prefix map and the node id
+   * cache (can be null) are shared with the loaders of the other files, which may run
+   * concurrently.
+   */
+  public DirectStatementLoader(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
+      Log l, NsPrefixMap sharedNamespaces, NodeIdCache sharedNodeIdCache) {
+    this(db, tx, conf, l, sharedNodeIdCache, true);
+    setNamespaces(sharedNamespaces);
+  }
+
+  private DirectStatementLoader(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
+      Log l, NodeIdCache nodeIdCache, boolean concurrentLoaders) {
 
     super(db, tx, conf, l);
-    nodeCache = CacheBuilder.newBuilder()
-        .maximumSize(conf.getNodeCacheSize())
-        .build();
+    this.nodeIdCache = nodeIdCache;
+    this.concurrentLoaders = concurrentLoaders;
+    this.assumeNoExistingRels = conf.isAssumeNoExistingRels();
+    this.deferTypeRels = conf.isDeferTypeRels();
+    this.source = conf.getSource();
+    if (conf.isCompactBatches()) {
+      resetCompactBuffers();
+    }
+    if (conf.getParallelism() > 0) {
+      batchWriter = new PipelinedBatchWriter(db, this, conf.getParallelism(),
+          conf.getQueueDepth(), conf.isPartitionRels(), conf.isAbortOnError(), l);
+    }
+  }
+
+  /**
+   * Saves a checkpoint for the url with every partial commit. Only line based parsers report the
+   * position of the statements, no checkpoints are saved for other formats.
+   *
+   * @param resumedFrom checkpoint to carry on from (can be null). Parsing starts at its offset
+   * and the counts of the import start from its counts. Its blank node prefix (if any) is reused.
+   */
+  public void enableCheckpoints(String url, ImportCheckpoint resumedFrom) {
+    this.checkpointUrl = url;
+    this.resumedFrom = resumedFrom;
+    this.blankNodePrefix = resumedFrom != null && resumedFrom.getBlankNodePrefix() != null
+        ? resumedFrom.getBlankNodePrefix() : NTriplesLineParser.newBlankNodePrefix();
+    if (resumedFrom != null) {
+      totalTriplesParsed = resumedFrom.getTriplesParsed();
+      totalTriplesMapped = resumedFrom.getTriplesLoaded();
+      checkpointedTriples = resumedFrom.getTriplesLoaded();
+    }
+  }
+
+  @Override
+  public void setSourcePosition(long byteOffset, long line) {
+    sourceOffset = byteOffset;
+    sourceLine = line;
+  }
+
+  @Override
+  public long getResumeOffset() {
+    return resumedFrom != null ? resumedFrom.getByteOffset() : 0;
+  }
+
+  @Override
+  public long getResumeLine() {
+    return resumedFrom != null ? resumedFrom.getLine() : 0;
+  }
+
+  @Override
+  public String getBlankNodePrefix() {
+    return blankNodePrefix;
+  }
+
+  @Override
+  public void startRDF() throws RDFHandlerException {
+    super.startRDF();
+    if (resumedFrom != null && resumedFrom.getNamespaces() != null && namespaces != null) {
+      // prefixes in use when the checkpoint was saved, in case they were dropped since
+      for (Entry<String, String> ns : resumedFrom.getNamespaces().entrySet()) {
+        if (!namespaces.hasPrefix(ns.getKey()) && !namespaces.hasNs(ns.getValue())) {
+          namespaces.add(ns.getKey(), ns.getValue());
+        }
+      }
+    }
   }
 
   @Override
   public void endRDF() throws RDFHandlerException {
     periodicOperation();
+    awaitPendingWrites();
+    if (batchWriter != null && batchWriter.getFailure() != null && getParserConfig()
+        .isAbortOnError()) {
+      throw new PartialCommitException(
+          "Problems when running partial commit. Partial transaction rolled back. ",
+          batchWriter.getFailure());
+    }
+    writeDeferredTypeRels();
     log.debug("Import complete: " + totalTriplesMapped + "  triples ingested out of "
         + totalTriplesParsed + " parsed");
   }
 
+  /**
+   * Writes the next batch in the caller's transaction. There's no final phase on this path, so
+   * with deferTypeRels the rdf:type relationships are written with the batch (and a warning is
+   * added to the import results).
+   */
   public Integer runPartialTx(Transaction inThreadTransaction) {
+    if (deferTypeRels && !deferIgnoredWarned) {
+      deferIgnoredWarned = true;
+      String warning = "deferTypeRels is not supported when the batches are written in the "
+          + "caller's transaction. rdf:type relationships written with each batch. ";
+      log.warn(warning);
+      loadWarnings.append(warning);
+    }
+    mappedTripleCounter -= writeBatch(inThreadTransaction, nextBatch(), null);
+    return 0;
+  }
 
-    try {
-      for (Map.Entry<String, Set<String>> entry : resourceLabels.entrySet()) {
-        try {
-          final Node node;
-          node = nodeCache.get(entry.getKey(), () -> {
-            Node node1 = inThreadTransaction.findNode(RESOURCE, "uri", entry.getKey());
-            if (node1 == null) {
-              node1 = inThreadTransaction.createNode(RESOURCE);
-              node1.setProperty("uri", entry.getKey());
+  /**
+   * Writes a whole batch (and syncs the namespace prefixes) in the given transaction. Can be run
+   * again on the same batch if the transaction fails.
+   *
+   * @param deferred where the rdf:type relationships left for the final phase are added (can be
+   * null to write them with the batch)
+   * @return number of triples discarded because of datatype conflicts
+   */
+  private long writeBatch(Transaction inThreadTransaction, StatementBatch batch,
+      LongArrayList deferred) {
+    long discarded = writeNodes(inThreadTransaction, batch);
+    discarded += writeRelationships(inThreadTransaction, batch, batch.allRows(),
+        concurrentLoaders, deferred);
+    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
+      namespaces.partialRefresh(inThreadTransaction);
+    }
+    return discarded;
+  }
+
+  /**
+   * Hands over the statements collected since the last partial commit as a batch and resets the
+   * buffers for the parser. Relationship types are resolved here, so that any new namespace is
+   * registered before the namespace prefixes are synced.
+   */
+  protected StatementBatch nextBatch() {
+    StatementBatch batch;
+    if (uriDictionary != null) {
+      RelationshipType[] predicateTypes = new RelationshipType[predicateList.size()];
+      for (int i = 0; i < predicateTypes.length; i++) {
+        predicateTypes[i] = relationshipTypeFor(predicateList.get(i));
+      }
+      batch = new StatementBatch(resourceLabels, resourceProps, uriDictionary, relColumns,
+          predicateList, predicateTypes, relProps, mappedTripleCounter);
+      resetCompactBuffers();
+    } else {
+      Map<IRI, RelationshipType> relTypes = new HashMap<>();
+      for (Statement st : statements) {
+        relTypes.computeIfAbsent(st.getPredicate(),
+            p -> relationshipTypeFor(p));
+      }
+      batch = new StatementBatch(resourceLabels, resourceProps, statements,
+          relProps, relTypes, mappedTripleCounter);
+      statements = new HashSet<>();
+    }
+    resourceLabels = new HashMap<>();
+    resourceProps = new HashMap<>();
+    relProps = new HashMap<>();
+    batchHeapBytes.add(batch.getEstimatedHeapBytes());
+    log.debug("batch of " + batch.getRelCount() + " relationships buffered in (approx.) "
+        + batch.getEstimatedHeapBytes() + " bytes");
+    return batch;
+  }
+
+  /**
+   * In compact mode, relationship triples are interned into the batch dictionary and kept as ids
+   * instead of as statements.
+   */
+  @Override
+  protected void addStatement(Statement st) {
+    if (uriDictionary == null) {
+      super.addStatement(st);
+      return;
+    }
+    Integer predicateId = predicateIds.get(st.getPredicate());
+    if (predicateId == null) {
+      predicateId = predicateList.size();
+      predicateIds.put(st.getPredicate(), predicateId);
+      predicateList.add(st.getPredicate());
+    }
+    relColumns.add(uriDictionary.intern(st.getSubject().stringValue()), predicateId,
+        uriDictionary.intern(st.getObject().stringValue()));
+  }
+
+  private void resetCompactBuffers() {
+    uriDictionary = new UriDictionary();
+    relColumns = new TripleColumns();
+    predicateIds = new HashMap<>();
+    predicateList = new ArrayList<>();
+  }
+
+  /**
+   * Creates (or updates) the nodes in the batch and records their ids for the relationship phase.
+   *
+   * @return number of triples discarded because of datatype conflicts
+   */
+  long writeNodes(Transaction inThreadTransaction, StatementBatch batch) {
+    long discarded = 0;
+    batch.clearNodeIds();
+    for (Map.Entry<String, Set<String>> entry : batch.getResourceLabels().entrySet()) {
+      Node node = (nodeIdCache != null ? nodeIdCache.getNode(inThreadTransaction, entry.getKey())
+          : null);
+      boolean created = false;
+      if (node == null) {
+        node = inThreadTransaction.findNode(RESOURCE, "uri", entry.getKey());
+        if (node == null) {
+          node = inThreadTransaction.createNode(RESOURCE);
+          node.setProperty("uri", entry.getKey());
+          created = true;
+        }
+        if (nodeIdCache != null) {
+          nodeIdCache.put(entry.getKey(), node.getId());
+        }
+      }
+      batch.setNodeId(entry.getKey(), node.getId());
+      tagWithSource(node, created);
+
+      for (String l : entry.getValue()) {
+        node.addLabel(labelFor(l));
+      }
+      for (Entry<String, Object> prop : batch.getResourceProps().get(entry.getKey()).entrySet()) {
+        discarded += setProperty(node, prop.getKey(), prop.getValue());
+      }
+    }
+    return discarded;
+  }
+
+  /**
+   * Creates the relationships in the given rows (all or a partition of the batch) unless already
+   * present. Expects the nodes in the batch to be written already. When several transactions
+   * write concurrently, the start node is locked before checking for an existing relationship so
+   * that the same relationship cannot be created twice.
+   * <p>
+   * Rows are grouped by start node and relationship type: the existing relationships of a group
+   * are read once into a map from end node id to relationship id, instead of scanning them for
+   * every row. A row whose end node has fewer incoming relationships of the type than the start
+   * node has outgoing ones is checked from the end node, while its group hasn't been read. With
+   * assumeNoExistingRels, existing relationships are not read at all and only the duplicates
+   * within the rows are skipped.
+   * <p>
+   * rdf:type relationships are only ever checked from the instance: class nodes can have millions
+   * of incoming ones. With deferTypeRels, those without properties are not written but added to
+   * the deferred list (as instance and class node ids), for {@link #writeDeferredTypeRels()}.
+   *
+   * @param deferred where the deferred rdf:type relationships are added (can be null to write them
+   * anyway)
+   * @return number of triples discarded because of datatype conflicts
+   */
+  long writeRelationships(Transaction inThreadTransaction, StatementBatch batch,
+      int[] rows, boolean lockStartNode, LongArrayList deferred) {
+    long discarded = 0;
+    Map<RelationshipType, MutableLongObjectMap<RelGroup>> groups = new HashMap<>();
+    for (int row : rows) {
+
+      boolean typeRel = batch.getPredicate(row).equals(RDF.TYPE);
+      if (typeRel && deferTypeRels && deferred != null && batch.getRelProps(row) == null) {
+        deferred.add(getNodeId(inThreadTransaction, batch, batch.getStartUri(row)));
+        deferred.add(getNodeId(inThreadTransaction, batch, batch.getEndUri(row)));
+        continue;
+      }
+
+      final Node fromNode = getNode(inThreadTransaction, batch, batch.getStartUri(row));
+      final Node toNode = getNode(inThreadTransaction, batch, batch.getEndUri(row));
+      final RelationshipType relType = batch.getRelType(row);
+
+      RelGroup group = groups.computeIfAbsent(relType, t -> new LongObjectHashMap<>())
+          .get(fromNode.getId());
+      if (group == null) {
+        if (lockStartNode) {
+          inThreadTransaction.acquireWriteLock(fromNode);
+        }
+        group = new RelGroup(assumeNoExistingRels ? -1
+            : fromNode.getDegree(relType, Direction.OUTGOING));
+        groups.get(relType).put(fromNode.getId(), group);
+      }
+
+      // check if the rel is already present. If so, don't recreate.
+      Relationship theRel = null;
+      long relId = group.relIdTo(toNode.getId());
+      if (relId >= 0) {
+        theRel = inThreadTransaction.getRelationshipById(relId);
+      } else if (!group.loaded && !group.startsEmpty()) {
+        if (!typeRel && toNode.getDegree(relType, Direction.INCOMING) < group.startDegree) {
+          for (Relationship rel : toNode.getRelationships(Direction.INCOMING, relType)) {
+            if (rel.getStartNode().equals(fromNode)) {
+              theRel = rel;
+              break;
             }
-            return node1;
-          });
+          }
+        } else {
+          for (Relationship rel : fromNode.getRelationships(Direction.OUTGOING, relType)) {
+            group.add(rel.getEndNodeId(), rel.getId());
+          }
+          group.loaded = true;
+          relGroupsScanned.increment();
+          relId = group.relIdTo(toNode.getId());
+          theRel = relId >= 0 ? inThreadTransaction.getRelationshipById(relId) : null;
+        }
+      }
+
+      boolean created = theRel == null;
+      if (created) {
+        theRel = fromNode.createRelationshipTo(toNode, relType);
+      }
+      group.add(toNode.getId(), theRel.getId());
+      tagWithSource(theRel, created);
 
-          entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
-          resourceProps.get(entry.getKey()).forEach((k, v) -> setProperty(node,k,v));
-        } catch (ExecutionException e) {
-          e.printStackTrace();
+      Map<String, Object> relProps = batch.getRelProps(row);
+      if (relProps != null) {
+        for (Entry<String, Object> entry : relProps.entrySet()) {
+          discarded += setProperty(theRel, entry.getKey(), entry.getValue());
         }
       }
+    }
+    return discarded;
+  }
 
-      for (Statement st : statements) {
-        try {
-
-          final Node fromNode = nodeCache
-                  .get(st.getSubject().stringValue(), () -> {  //throws AnyException
-                    return inThreadTransaction.findNode(RESOURCE, "uri", st.getSubject().stringValue());
-                  });
-
-          final Node toNode = nodeCache
-                  .get(st.getObject().stringValue(), () -> {  //throws AnyException
-                    return inThreadTransaction.findNode(RESOURCE, "uri", st.getObject().stringValue());
-                  });
-
-          // check if the rel is already present. If so, don't recreate.
-          // explore the node with the lowest degree
-          boolean found = false;
-          Relationship theRel = null;
-          if (fromNode
-                  .getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
-                          Direction.OUTGOING) <
-                  toNode.getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
-                          Direction.INCOMING)) {
-            for (Relationship rel : fromNode
-                    .getRelationships(Direction.OUTGOING,
-                            RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)))) {
-              if (rel.getEndNode().equals(toNode)) {
-                found = true;
-                theRel = rel;
-                break;
-              }
+  /**
+   * Adds the rdf:type relationships deferred by a committed transaction to the final phase.
+   */
+  synchronized void typeRelsDeferred(LongArrayList pairs) {
+    deferredTypeRels.addAll(pairs);
+  }
+
+  /**
+   * Final phase of an import with deferTypeRels: creates the rdf:type relationships left by the
+   * batches, unless already present (checked from the instance), in transactions of commitSize
+   * relationships.
+   */
+  private void writeDeferredTypeRels() {
+    if (deferredTypeRels.isEmpty()) {
+      return;
+    }
+    RelationshipType typeRelType = relationshipTypeFor(RDF.TYPE);
+    long commitSize = Math.max(parserConfig.getCommitSize(), 1);
+    int pairCount = deferredTypeRels.size() / 2;
+    for (int first = 0; first < pairCount; first += commitSize) {
+      int chunkStart = first;
+      int chunkEnd = (int) Math.min(pairCount, first + commitSize);
+      try {
+        PipelinedBatchWriter.commitWithRetries(graphdb, log, concurrentLoaders, t -> {
+          for (int pair = chunkStart; pair < chunkEnd; pair++) {
+            Node instance = t.getNodeById(deferredTypeRels.get(pair * 2));
+            long classNodeId = deferredTypeRels.get(pair * 2 + 1);
+            if (concurrentLoaders) {
+              t.acquireWriteLock(instance);
             }
-          } else {
-            for (Relationship rel : toNode
-                    .getRelationships(Direction.INCOMING,
-                            RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)))) {
-              if (rel.getStartNode().equals(fromNode)) {
-                found = true;
-                theRel = rel;
+            Relationship typeRel = null;
+            for (Relationship rel : instance.getRelationships(Direction.OUTGOING, typeRelType)) {
+              if (rel.getEndNodeId() == classNodeId) {
+                typeRel = rel;
                 break;
               }
             }
+            boolean created = typeRel == null;
+            if (created) {
+              typeRel = instance.createRelationshipTo(t.getNodeById(classNodeId), typeRelType);
+            }
+            tagWithSource(typeRel, created);
           }
+          return 0;
+        });
+      } catch (Exception e) {
+        log.error("Problems writing the deferred rdf:type relationships. Partial transaction "
+            + "rolled back. " + (chunkEnd - chunkStart) + " relationships lost.", e);
+        if (getParserConfig().isAbortOnError()) {
+          throw new PartialCommitException(
+              "Problems writing the deferred rdf:type relationships. ", e);
+        }
+      }
+    }
+    deferredTypeRelCount += pairCount;
+    deferredTypeRels.clear();
+  }
 
-          if (!found) {
-            theRel = fromNode.createRelationshipTo(
-                    toNode,
-                    RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)));
-          }
+  /**
+   * Relationships of a type from a start node, known to exist: the ones written in the current
+   * rows and, once loaded, the ones already in the db.
+   */
+  private static class RelGroup {
 
-          Map<String, Object> relProps = this.relProps.get(st);
-          if (relProps != null) {
-            for (Entry<String, Object> entry : relProps.entrySet()) {
+    // outgoing relationships of the type before the rows were written, -1 if assumed none
+    private final long startDegree;
+    private final MutableLongLongMap relIdsByEndNode = new LongLongHashMap();
+    private boolean loaded;
 
-              setProperty(theRel, entry.getKey(), entry.getValue());
-            }
-          }
+    private RelGroup(long startDegree) {
+      this.startDegree = startDegree;
+    }
 
-        } catch (ExecutionException e) {
-          e.printStackTrace();
-        }
-      }
+    private boolean startsEmpty() {
+      return startDegree <= 0;
+    }
+
+    private long relIdTo(long endNodeId) {
+      return relIdsByEndNode.getIfAbsent(endNodeId, -1);
+    }
+
+    private void add(long endNodeId, long relId) {
+      relIdsByEndNode.put(endNodeId, relId);
+    }
+  }
+
+  private Node getNode(Transaction inThreadTransaction, StatementBatch batch, String uri) {
+    Long nodeId = batch.getNodeId(uri);
+    return nodeId != null ? inThreadTransaction.getNodeById(nodeId)
+        : inThreadTransaction.findNode(RESOURCE, "uri", uri);
+  }
+
+  private long getNodeId(Transaction inThreadTransaction, StatementBatch batch, String uri) {
+    Long nodeId = batch.getNodeId(uri);
+    return nodeId != null ? nodeId : inThreadTransaction.findNode(RESOURCE, "uri", uri).getId();
+  }
+
+  boolean hasConcurrentLoaders() {
+    return concurrentLoaders;
+  }
 
+  @Override
+  public Map<String, Object> getImportStats() {
+    Map<String, Object> stats = super.getImportStats();
+    if (nodeIdCache != null) {
+      stats.put("nodeIdCacheHits", nodeIdCache.getHitCount());
+      stats.put("nodeIdCacheMisses", nodeIdCache.getMissCount());
+    }
+    stats.put("batchHeapBytes", batchHeapBytes);
+    stats.put("relGroupsScanned", relGroupsScanned.sum());
+    stats.put("multivalWritesSkipped", multivalWritesSkipped.sum());
+    if (deferTypeRels) {
+      stats.put("deferredTypeRels", deferredTypeRelCount);
+    }
+    if (resumedFrom != null) {
+      stats.put("resumedFromOffset", resumedFrom.getByteOffset());
+    }
+    return stats;
+  }
 
-      Integer result = 0;
-      if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
-        result = namespaces.partialRefresh(inThreadTransaction);
+  /**
+   * @return checkpoint for the statements handled so far, null if not checkpointing or the
+   * position in the source is unknown
+   */
+  private ImportCheckpoint currentCheckpoint() {
+    if (checkpointUrl == null || sourceOffset < 0) {
+      return null;
+    }
+    return new ImportCheckpoint(checkpointUrl, sourceOffset, sourceLine, totalTriplesParsed,
+        totalTriplesMapped, namespaces != null ? new HashMap<>(namespaces.getPrefixToNs()) : null,
+        blankNodePrefix);
+  }
+
+  /**
+   * Batches can be committed out of order by the writer threads: the checkpoint only moves past a
+   * batch once all batches before it are committed (or given up on, unless aborting on error).
+   */
+  private void advanceCheckpoint(StatementBatch batch, long triples, boolean success) {
+    uncheckpointedTriples.put(batch, triples);
+    if (!success && parserConfig.isAbortOnError()) {
+      checkpointsStopped = true;
+    }
+    ImportCheckpoint latest = null;
+    while (!checkpointQueue.isEmpty() && uncheckpointedTriples
+        .containsKey(checkpointQueue.peek())) {
+      StatementBatch done = checkpointQueue.poll();
+      checkpointedTriples += uncheckpointedTriples.remove(done);
+      latest = done.getCheckpoint();
+    }
+    if (latest != null && !checkpointsStopped) {
+      try (Transaction tempTransaction = graphdb.beginTx()) {
+        latest.withTriplesLoaded(checkpointedTriples).save(tempTransaction);
+        tempTransaction.commit();
+      } catch (Exception e) {
+        log.error("Problems saving import checkpoint. ", e);
       }
+    }
+  }
 
-      return result;
+  /**
+   * Called by the writer threads once a batch has been fully written (or given up on).
+   *
+   * @param triples triples in the batch actually ingested
+   */
+  synchronized void batchCommitted(StatementBatch batch, long triples, long startNanos,
+      boolean success) {
+    totalTriplesMapped += triples;
+    log.debug("partial commit: " + triples + " triples ingested. Total so far: "
+        + totalTriplesMapped);
+    if (batch.getCheckpoint() != null) {
+      advanceCheckpoint(batch, triples, success);
+    }
+    if (adaptiveCommitSize != null) {
+      adaptiveCommitSize.batchCommitted(batch.getMappedTriples(), batch.getPendingState(),
+          (System.nanoTime() - startNanos) / 1_000_000, success);
+    }
+  }
 
-    } finally {
-      statements.clear();
-      resourceLabels.clear();
-      resourceProps.clear();
-      relProps.clear();
-      nodeCache.invalidateAll();
+  /**
+   * Blocks until all batches handed over to the writer threads have been processed. No-op when
+   * the import is not running in parallel mode.
+   */
+  public void awaitPendingWrites() {
+    if (batchWriter != null) {
+      try {
+        batchWriter.awaitCompletion();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.error("Interrupted while waiting for pending partial commits.", e);
+      }
     }
   }
 
-  private void setProperty(Entity node, String k, Object v) {
+  /**
+   * @return number of values discarded because of datatype heterogeneity
+   */
+  private long setProperty(Entity node, String k, Object v) {
     if (v instanceof List) {
       Object currentValue = node.getProperty(k, null);
+      if (mergeIntoArray(node, k, currentValue, (List<?>) v)) {
+        return 0;
+      }
       List<Object> newList = new ArrayList<>();
       if (currentValue != null) {
         //initialise with existing values
@@ -180,9 +641,9 @@ public class DirectStatementLoader extends RDFToLPGStatementProcessor {
       if(!discardedItems.isEmpty()){
         this.datatypeConflictFound |= true;
         if (getParserConfig().isStrictDataTypeCheck()){
-          this.mappedTripleCounter-= discardedItems.size();
           log.warn("The following values for property '" + k + "' have been discarded because of datatype heterogeneity (previously stored values are of type " + currentDatatype + ") : " + discardedItems );
           node.setProperty(k, toPropertyValue(newList.stream().collect(Collectors.toSet())));
+          return discardedItems.size();
         } else {
           //default all to string if they're not already return defaultToString(it.iterator());
           newList.addAll(discardedItems);
@@ -196,33 +657,189 @@ public class DirectStatementLoader extends RDFToLPGStatementProcessor {
     } else {
       node.setProperty(k, v);
     }
+    return 0;
   }
 
+  /**
+   * Adds the source of the import (if any) to the ones of the node or relationship. One that
+   * already existed without tags was written by an untagged import, and gets the {@link
+   * n10s.graphconfig.Params#UNTAGGED_SOURCE} placeholder as well.
+   *
+   * @param created whether the entity was created by this transaction
+   */
+  private void tagWithSource(Entity entity, boolean created) {
+    if (source == null) {
+      return;
+    }
+    String[] sources = (String[]) entity.getProperty(SOURCES_PROPERTY, null);
+    if (sources == null) {
+      entity.setProperty(SOURCES_PROPERTY,
+          created ? new String[]{source} : new String[]{UNTAGGED_SOURCE, source});
+    } else if (!Arrays.asList(sources).contains(source)) {
+      String[] tagged = Arrays.copyOf(sources, sources.length + 1);
+      tagged[sources.length] = source;
+      entity.setProperty(SOURCES_PROPERTY, tagged);
+    }
+  }
+
+  /**
+   * Adds the values not already there to the array stored in the property, without boxing the
+   * stored values, when they are all of the type of the array: long[] and double[] (with sets of
+   * primitives) or arrays of objects like String[] and the temporal types. The property is only
+   * written if a value was added. Stored values keep their order, new ones are appended.
+   *
+   * @return false if the values can't be merged this way (mixed types, a value that is not an
+   * array stored...) and were not written
+   */
+  private boolean mergeIntoArray(Entity entity, String k, Object currentValue, List<?> values) {
+    if (values.isEmpty()) {
+      return false;
+    }
+    Class<?> valueType = values.get(0).getClass();
+    for (Object x : values) {
+      if (x.getClass() != valueType) {
+        return false;
+      }
+    }
+    int size;
+    Object merged;
+    if (valueType == Long.class && (currentValue == null || currentValue instanceof long[])) {
+      long[] stored = currentValue == null ? new long[0] : (long[]) currentValue;
+      MutableLongSet present = LongHashSet.newSetWith(stored);
+      long[] mergedLongs = Arrays.copyOf(stored, stored.length + values.size());
+      size = stored.length;
+      for (Object x : values) {
+        if (present.add((Long) x)) {
+          mergedLongs[size++] = (Long) x;
+        }
+      }
+      merged = mergedLongs;
+    } else if (valueType == Double.class && (currentValue == null
+        || currentValue instanceof double[])) {
+      double[] stored = currentValue == null ? new double[0] : (double[]) currentValue;
+      MutableDoubleSet present = DoubleHashSet.newSetWith(stored);
+      double[] mergedDoubles = Arrays.copyOf(stored, stored.length + values.size());
+      size = stored.length;
+      for (Object x : values) {
+        if (present.add((Double) x)) {
+          mergedDoubles[size++] = (Double) x;
+        }
+      }
+      merged = mergedDoubles;
+    } else if (valueType == Boolean.class && (currentValue == null
+        || currentValue instanceof boolean[])) {
+      boolean[] stored = currentValue == null ? new boolean[0] : (boolean[]) currentValue;
+      // true and false at most
+      boolean[] present = new boolean[2];
+      for (boolean b : stored) {
+        present[b ? 1 : 0] = true;
+      }
+      boolean[] mergedBooleans = Arrays.copyOf(stored, stored.length + values.size());
+      size = stored.length;
+      for (Object x : values) {
+        int index = (Boolean) x ? 1 : 0;
+        if (!present[index]) {
+          present[index] = true;
+          mergedBooleans[size++] = (Boolean) x;
+        }
+      }
+      merged = mergedBooleans;
+    } else if (currentValue == null || (currentValue instanceof Object[]
+        && currentValue.getClass().getComponentType() == valueType)) {
+      Object[] stored = currentValue == null ? (Object[]) Array.newInstance(valueType, 0)
+          : (Object[]) currentValue;
+      Set<Object> present = UnifiedSet.newSet(stored.length + values.size());
+      present.addAll(Arrays.asList(stored));
+      Object[] mergedObjects = Arrays.copyOf(stored, stored.length + values.size());
+      size = stored.length;
+      for (Object x : values) {
+        if (present.add(x)) {
+          mergedObjects[size++] = x;
+        }
+      }
+      merged = mergedObjects;
+    } else {
+      return false;
+    }
+    if (currentValue != null && size == Array.getLength(currentValue)) {
+      multivalWritesSkipped.increment();
+    } else {
+      entity.setProperty(k, size == Array.getLength(merged) ? merged
+          : copyOfRange(merged, size));
+    }
+    return true;
+  }
+
+  private static Object copyOfRange(Object array, int size) {
+    if (array instanceof long[]) {
+      return Arrays.copyOf((long[]) array, size);
+    } else if (array instanceof double[]) {
+      return Arrays.copyOf((double[]) array, size);
+    } else if (array instanceof boolean[]) {
+      return Arrays.copyOf((boolean[]) array, size);
+    }
+    return Arrays.copyOf((Object[]) array, size);
+  }
 
   @Override
   protected void periodicOperation() {
 
-    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
-      try (Transaction tempTransaction = graphdb.beginTx()) {
-        namespaces.partialRefresh(tempTransaction);
-        tempTransaction.commit();
-        log.debug("namespace prefixes synced: " + namespaces.toString());
-      } catch (Exception e) {
-        log.error("Problems syncing up namespace prefixes in partial commit. ", e);
-        if (getParserConfig().isAbortOnError()){
-          throw new NamespacePrefixConflict("Problems syncing up namespace prefixes in partial commit. ", e);
+    if (batchWriter != null) {
+      StatementBatch batch = nextBatch();
+      syncNamespaces();
+      batch.setCheckpoint(currentCheckpoint());
+      if (batch.getCheckpoint() != null) {
+        synchronized (this) {
+          checkpointQueue.add(batch);
         }
       }
+      if (batchWriter.getFailure() != null && getParserConfig().isAbortOnError()) {
+        throw new PartialCommitException(
+            "Problems when running partial commit. Partial transaction rolled back. ",
+            batchWriter.getFailure());
+      }
+      try {
+        batchWriter.submit(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PartialCommitException("Interrupted while queueing partial commit. ", e);
+      }
+      if (adaptiveCommitSize != null) {
+        parserConfig.setCommitSize(adaptiveCommitSize.getCommitSize());
+      }
+      mappedTripleCounter = 0;
+      return;
     }
 
-    try (Transaction tempTransaction = graphdb.beginTx()) {
-      this.runPartialTx(tempTransaction);
-      tempTransaction.commit();
+    long triples = mappedTripleCounter;
+    long pendingState = resourceLabels.size() + (relColumns != null ? relColumns.size()
+        : statements.size());
+    // synced in a transaction of its own once the batch has registered its namespaces, so that
+    // the _NsPrefDef node is not locked while the batch is written
+    StatementBatch batch = nextBatch();
+    syncNamespaces();
+    long startNanos = System.nanoTime();
+    try {
+      ImportCheckpoint checkpoint = currentCheckpoint();
+      LongArrayList deferred = new LongArrayList();
+      mappedTripleCounter -= PipelinedBatchWriter
+          .commitWithRetries(graphdb, log, concurrentLoaders, t -> {
+            deferred.clear();
+            long discarded = writeBatch(t, batch, deferred);
+            if (checkpoint != null) {
+              // committed along with the batch
+              checkpoint.withTriplesLoaded(totalTriplesMapped + triples - discarded).save(t);
+            }
+            return discarded;
+          });
+      typeRelsDeferred(deferred);
       log.debug("partial commit: " + mappedTripleCounter + " triples ingested. Total so far: "
           + totalTriplesMapped);
       totalTriplesMapped += mappedTripleCounter;
+      adaptCommitSize(triples, pendingState, startNanos, true);
     } catch (Exception e) {
       log.error("Problems when running partial commit. Partial transaction rolled back. "  + mappedTripleCounter + " triples lost.", e);
+      adaptCommitSize(triples, pendingState, startNanos, false);
       if (getParserConfig().isAbortOnError()){
         throw new PartialCommitException("Problems when running partial commit. Partial transaction rolled back. " , e);
       }
@@ -232,4 +849,23 @@ public class DirectStatementLoader extends RDFToLPGStatementProcessor {
 
   }
 
+  private void syncNamespaces() {
+    if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
+      // held until committed, so that loaders sharing the map sync one at a time
+      synchronized (namespaces) {
+        try (Transaction tempTransaction = graphdb.beginTx()) {
+          namespaces.partialRefresh(tempTransaction);
+          tempTransaction.commit();
+          log.debug("namespace prefixes synced: " + namespaces.toString());
+        } catch (Exception e) {
+          log.error("Problems syncing up namespace prefixes in partial commit. ", e);
+          if (getParserConfig().isAbortOnError()) {
+            throw new NamespacePrefixConflict(
+                "Problems syncing up namespace prefixes in partial commit. ", e);
+          }
+        }
+      }
+    }
+  }
+
 }
@@ -0,0 +1,118 @@
+package n10s.rdf.load;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Position in a (line based) source up to which an import has been committed, stored on an
+ * _ImportCheckpoint node per source url. An import resumed from a checkpoint starts reading the
+ * source at its byte offset and carries on with its counts, and with the prefix of the ids of its
+ * blank nodes, so that labels seen before the checkpoint map to the same nodes.
+ */
+public class ImportCheckpoint {
+
+  public static final Label CHECKPOINT_LABEL = Label.label("_ImportCheckpoint");
+
+  private final String url;
+  private final long byteOffset;
+  private final long line;
+  private final long triplesParsed;
+  private final long triplesLoaded;
+  private final Map<String, String> namespaces;
+  private final String blankNodePrefix;
+
+  public ImportCheckpoint(String url, long byteOffset, long line, long triplesParsed,
+      long triplesLoaded, Map<String, String> namespaces, String blankNodePrefix) {
+    this.url = url;
+    this.byteOffset = byteOffset;
+    this.line = line;
+    this.triplesParsed = triplesParsed;
+    this.triplesLoaded = triplesLoaded;
+    this.namespaces = namespaces;
+    this.blankNodePrefix = blankNodePrefix;
+  }
+
+  /**
+   * @return the checkpoint stored for the url, {@code null} if there is none
+   */
+  public static ImportCheckpoint load(GraphDatabaseService db, String url) {
+    try (Transaction tx = db.beginTx()) {
+      Node node = tx.findNode(CHECKPOINT_LABEL, "url", url);
+      if (node == null) {
+        return null;
+      }
+      Map<String, String> namespaces = new HashMap<>();
+      String[] prefixes = (String[]) node.getProperty("nsPrefixes", new String[0]);
+      String[] nsUris = (String[]) node.getProperty("nsUris", new String[0]);
+      for (int i = 0; i < prefixes.length; i++) {
+        namespaces.put(prefixes[i], nsUris[i]);
+      }
+      return new ImportCheckpoint(url, (long) node.getProperty("byteOffset"),
+          (long) node.getProperty("line"), (long) node.getProperty("triplesParsed"),
+          (long) node.getProperty("triplesLoaded"), namespaces,
+          (String) node.getProperty("bnodePrefix", null));
+    }
+  }
+
+  /**
+   * Creates or updates the checkpoint node for the url of this checkpoint.
+   */
+  public void save(Transaction tx) {
+    Node node = tx.findNode(CHECKPOINT_LABEL, "url", url);
+    if (node == null) {
+      node = tx.createNode(CHECKPOINT_LABEL);
+      node.setProperty("url", url);
+    }
+    node.setProperty("byteOffset", byteOffset);
+    node.setProperty("line", line);
+    node.setProperty("triplesParsed", triplesParsed);
+    node.setProperty("triplesLoaded", triplesLoaded);
+    if (namespaces != null) {
+      node.setProperty("nsPrefixes", namespaces.keySet().toArray(new String[0]));
+      node.setProperty("nsUris", namespaces.values().toArray(new String[0]));
+    }
+    if (blankNodePrefix != null) {
+      node.setProperty("bnodePrefix", blankNodePrefix);
+    }
+  }
+
+  /**
+   * @return a copy of this checkpoint with the given count of triples loaded
+   */
+  ImportCheckpoint withTriplesLoaded(long triplesLoaded) {
+    return new ImportCheckpoint(url, byteOffset, line, triplesParsed, triplesLoaded, namespaces,
+        blankNodePrefix);
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  public long getLine() {
+    return line;
+  }
+
+  public long getTriplesParsed() {
+    return triplesParsed;
+  }
+
+  public long getTriplesLoaded() {
+    return triplesLoaded;
+  }
+
+  public Map<String, String> getNamespaces() {
+    return namespaces;
+  }
+
+  public String getBlankNodePrefix() {
+    return blankNodePrefix;
+  }
+}
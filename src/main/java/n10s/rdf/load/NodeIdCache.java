@@ -0,0 +1,66 @@
+package n10s.rdf.load;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * URI to node id cache that outlives the partial transactions of an import. Ids (unlike
+ * {@link Node} handles) remain usable across transactions, so hub resources (classes, schemes,
+ * publishers...) are looked up in the :Resource(uri) index once per import instead of once per
+ * batch.
+ * <p>
+ * The cache is bounded by an estimate of its memory footprint. Cached ids are checked against the
+ * uri of the node they point to, so entries left behind by rolled back transactions or deleted
+ * nodes are detected and evicted.
+ */
+public class NodeIdCache {
+
+  // approximate cost of an entry on top of the uri characters: String and Long headers plus the
+  // cache entry itself
+  private static final int ENTRY_OVERHEAD_BYTES = 104;
+
+  private final Cache<String, Long> cache;
+
+  public NodeIdCache(long maxMemoryBytes) {
+    cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxMemoryBytes)
+        .weigher((String uri, Long id) -> ENTRY_OVERHEAD_BYTES + uri.length())
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * @return the node for the uri if its id is cached and still valid, {@code null} otherwise
+   */
+  public Node getNode(Transaction tx, String uri) {
+    Long nodeId = cache.getIfPresent(uri);
+    if (nodeId != null) {
+      try {
+        Node node = tx.getNodeById(nodeId);
+        if (uri.equals(node.getProperty("uri", null))) {
+          return node;
+        }
+      } catch (NotFoundException e) {
+        // deleted or never committed
+      }
+      cache.invalidate(uri);
+    }
+    return null;
+  }
+
+  public void put(String uri, long nodeId) {
+    cache.put(uri, nodeId);
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+}
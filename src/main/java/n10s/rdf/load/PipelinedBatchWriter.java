@@ -0,0 +1,221 @@
+package n10s.rdf.load;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.neo4j.graphdb.ConstraintViolationException;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransientFailureException;
+import org.neo4j.logging.Log;
+
+/**
+ * Decouples parsing from writing in the {@link DirectStatementLoader}. The parser thread hands
+ * over {@link StatementBatch}es that are written in two phases: the node phase runs on a single
+ * thread (in submission order, so that no two transactions race to create the same resource) and,
+ * once committed, the relationship phase of the batch is handed to a pool of writer threads.
+ * Optionally, the relationships of a batch are partitioned by start node and the partitions are
+ * committed concurrently. Partitions never share a start node, but creating a relationship locks
+ * both of its nodes, so partitions (or batches) linking to the same end node (a class node for
+ * rdf:type relationships, for instance) can still deadlock. Deadlocked transactions are retried
+ * after a random backoff and, if they keep failing, the relationships are committed again while no
+ * other relationship phase is running.
+ * <p>
+ * The number of batches submitted but not yet fully written is bounded by the queue depth, so
+ * the parser blocks instead of buffering the whole dataset in memory when writers fall behind.
+ */
+public class PipelinedBatchWriter {
+
+  private static final int MAX_RETRIES = 5;
+  private static final long BASE_BACKOFF_MILLIS = 10;
+  private static final long MAX_BACKOFF_MILLIS = 1000;
+
+  private final GraphDatabaseService graphdb;
+  private final DirectStatementLoader loader;
+  private final boolean abortOnError;
+  private final int parallelism;
+  private final boolean partitionRels;
+  private final Log log;
+  private final ExecutorService nodeWriter;
+  private final ExecutorService relWriters;
+  private final Semaphore pendingBatches;
+  // relationship phases hold the read lock, the ones that ran out of retries run alone
+  private final ReadWriteLock relPhases = new ReentrantReadWriteLock(true);
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+  PipelinedBatchWriter(GraphDatabaseService db, DirectStatementLoader loader, int parallelism,
+      int queueDepth, boolean partitionRels, boolean abortOnError, Log l) {
+    this.graphdb = db;
+    this.loader = loader;
+    this.parallelism = parallelism;
+    this.partitionRels = partitionRels;
+    this.abortOnError = abortOnError;
+    this.log = l;
+    this.nodeWriter = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("n10s-node-writer-%d").setDaemon(true).build());
+    this.relWriters = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setNameFormat("n10s-rel-writer-%d").setDaemon(true).build());
+    this.pendingBatches = new Semaphore(queueDepth);
+  }
+
+  /**
+   * Queues a batch for writing. Blocks while the maximum number of pending batches is reached.
+   */
+  void submit(StatementBatch batch) throws InterruptedException {
+    pendingBatches.acquire();
+    nodeWriter.execute(() -> {
+      long startNanos = System.nanoTime();
+      long discarded;
+      try {
+        if (skipAfterFailure(batch)) {
+          pendingBatches.release();
+          return;
+        }
+        discarded = commitWithRetries(graphdb, log, loader.hasConcurrentLoaders(),
+            tx -> loader.writeNodes(tx, batch));
+      } catch (Exception e) {
+        failed(batch.getMappedTriples(), e);
+        loader.batchCommitted(batch, 0, startNanos, false);
+        pendingBatches.release();
+        return;
+      }
+      List<int[]> partitions = batch.partitionByStartNode(partitionRels ? parallelism : 1);
+      if (partitions.isEmpty()) {
+        loader.batchCommitted(batch, batch.getMappedTriples() - discarded, startNanos, true);
+        pendingBatches.release();
+        return;
+      }
+      AtomicInteger remainingPartitions = new AtomicInteger(partitions.size());
+      AtomicLong lost = new AtomicLong(discarded);
+      AtomicBoolean partitionFailed = new AtomicBoolean(false);
+      for (int[] partition : partitions) {
+        relWriters.execute(() -> {
+          try {
+            if (skipAfterFailure(batch)) {
+              lost.addAndGet(partition.length);
+            } else {
+              LongArrayList deferred = new LongArrayList();
+              lost.addAndGet(writeRelationships(batch, partition, deferred));
+              loader.typeRelsDeferred(deferred);
+            }
+          } catch (Exception e) {
+            failed(partition.length, e);
+            lost.addAndGet(partition.length);
+            partitionFailed.set(true);
+          } finally {
+            if (remainingPartitions.decrementAndGet() == 0) {
+              loader.batchCommitted(batch, batch.getMappedTriples() - lost.get(), startNanos,
+                  !partitionFailed.get());
+              pendingBatches.release();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Commits a partition of the relationships of a batch concurrently with the other relationship
+   * phases and, when it keeps deadlocking with them, on its own.
+   */
+  private long writeRelationships(StatementBatch batch, int[] partition,
+      LongArrayList deferred) {
+    ToLongFunction<Transaction> work = tx -> {
+      deferred.clear();
+      return loader.writeRelationships(tx, batch, partition, true, deferred);
+    };
+    relPhases.readLock().lock();
+    try {
+      return commitWithRetries(graphdb, log, loader.hasConcurrentLoaders(), work);
+    } catch (TransientFailureException e) {
+      log.debug("Partition of " + partition.length + " relationships failed after " + MAX_RETRIES
+          + " attempts. Committing it with no other relationship phase running. "
+          + e.getMessage());
+    } finally {
+      relPhases.readLock().unlock();
+    }
+    relPhases.writeLock().lock();
+    try {
+      return commitWithRetries(graphdb, log, loader.hasConcurrentLoaders(), work);
+    } finally {
+      relPhases.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Waits until every submitted batch has been written (or discarded) and stops the writers.
+   */
+  void awaitCompletion() throws InterruptedException {
+    nodeWriter.shutdown();
+    nodeWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    relWriters.shutdown();
+    relWriters.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  Exception getFailure() {
+    return failure.get();
+  }
+
+  /**
+   * Runs the work in a new transaction and commits it, retrying a few times on transient failures
+   * (deadlocks between concurrent writers) after a random backoff that grows with each attempt, so
+   * that the writers involved don't collide again straight away. When other loaders write concurrently, uniqueness
+   * violations are retried too: they come from a resource created by another loader after it was
+   * looked up, and the lookup finds it on the next attempt.
+   */
+  public static long commitWithRetries(GraphDatabaseService graphdb, Log log,
+      boolean retryUniquenessConflicts, ToLongFunction<Transaction> work) {
+    for (int attempt = 1; ; attempt++) {
+      try (Transaction tempTransaction = graphdb.beginTx()) {
+        long result = work.applyAsLong(tempTransaction);
+        tempTransaction.commit();
+        return result;
+      } catch (TransientFailureException | ConstraintViolationException e) {
+        if (attempt >= MAX_RETRIES || (e instanceof ConstraintViolationException
+            && !retryUniquenessConflicts)) {
+          throw e;
+        }
+        log.debug("Transient failure in partial commit (attempt " + attempt + "). Retrying. "
+            + e.getMessage());
+        backOff(attempt, e);
+      }
+    }
+  }
+
+  private static void backOff(int attempt, RuntimeException failure) {
+    long maxMillis = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failure;
+    }
+  }
+
+  private boolean skipAfterFailure(StatementBatch batch) {
+    if (abortOnError && failure.get() != null) {
+      log.debug("Import aborted. Batch of " + batch.getMappedTriples() + " triples discarded.");
+      return true;
+    }
+    return false;
+  }
+
+  private void failed(long triplesLost, Exception e) {
+    log.error("Problems when running partial commit. Partial transaction rolled back. "
+        + triplesLost + " triples lost.", e);
+    failure.compareAndSet(null, e);
+  }
+
+}
@@ -1,5 +1,6 @@
 package n10s.rdf.load;
 
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import n10s.rdf.RDFProcedures;
@@ -19,6 +20,17 @@ public class RDFLoadProcedures extends RDFProcedures {
     return Stream.of(doImport(format, url, null, props, null));
   }
 
+  @Procedure(name = "n10s.rdf.import.fetchAll", mode = Mode.WRITE)
+  @Description("Imports RDF from a list of urls (file or http, local ones can use wildcards) and "
+      + "stores it in Neo4j as a property graph. Returns the results for each file. "
+      + "Requires a unique constraint on :Resource(uri)")
+  public Stream<FileImportResults> fetchAll(@Name("urls") List<String> urls,
+      @Name("format") String format,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+
+    return doImportAll(urls, format, props);
+  }
+
   @Procedure(name = "n10s.rdf.import.inline", mode = Mode.WRITE)
   @Description("Imports an RDF snippet passed as parameter and stores it in Neo4j as a property "
       + "graph. Requires a unique constraint on :Resource(uri)")
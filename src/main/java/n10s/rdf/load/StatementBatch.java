@@ -0,0 +1,228 @@
+package n10s.rdf.load;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.neo4j.graphdb.RelationshipType;
+
+/**
+ * A self-contained unit of work for the {@link DirectStatementLoader}: the resources, properties
+ * and relationships collected by the parser between two partial commits.
+ * <p>
+ * Relationship types are resolved when the batch is created (on the parsing thread) so that the
+ * batch can be written from a different thread without touching the namespace prefix map.
+ * <p>
+ * Relationships are addressed by row. They are either held as RDF4J statements or, in compact
+ * mode, as columns of ids into a {@link UriDictionary}.
+ */
+public class StatementBatch {
+
+  // HashSet entry, statement, and subject and object IRIs with their Strings (uri chars not incl.)
+  private static final int STATEMENT_OVERHEAD_BYTES = 200;
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+  private final Map<String, Set<String>> resourceLabels;
+  private final Map<String, Map<String, Object>> resourceProps;
+  private final Map<Statement, Map<String, Object>> relProps;
+  private final long mappedTriples;
+  private final long estimatedHeapBytes;
+  // statement mode
+  private final List<Statement> statements;
+  private final Map<IRI, RelationshipType> relTypes;
+  // compact mode
+  private final UriDictionary dictionary;
+  private final TripleColumns columns;
+  private final List<IRI> predicates;
+  private final RelationshipType[] predicateTypes;
+  //populated by the node write phase, used by the relationship write phase
+  private final Map<String, Long> nodeIds = new HashMap<>();
+  // position in the source once the batch is committed (null when not checkpointing)
+  private ImportCheckpoint checkpoint;
+
+  public StatementBatch(Map<String, Set<String>> resourceLabels,
+      Map<String, Map<String, Object>> resourceProps, Set<Statement> statements,
+      Map<Statement, Map<String, Object>> relProps, Map<IRI, RelationshipType> relTypes,
+      long mappedTriples) {
+    this.resourceLabels = resourceLabels;
+    this.resourceProps = resourceProps;
+    this.statements = new ArrayList<>(statements);
+    this.relProps = relProps;
+    this.relTypes = relTypes;
+    this.mappedTriples = mappedTriples;
+    this.dictionary = null;
+    this.columns = null;
+    this.predicates = null;
+    this.predicateTypes = null;
+    long heapBytes = 0;
+    for (Statement st : statements) {
+      heapBytes += STATEMENT_OVERHEAD_BYTES + st.getSubject().stringValue().length()
+          + st.getObject().stringValue().length();
+    }
+    this.estimatedHeapBytes = heapBytes;
+  }
+
+  /**
+   * Compact batch: relationships are rows in {@code columns}, whose subject and object ids refer
+   * to {@code dictionary} and whose predicate ids index {@code predicates} and
+   * {@code predicateTypes}.
+   */
+  public StatementBatch(Map<String, Set<String>> resourceLabels,
+      Map<String, Map<String, Object>> resourceProps, UriDictionary dictionary,
+      TripleColumns columns, List<IRI> predicates, RelationshipType[] predicateTypes,
+      Map<Statement, Map<String, Object>> relProps, long mappedTriples) {
+    this.resourceLabels = resourceLabels;
+    this.resourceProps = resourceProps;
+    this.dictionary = dictionary;
+    this.columns = columns;
+    this.predicates = predicates;
+    this.predicateTypes = predicateTypes;
+    this.relProps = relProps;
+    this.mappedTriples = mappedTriples;
+    this.statements = null;
+    this.relTypes = null;
+    this.estimatedHeapBytes = dictionary.estimatedHeapBytes() + columns.estimatedHeapBytes();
+  }
+
+  public Map<String, Set<String>> getResourceLabels() {
+    return resourceLabels;
+  }
+
+  public Map<String, Map<String, Object>> getResourceProps() {
+    return resourceProps;
+  }
+
+  public int getRelCount() {
+    return columns != null ? columns.size() : statements.size();
+  }
+
+  public String getStartUri(int row) {
+    return columns != null ? dictionary.get(columns.getSubject(row))
+        : statements.get(row).getSubject().stringValue();
+  }
+
+  public String getEndUri(int row) {
+    return columns != null ? dictionary.get(columns.getObject(row))
+        : statements.get(row).getObject().stringValue();
+  }
+
+  public IRI getPredicate(int row) {
+    return columns != null ? predicates.get(columns.getPredicate(row))
+        : statements.get(row).getPredicate();
+  }
+
+  public RelationshipType getRelType(int row) {
+    return columns != null ? predicateTypes[columns.getPredicate(row)]
+        : relTypes.get(statements.get(row).getPredicate());
+  }
+
+  /**
+   * @return the properties (from RDF-star annotations) of the relationship in the row, or
+   * {@code null} if it has none
+   */
+  public Map<String, Object> getRelProps(int row) {
+    if (relProps.isEmpty()) {
+      return null;
+    }
+    if (columns == null) {
+      return relProps.get(statements.get(row));
+    }
+    return relProps.get(vf.createStatement(vf.createIRI(getStartUri(row)),
+        predicates.get(columns.getPredicate(row)), vf.createIRI(getEndUri(row))));
+  }
+
+  public long getMappedTriples() {
+    return mappedTriples;
+  }
+
+  /**
+   * @return number of nodes and relationships to be written for the batch
+   */
+  public long getPendingState() {
+    return resourceLabels.size() + getRelCount();
+  }
+
+  /**
+   * @return estimated heap used by the relationships buffered in the batch, in bytes
+   */
+  public long getEstimatedHeapBytes() {
+    return estimatedHeapBytes;
+  }
+
+  public ImportCheckpoint getCheckpoint() {
+    return checkpoint;
+  }
+
+  public void setCheckpoint(ImportCheckpoint checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+
+  public Long getNodeId(String uri) {
+    return nodeIds.get(uri);
+  }
+
+  public void setNodeId(String uri, long id) {
+    nodeIds.put(uri, id);
+  }
+
+  public void clearNodeIds() {
+    nodeIds.clear();
+  }
+
+  /**
+   * @return the rows of all the relationships in the batch
+   */
+  public int[] allRows() {
+    int[] rows = new int[getRelCount()];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = i;
+    }
+    return rows;
+  }
+
+  /**
+   * Splits the relationship rows in the batch by the id of their start node, so that no two
+   * partitions create relationships on the same start node. Requires the node ids to be
+   * populated. Empty partitions are left out.
+   */
+  public List<int[]> partitionByStartNode(int partitionCount) {
+    List<int[]> partitions = new ArrayList<>();
+    int relCount = getRelCount();
+    if (relCount == 0) {
+      return partitions;
+    }
+    if (partitionCount <= 1) {
+      partitions.add(allRows());
+      return partitions;
+    }
+    int[] partitionOfRow = new int[relCount];
+    int[] partitionSizes = new int[partitionCount];
+    for (int row = 0; row < relCount; row++) {
+      Long startNodeId = nodeIds.get(getStartUri(row));
+      int partition =
+          startNodeId == null ? 0 : (int) Math.floorMod(startNodeId, (long) partitionCount);
+      partitionOfRow[row] = partition;
+      partitionSizes[partition]++;
+    }
+    int[][] rowsByPartition = new int[partitionCount][];
+    for (int i = 0; i < partitionCount; i++) {
+      rowsByPartition[i] = new int[partitionSizes[i]];
+      partitionSizes[i] = 0;
+    }
+    for (int row = 0; row < relCount; row++) {
+      int partition = partitionOfRow[row];
+      rowsByPartition[partition][partitionSizes[partition]++] = row;
+    }
+    for (int[] rows : rowsByPartition) {
+      if (rows.length > 0) {
+        partitions.add(rows);
+      }
+    }
+    return partitions;
+  }
+}
@@ -0,0 +1,53 @@
+package n10s.rdf.load;
+
+import java.util.Arrays;
+
+/**
+ * Relationship triples stored column-wise as ids: subject and object ids refer to a
+ * {@link UriDictionary}, predicate ids to the predicates registered in the batch. Each triple
+ * costs three ints instead of an RDF4J {@link org.eclipse.rdf4j.model.Statement} and its values.
+ */
+public class TripleColumns {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private int[] subjects = new int[INITIAL_CAPACITY];
+  private int[] predicates = new int[INITIAL_CAPACITY];
+  private int[] objects = new int[INITIAL_CAPACITY];
+  private int size = 0;
+
+  public void add(int subject, int predicate, int object) {
+    if (size == subjects.length) {
+      subjects = Arrays.copyOf(subjects, size * 2);
+      predicates = Arrays.copyOf(predicates, size * 2);
+      objects = Arrays.copyOf(objects, size * 2);
+    }
+    subjects[size] = subject;
+    predicates[size] = predicate;
+    objects[size] = object;
+    size++;
+  }
+
+  public int getSubject(int row) {
+    return subjects[row];
+  }
+
+  public int getPredicate(int row) {
+    return predicates[row];
+  }
+
+  public int getObject(int row) {
+    return objects[row];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return estimated heap footprint of the columns in bytes
+   */
+  public long estimatedHeapBytes() {
+    return 3L * subjects.length * Integer.BYTES;
+  }
+}
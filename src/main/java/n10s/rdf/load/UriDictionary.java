@@ -0,0 +1,85 @@
+package n10s.rdf.load;
+
+import java.util.Arrays;
+
+/**
+ * Interns the uris in a batch into dense int ids, so that each uri is held once no matter how
+ * many triples reference it. Ids are assigned in insertion order starting at zero.
+ * <p>
+ * Backed by an open addressing table of ids (no boxing, no hash map entries) and an array of
+ * uris indexed by id.
+ */
+public class UriDictionary {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  // String header and backing array header, on top of one byte per (latin1) char
+  private static final int STRING_OVERHEAD_BYTES = 40;
+
+  private String[] uris = new String[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  // slot -> id + 1 (zero marks an empty slot)
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+  private int size = 0;
+  private long uriBytes = 0;
+
+  /**
+   * @return the id of the uri, adding it to the dictionary if not present yet
+   */
+  public int intern(String uri) {
+    int hash = spread(uri.hashCode());
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      int id = slots[slot] - 1;
+      if (hashes[id] == hash && uris[id].equals(uri)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size == uris.length) {
+      uris = Arrays.copyOf(uris, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    int id = size++;
+    uris[id] = uri;
+    hashes[id] = hash;
+    slots[slot] = id + 1;
+    uriBytes += STRING_OVERHEAD_BYTES + uri.length();
+    if (size * 2 > slots.length) {
+      rehash();
+    }
+    return id;
+  }
+
+  public String get(int id) {
+    return uris[id];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return estimated heap footprint of the dictionary in bytes
+   */
+  public long estimatedHeapBytes() {
+    return uriBytes + (long) uris.length * (Integer.BYTES + 8) + (long) slots.length * Integer.BYTES;
+  }
+
+  private void rehash() {
+    int[] newSlots = new int[slots.length * 2];
+    int mask = newSlots.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (newSlots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      newSlots[slot] = id + 1;
+    }
+    slots = newSlots;
+  }
+
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,62 @@
+package n10s.rdf.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Reads a local file through memory mapped regions (of at most
+ * {@value NTriplesLineParser#MAP_WINDOW_SIZE} bytes) instead of through read calls on a buffered
+ * stream. Used to feed local files to parsers that can only consume streams.
+ */
+public class MappedFileInputStream extends InputStream {
+
+  private final FileChannel file;
+  private final long fileSize;
+  private long windowStart = 0;
+  // declared as ByteBuffer, see NTriplesLineParser.MappedChunks
+  private ByteBuffer window;
+
+  public MappedFileInputStream(FileChannel file) throws IOException {
+    this.file = file;
+    this.fileSize = file.size();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return nextWindowIfNeeded() ? window.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextWindowIfNeeded()) {
+      return -1;
+    }
+    int n = Math.min(len, window.remaining());
+    window.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return window == null ? 0 : window.remaining();
+  }
+
+  private boolean nextWindowIfNeeded() throws IOException {
+    if (window != null && window.hasRemaining()) {
+      return true;
+    }
+    if (windowStart >= fileSize) {
+      return false;
+    }
+    long length = Math.min(NTriplesLineParser.MAP_WINDOW_SIZE, fileSize - windowStart);
+    window = file.map(MapMode.READ_ONLY, windowStart, length);
+    windowStart += length;
+    return true;
+  }
+}
@@ -0,0 +1,708 @@
+package n10s.rdf.parse;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import n10s.ConfiguredStatementHandler;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.rdf4j.common.net.ParsedIRI;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+
+/**
+ * Parser for N-Triples and N-Quads that works directly on windows of the raw bytes instead of
+ * going through a character reader like the general purpose Rio parsers.
+ * <p>
+ * Terms are located in the byte window first and only turned into strings when the statement is
+ * kept: statements whose predicate is in the exclusion list are dropped before their subject and
+ * object are decoded. Plain ASCII terms without escapes (the vast majority) are decoded without
+ * going through a charset decoder.
+ * <p>
+ * As the formats are line based, the input is split in chunks cut at line boundaries. With more
+ * than one thread, chunks are tokenized concurrently and their statements are handed to the
+ * {@link ConfiguredStatementHandler} in the original order, from the calling thread. Local files
+ * can be parsed from memory mapped regions, in which case chunks are slices of the mapped
+ * regions and nothing but the terms kept is copied to the heap.
+ * <p>
+ * Like the Rio parsers, IRIs are checked against the IRI syntax (RFC 3987) unless the
+ * 'verifyUriSyntax' param is false.
+ */
+public class NTriplesLineParser {
+
+  static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+  static final int MAP_WINDOW_SIZE = 256 * 1024 * 1024;
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+  // position appended to the message of an RDFParseException
+  private static final Pattern LOCATION = Pattern.compile(" \\[line -?\\d+(, column -?\\d+)?]$");
+
+  private final boolean quads;
+  private final int threads;
+  private final int chunkSize;
+  // blank node labels are scoped to the document (or to the runs of a resumed import)
+  private String bnodePrefix;
+
+  public static String newBlankNodePrefix() {
+    return "n" + UUID.randomUUID().toString().replace("-", "") + "_";
+  }
+
+  public NTriplesLineParser(boolean quads, int threads) {
+    this(quads, threads, DEFAULT_CHUNK_SIZE);
+  }
+
+  NTriplesLineParser(boolean quads, int threads, int chunkSize) {
+    this.quads = quads;
+    this.threads = Math.max(1, threads);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Parses the stream, starting at the resume offset of the handler (if any). The position in the
+   * input of each statement is passed on to the handler before the statement.
+   */
+  public void parse(InputStream in, ConfiguredStatementHandler handler) throws IOException {
+    IOUtils.skipFully(in, handler.getResumeOffset());
+    parse(new StreamChunks(in, chunkSize, threads > 1), handler);
+  }
+
+  /**
+   * Parses a local file from memory mapped regions of at most {@value #MAP_WINDOW_SIZE} bytes.
+   */
+  public void parse(FileChannel file, ConfiguredStatementHandler handler) throws IOException {
+    parse(new MappedChunks(file, chunkSize, MAP_WINDOW_SIZE, handler.getResumeOffset()),
+        handler);
+  }
+
+  private void parse(ChunkSource chunks, ConfiguredStatementHandler handler) throws IOException {
+    bnodePrefix = handler.getBlankNodePrefix() != null ? handler.getBlankNodePrefix()
+        : newBlankNodePrefix();
+    Set<String> excludedPredicates = handler.getParserConfig().getPredicateExclusionList();
+    boolean verifyUriSyntax = handler.getParserConfig().isVerifyUriSyntax();
+    handler.startRDF();
+    if (threads == 1) {
+      parseSequentially(chunks, handler, excludedPredicates, verifyUriSyntax);
+    } else {
+      parseConcurrently(chunks, handler, excludedPredicates, verifyUriSyntax);
+    }
+    handler.endRDF();
+  }
+
+  private void parseSequentially(ChunkSource chunks, ConfiguredStatementHandler handler,
+      Set<String> excludedPredicates, boolean verifyUriSyntax) throws IOException {
+    LineTokenizer tokenizer = new LineTokenizer(excludedPredicates, verifyUriSyntax);
+    long firstLine = handler.getResumeLine() + 1;
+    long chunkOffset = handler.getResumeOffset();
+    ByteBuffer chunk;
+    while ((chunk = chunks.next()) != null) {
+      final long offset = chunkOffset;
+      ChunkResult result = tokenizer.tokenize(chunk, firstLine, (st, nextLineStart, line) -> {
+        handler.setSourcePosition(offset + nextLineStart, line);
+        handler.handleStatement(st);
+      });
+      handler.handleExcludedStatements(result.excluded);
+      firstLine += result.lines;
+      chunkOffset += chunk.limit();
+    }
+  }
+
+  private void parseConcurrently(ChunkSource chunks, ConfiguredStatementHandler handler,
+      Set<String> excludedPredicates, boolean verifyUriSyntax) throws IOException {
+    ExecutorService tokenizers = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("n10s-nt-parser-%d").setDaemon(true).build());
+    ThreadLocal<LineTokenizer> tokenizer = ThreadLocal
+        .withInitial(() -> new LineTokenizer(excludedPredicates, verifyUriSyntax));
+    Deque<Future<ChunkResult>> pending = new ArrayDeque<>();
+    try {
+      long firstLine = handler.getResumeLine() + 1;
+      long chunkOffset = handler.getResumeOffset();
+      ByteBuffer chunk;
+      while ((chunk = chunks.next()) != null) {
+        final ByteBuffer lines = chunk;
+        final long offset = chunkOffset;
+        pending.add(tokenizers.submit(() -> {
+          ChunkResult partial = new ChunkResult();
+          ChunkResult result = tokenizer.get().tokenize(lines, 0, partial::add);
+          result.statements = partial.statements;
+          result.positions = partial.positions;
+          result.statementCount = partial.statementCount;
+          result.offset = offset;
+          return result;
+        }));
+        chunkOffset += chunk.limit();
+        if (pending.size() >= threads * 2) {
+          firstLine = deliver(pending.poll(), handler, firstLine);
+        }
+      }
+      while (!pending.isEmpty()) {
+        firstLine = deliver(pending.poll(), handler, firstLine);
+      }
+    } finally {
+      tokenizers.shutdownNow();
+    }
+  }
+
+  private long deliver(Future<ChunkResult> future, ConfiguredStatementHandler handler,
+      long firstLine) {
+    ChunkResult result;
+    try {
+      result = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RDFHandlerException("Interrupted while parsing", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RDFParseException) {
+        RDFParseException cause = (RDFParseException) e.getCause();
+        // line numbers in concurrently tokenized chunks are relative to the chunk
+        throw new RDFParseException(LOCATION.matcher(cause.getMessage()).replaceFirst(""),
+            firstLine + cause.getLineNumber(), cause.getColumnNumber());
+      }
+      throw new RDFParseException(e.getCause());
+    }
+    for (int i = 0; i < result.statementCount; i++) {
+      // lines are counted from zero in concurrently tokenized chunks
+      handler.setSourcePosition(result.offset + result.positions[2 * i],
+          firstLine + result.positions[2 * i + 1]);
+      handler.handleStatement(result.statements.get(i));
+    }
+    handler.handleExcludedStatements(result.excluded);
+    return firstLine + result.lines;
+  }
+
+  private interface StatementSink {
+
+    /**
+     * @param nextLineStart offset in the chunk of the line after the one holding the statement
+     * @param line number of the line holding the statement
+     */
+    void accept(Statement st, int nextLineStart, long line);
+  }
+
+  private static class ChunkResult {
+
+    long lines;
+    long excluded;
+    // offset of the chunk in the input
+    long offset;
+    // statements collected when tokenized in another thread, with their positions: pairs of
+    // (start of the next line, line)
+    List<Statement> statements = new ArrayList<>();
+    int[] positions = new int[0];
+    int statementCount;
+
+    void add(Statement st, int nextLineStart, long line) {
+      if (2 * statementCount == positions.length) {
+        positions = Arrays.copyOf(positions, Math.max(64, positions.length * 2));
+      }
+      positions[2 * statementCount] = nextLineStart;
+      positions[2 * statementCount + 1] = (int) line;
+      statements.add(st);
+      statementCount++;
+    }
+  }
+
+  private interface ChunkSource {
+
+    /**
+     * @return the next chunk of complete lines (from index 0 to its limit) or {@code null} at the
+     * end of the input
+     */
+    ByteBuffer next() throws IOException;
+  }
+
+  /**
+   * Reads a stream in chunks of (at least) the given size that end at a line boundary.
+   */
+  private static class StreamChunks implements ChunkSource {
+
+    private final InputStream in;
+    private final boolean copyChunks;
+    private byte[] buffer;
+    private int filled = 0;
+    private int chunkLength = 0;
+    private boolean eof = false;
+
+    /**
+     * @param copyChunks whether each chunk gets its own array. Otherwise the array is reused on
+     * the next call.
+     */
+    StreamChunks(InputStream in, int chunkSize, boolean copyChunks) {
+      this.in = in;
+      this.copyChunks = copyChunks;
+      this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+      // move the partial line left over from the previous chunk to the start of the buffer
+      if (chunkLength > 0) {
+        System.arraycopy(buffer, chunkLength, buffer, 0, filled - chunkLength);
+        filled -= chunkLength;
+        chunkLength = 0;
+      }
+      while (true) {
+        int lastNewLine = lastIndexOf(buffer, (byte) '\n', filled);
+        if (lastNewLine >= 0 && (filled == buffer.length || eof)) {
+          chunkLength = lastNewLine + 1;
+          break;
+        }
+        if (eof) {
+          if (filled == 0) {
+            return null;
+          }
+          chunkLength = filled;
+          break;
+        }
+        if (filled == buffer.length) {
+          // a single line longer than the buffer
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, filled, buffer.length - filled);
+        if (read < 0) {
+          eof = true;
+        } else {
+          filled += read;
+        }
+      }
+      return copyChunks ? ByteBuffer.wrap(Arrays.copyOf(buffer, chunkLength))
+          : ByteBuffer.wrap(buffer, 0, chunkLength);
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte b, int end) {
+      for (int i = end - 1; i >= 0; i--) {
+        if (bytes[i] == b) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Maps a file region by region and hands out slices of (at least) the given size that end at
+   * a line boundary. Regions are cut at the last line boundary they contain.
+   */
+  private static class MappedChunks implements ChunkSource {
+
+    private final FileChannel file;
+    private final int chunkSize;
+    private final int windowSize;
+    private final long fileSize;
+    private long windowStart = 0;
+    // a MappedByteBuffer, declared as ByteBuffer so that duplicate() and limit() don't bind to
+    // the MappedByteBuffer overrides added in Java 13
+    private ByteBuffer window;
+    private int windowPos = 0;
+
+    MappedChunks(FileChannel file, int chunkSize, int windowSize, long startOffset)
+        throws IOException {
+      this.file = file;
+      this.chunkSize = chunkSize;
+      this.windowSize = windowSize;
+      this.fileSize = file.size();
+      this.windowStart = startOffset;
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+      if (window == null || windowPos >= window.limit()) {
+        if (windowStart >= fileSize) {
+          return null;
+        }
+        mapNextWindow();
+      }
+      int end = Math.min(windowPos + chunkSize, window.limit());
+      while (end < window.limit() && window.get(end - 1) != '\n') {
+        end++;
+      }
+      ByteBuffer chunk = window.duplicate();
+      chunk.position(windowPos).limit(end);
+      windowPos = end;
+      return chunk.slice();
+    }
+
+    private void mapNextWindow() throws IOException {
+      long length = Math.min(windowSize, fileSize - windowStart);
+      while (true) {
+        window = file.map(MapMode.READ_ONLY, windowStart, length);
+        int limit = (int) length;
+        if (windowStart + length < fileSize) {
+          while (limit > 0 && window.get(limit - 1) != '\n') {
+            limit--;
+          }
+        }
+        if (limit > 0) {
+          window.limit(limit);
+          break;
+        }
+        if (length >= Integer.MAX_VALUE / 2) {
+          throw new RDFParseException("Line longer than " + length + " bytes");
+        }
+        // a single line longer than the window
+        length = Math.min(length * 2, fileSize - windowStart);
+      }
+      windowStart += window.limit();
+      windowPos = 0;
+    }
+  }
+
+  /**
+   * Splits the lines in a chunk into terms. Not thread safe: one instance per thread.
+   */
+  private class LineTokenizer {
+
+    private static final int IRI = 0;
+    private static final int BNODE = 1;
+    private static final int LITERAL = 2;
+    private static final int NO_SUFFIX = 0;
+    private static final int LANG_SUFFIX = 1;
+    private static final int DATATYPE_SUFFIX = 2;
+    private static final int MAX_CACHED_IRIS = 4096;
+
+    private final Set<String> excludedPredicates;
+    private final boolean verifyUriSyntax;
+    // predicates and datatypes repeat all the time, no need to create a new IRI for each
+    private final Map<String, IRI> iriCache = new HashMap<>();
+    private ByteBuffer buf;
+    private byte[] scratch = new byte[256];
+    private int pos;
+    private int end;
+    private long line;
+    // spans of the terms of the current line: subject, predicate, object, graph
+    private final int[] kind = new int[4];
+    private final int[] start = new int[4];
+    private final int[] stop = new int[4];
+    private final boolean[] plain = new boolean[4];
+    private final int[] suffix = new int[4];
+    private final int[] suffixStart = new int[4];
+    private final int[] suffixStop = new int[4];
+
+    LineTokenizer(Set<String> excludedPredicates, boolean verifyUriSyntax) {
+      this.excludedPredicates = excludedPredicates;
+      this.verifyUriSyntax = verifyUriSyntax;
+    }
+
+    /**
+     * @param chunk lines to tokenize, from index 0 to the limit of the buffer
+     */
+    ChunkResult tokenize(ByteBuffer chunk, long firstLine, StatementSink out) {
+      ChunkResult result = new ChunkResult();
+      int length = chunk.limit();
+      buf = chunk;
+      pos = 0;
+      line = firstLine;
+      while (pos < length) {
+        int lineEnd = pos;
+        while (lineEnd < length && buf.get(lineEnd) != '\n') {
+          lineEnd++;
+        }
+        end = lineEnd;
+        if (end > pos && buf.get(end - 1) == '\r') {
+          end--;
+        }
+        Statement st = parseLine(result);
+        if (st != null) {
+          out.accept(st, Math.min(lineEnd + 1, length), line);
+        }
+        pos = lineEnd + 1;
+        line++;
+        result.lines++;
+      }
+      return result;
+    }
+
+    private Statement parseLine(ChunkResult result) {
+      skipWhitespace();
+      if (pos == end || buf.get(pos) == '#') {
+        return null;
+      }
+      scanTerm(0);
+      if (kind[0] == LITERAL) {
+        throw error("Literals are not allowed as subjects");
+      }
+      skipWhitespace();
+      scanTerm(1);
+      if (kind[1] != IRI) {
+        throw error("Predicates must be IRIs");
+      }
+      String predicate = text(1);
+      skipWhitespace();
+      scanTerm(2);
+      skipWhitespace();
+      boolean hasGraph = false;
+      if (pos < end && buf.get(pos) != '.') {
+        if (!quads) {
+          throw error("Expected '.' at the end of the triple");
+        }
+        scanTerm(3);
+        if (kind[3] == LITERAL) {
+          throw error("Literals are not allowed as graph names");
+        }
+        hasGraph = true;
+        skipWhitespace();
+      }
+      if (pos >= end || buf.get(pos) != '.') {
+        throw error("Expected '.' at the end of the statement");
+      }
+      pos++;
+      skipWhitespace();
+      if (pos < end && buf.get(pos) != '#') {
+        throw error("Unexpected content after the end of the statement");
+      }
+
+      if (excludedPredicates != null && excludedPredicates.contains(predicate)) {
+        result.excluded++;
+        return null;
+      }
+      Resource subject = (Resource) value(0);
+      Value object = value(2);
+      if (hasGraph) {
+        return vf.createStatement(subject, iri(predicate), object, (Resource) value(3));
+      }
+      return vf.createStatement(subject, iri(predicate), object);
+    }
+
+    private void scanTerm(int t) {
+      if (pos >= end) {
+        throw error("Unexpected end of line");
+      }
+      byte b = buf.get(pos);
+      if (b == '<') {
+        if (pos + 1 < end && buf.get(pos + 1) == '<') {
+          throw error("RDF-star triples are not supported by the line parser");
+        }
+        kind[t] = IRI;
+        start[t] = ++pos;
+        plain[t] = scanUntil('>');
+        stop[t] = pos++;
+      } else if (b == '_' && pos + 1 < end && buf.get(pos + 1) == ':') {
+        kind[t] = BNODE;
+        pos += 2;
+        start[t] = pos;
+        while (pos < end && buf.get(pos) != ' ' && buf.get(pos) != '\t' && buf.get(pos) != '<'
+            && buf.get(pos) != '"') {
+          pos++;
+        }
+        stop[t] = pos;
+        // labels can contain '.' but can't end with it: that's the end of statement
+        while (stop[t] > start[t] && buf.get(stop[t] - 1) == '.') {
+          stop[t]--;
+          pos--;
+        }
+        if (stop[t] == start[t]) {
+          throw error("Empty blank node label");
+        }
+        plain[t] = true;
+      } else if (b == '"') {
+        kind[t] = LITERAL;
+        start[t] = ++pos;
+        plain[t] = scanUntil('"');
+        stop[t] = pos++;
+        suffix[t] = NO_SUFFIX;
+        if (pos < end && buf.get(pos) == '@') {
+          suffix[t] = LANG_SUFFIX;
+          suffixStart[t] = ++pos;
+          while (pos < end && (Character.isLetterOrDigit(buf.get(pos)) || buf.get(pos) == '-')) {
+            pos++;
+          }
+          suffixStop[t] = pos;
+        } else if (pos + 2 < end && buf.get(pos) == '^' && buf.get(pos + 1) == '^'
+            && buf.get(pos + 2) == '<') {
+          suffix[t] = DATATYPE_SUFFIX;
+          pos += 3;
+          suffixStart[t] = pos;
+          scanUntil('>');
+          suffixStop[t] = pos++;
+        }
+      } else {
+        throw error("Unexpected character '" + (char) b + "'");
+      }
+    }
+
+    /**
+     * Moves to the next unescaped occurrence of the delimiter.
+     *
+     * @return whether the bytes scanned are plain ASCII without escapes
+     */
+    private boolean scanUntil(char delimiter) {
+      boolean plainAscii = true;
+      while (pos < end && buf.get(pos) != delimiter) {
+        if (buf.get(pos) == '\\') {
+          plainAscii = false;
+          pos++;
+        } else if (buf.get(pos) < 0) {
+          plainAscii = false;
+        }
+        pos++;
+      }
+      if (pos >= end) {
+        throw error("Missing closing '" + delimiter + "'");
+      }
+      return plainAscii;
+    }
+
+    private void skipWhitespace() {
+      while (pos < end && (buf.get(pos) == ' ' || buf.get(pos) == '\t')) {
+        pos++;
+      }
+    }
+
+    private Value value(int t) {
+      switch (kind[t]) {
+        case IRI:
+          return createIRI(text(t));
+        case BNODE:
+          return vf.createBNode(bnodePrefix + text(t));
+        default:
+          if (suffix[t] == LANG_SUFFIX) {
+            return vf.createLiteral(text(t), decode(suffixStart[t], suffixStop[t], true));
+          } else if (suffix[t] == DATATYPE_SUFFIX) {
+            return vf.createLiteral(text(t),
+                iri(decode(suffixStart[t], suffixStop[t], false)));
+          }
+          return vf.createLiteral(text(t));
+      }
+    }
+
+    private String text(int t) {
+      return decode(start[t], stop[t], plain[t]);
+    }
+
+    private String decode(int from, int to, boolean plainAscii) {
+      byte[] bytes;
+      int offset;
+      if (buf.hasArray()) {
+        bytes = buf.array();
+        offset = buf.arrayOffset() + from;
+      } else {
+        // mapped (off heap) chunk: only the bytes of the terms that are kept are copied
+        if (scratch.length < to - from) {
+          scratch = new byte[Math.max(to - from, scratch.length * 2)];
+        }
+        for (int i = from; i < to; i++) {
+          scratch[i - from] = buf.get(i);
+        }
+        bytes = scratch;
+        offset = 0;
+      }
+      if (plainAscii) {
+        return new String(bytes, offset, to - from, StandardCharsets.ISO_8859_1);
+      }
+      String raw = new String(bytes, offset, to - from, StandardCharsets.UTF_8);
+      return raw.indexOf('\\') < 0 ? raw : unescape(raw);
+    }
+
+    private String unescape(String s) {
+      StringBuilder sb = new StringBuilder(s.length());
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c != '\\' || i + 1 == s.length()) {
+          sb.append(c);
+          continue;
+        }
+        char e = s.charAt(++i);
+        switch (e) {
+          case 't':
+            sb.append('\t');
+            break;
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          case 'u':
+          case 'U':
+            int digits = (e == 'u' ? 4 : 8);
+            if (i + digits >= s.length()) {
+              throw error("Incomplete unicode escape");
+            }
+            try {
+              sb.appendCodePoint(Integer.parseInt(s.substring(i + 1, i + 1 + digits), 16));
+            } catch (IllegalArgumentException ex) {
+              throw error("Invalid unicode escape");
+            }
+            i += digits;
+            break;
+          default:
+            // \" \' \\ and anything else: the escaped char itself
+            sb.append(e);
+        }
+      }
+      return sb.toString();
+    }
+
+    private IRI iri(String uri) {
+      IRI iri = iriCache.get(uri);
+      if (iri == null) {
+        if (iriCache.size() >= MAX_CACHED_IRIS) {
+          iriCache.clear();
+        }
+        iri = createIRI(uri);
+        iriCache.put(uri, iri);
+      }
+      return iri;
+    }
+
+    /**
+     * Creates the IRI, rejecting it (as the Rio parsers do) if it's not an absolute IRI or, when
+     * verifying the syntax, it's not a valid one.
+     */
+    private IRI createIRI(String uri) {
+      if (verifyUriSyntax) {
+        try {
+          new ParsedIRI(uri);
+        } catch (URISyntaxException e) {
+          // with the line only, like the Rio parsers
+          throw new RDFParseException(e.getMessage(), line, -1);
+        }
+      }
+      try {
+        return vf.createIRI(uri);
+      } catch (IllegalArgumentException e) {
+        throw error(e.getMessage());
+      }
+    }
+
+    private RDFParseException error(String message) {
+      return new RDFParseException(message, line, pos - lineStart() + 1);
+    }
+
+    private int lineStart() {
+      int i = Math.min(pos, end) - 1;
+      while (i >= 0 && buf.get(i) != '\n') {
+        i--;
+      }
+      return i + 1;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package n10s.rdf.sync;
+
+import java.util.Map;
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Resource;
+
+/**
+ * Tells the (non blank node) subject each blank node of a parse belongs to: the one referencing it,
+ * directly or through other blank nodes. The statements about a blank node are synced with that
+ * subject. When a blank node is referenced more than once, the first reference wins. Blank node
+ * ids are only valid within a parse, so each pass of a sync has its own.
+ */
+class BlankNodeOwners {
+
+  // for each blank node id, the subject or blank node referencing it
+  private final Map<String, Resource> owners = new UnifiedMap<>();
+
+  /**
+   * Records a reference from the subject (or blank node) a statement is about to the blank node
+   * in its object.
+   */
+  void reference(Resource from, BNode to) {
+    if (!from.equals(to)) {
+      owners.putIfAbsent(to.getID(), from);
+    }
+  }
+
+  /**
+   * @return the subject the blank node belongs to, null if it's not referenced from one (so far)
+   */
+  Resource owner(BNode blankNode) {
+    Resource owner = owners.get(blankNode.getID());
+    // cycles of blank nodes have no owner
+    for (int hops = 0; owner instanceof BNode && hops < owners.size(); hops++) {
+      owner = owners.get(((BNode) owner).getID());
+    }
+    return owner instanceof BNode ? null : owner;
+  }
+}
@@ -0,0 +1,153 @@
+package n10s.rdf.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import n10s.ConfiguredStatementHandler;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.collections.api.map.primitive.LongObjectMap;
+import org.eclipse.collections.api.set.primitive.LongSet;
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * Second pass of a sync: hands over to the loader only the statements about the subjects that
+ * were added or changed since the previous sync, and keeps the uris of those subjects, so that
+ * their digests can be stored once they're loaded. The statements of a subject whose key is the
+ * one of a changed subject with another uri are not loaded (but reported): they'd be taken for
+ * that subject's in the next sync.
+ * <p>
+ * Statements about blank nodes go with the subject the blank node belongs to (see {@link
+ * BlankNodeOwners}). Those read before the statement linking their blank node to a subject are
+ * held until it comes, and dropped if it doesn't.
+ */
+class ChangedSubjectsFilter extends ConfiguredStatementHandler {
+
+  private final ConfiguredStatementHandler loader;
+  private final LongSet subjectsToLoad;
+  private final LongObjectMap<String> changedUris;
+  private final Map<String, Long> loadedSubjects = new UnifiedMap<>();
+  private final List<String> collidingSubjects = new ArrayList<>();
+  private final BlankNodeOwners blankNodeOwners = new BlankNodeOwners();
+  // statements about blank nodes whose subject is not known yet
+  private final Map<BNode, List<Statement>> heldStatements = new UnifiedMap<>();
+  private long statementsSkipped = 0;
+
+  /**
+   * @param changedUris uri of each changed subject, by subject key
+   */
+  ChangedSubjectsFilter(ConfiguredStatementHandler loader, LongSet subjectsToLoad,
+      LongObjectMap<String> changedUris) {
+    this.loader = loader;
+    this.subjectsToLoad = subjectsToLoad;
+    this.changedUris = changedUris;
+  }
+
+  @Override
+  public void handleStatement(Statement st) throws RDFHandlerException {
+    Resource subject = SubjectDigester.describedResource(st);
+    if (st.getObject() instanceof BNode) {
+      blankNodeOwners.reference(subject, (BNode) st.getObject());
+    }
+    if (subject instanceof BNode) {
+      Resource owner = blankNodeOwners.owner((BNode) subject);
+      if (owner == null) {
+        heldStatements.computeIfAbsent((BNode) subject, bnode -> new ArrayList<>()).add(st);
+        return;
+      }
+      subject = owner;
+    }
+    if (isToLoad(subject.stringValue())) {
+      loader.handleStatement(st);
+    } else {
+      statementsSkipped++;
+    }
+    if (st.getObject() instanceof BNode) {
+      List<Statement> held = heldStatements.remove((BNode) st.getObject());
+      if (held != null) {
+        for (Statement heldStatement : held) {
+          handleStatement(heldStatement);
+        }
+      }
+    }
+  }
+
+  private boolean isToLoad(String uri) {
+    long key = SubjectDigester.subjectKey(uri);
+    if (subjectsToLoad.contains(key)) {
+      String changedUri = changedUris.get(key);
+      if (changedUri == null || changedUri.equals(uri)) {
+        loadedSubjects.putIfAbsent(uri, key);
+        return true;
+      }
+      if (!collidingSubjects.contains(uri)) {
+        collidingSubjects.add(uri);
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void startRDF() throws RDFHandlerException {
+    loader.startRDF();
+  }
+
+  @Override
+  public void endRDF() throws RDFHandlerException {
+    // about blank nodes not referenced from any subject
+    heldStatements.values().forEach(held -> statementsSkipped += held.size());
+    heldStatements.clear();
+    loader.endRDF();
+  }
+
+  @Override
+  public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+    loader.handleNamespace(prefix, uri);
+  }
+
+  @Override
+  public void handleComment(String comment) throws RDFHandlerException {
+    loader.handleComment(comment);
+  }
+
+  @Override
+  public void handleExcludedStatements(long count) {
+    loader.handleExcludedStatements(count);
+  }
+
+  @Override
+  public void setInputStats(long bytes, long millis) {
+    loader.setInputStats(bytes, millis);
+  }
+
+  @Override
+  public void addEntryStats(Map<String, Object> stats) {
+    loader.addEntryStats(stats);
+  }
+
+  @Override
+  public RDFParserConfig getParserConfig() {
+    return loader.getParserConfig();
+  }
+
+  /**
+   * @return key of each of the subjects handed over to the loader, by uri
+   */
+  Map<String, Long> getLoadedSubjects() {
+    return loadedSubjects;
+  }
+
+  /**
+   * @return uris of the subjects not loaded because their key is the one of a changed subject
+   */
+  List<String> getCollidingSubjects() {
+    return collidingSubjects;
+  }
+
+  long getStatementsSkipped() {
+    return statementsSkipped;
+  }
+}
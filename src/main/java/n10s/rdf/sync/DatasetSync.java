@@ -0,0 +1,315 @@
+package n10s.rdf.sync;
+
+import static n10s.graphconfig.Params.DIGEST_PROPERTY;
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
+import static n10s.rdf.delete.SourceDeleter.untag;
+
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import n10s.rdf.load.PipelinedBatchWriter;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+/**
+ * Graph side of a sync. The subjects loaded by previous syncs of a source are the :Resource nodes
+ * tagged with it that hold a digest of their statements (see {@link SubjectDigester}). Comparing
+ * those digests with the ones of the incoming dataset tells the subjects that are unchanged (left
+ * as they are), changed, added and removed.
+ * <p>
+ * The description of a changed or removed subject (labels, properties and the outgoing
+ * relationships tagged with the source) is reset before the changed and added subjects are loaded
+ * again from the dataset. Nodes left empty and unconnected by the reset are deleted once the load
+ * is complete. Labels and properties are not tagged individually, so subjects also tagged with
+ * other sources (or written by an untagged import first) are not synced at all, but reported.
+ * <p>
+ * Blank nodes are synced with the subject referencing them (see {@link BlankNodeOwners}): the
+ * reset of a subject goes on to the blank nodes it links to.
+ * <p>
+ * Subjects are matched by the 64 bit hash of their uri. The uris of the changed subjects are kept,
+ * so that the statements of another subject with the same hash are not loaded in their place.
+ */
+class DatasetSync {
+
+  private static final Label RESOURCE = Label.label("Resource");
+  private static final String BLANK_NODE_PREFIX = "bnode://";
+
+  private final GraphDatabaseService db;
+  private final Log log;
+  private final String source;
+  private final int batchSize;
+
+  private final LongHashSet subjectsToLoad = new LongHashSet();
+  // node id and uri of the changed subjects, by subject key
+  private final LongLongHashMap changedNodeIds = new LongLongHashMap();
+  private final LongObjectHashMap<String> changedUris = new LongObjectHashMap<>();
+  private final LongArrayList removedNodeIds = new LongArrayList();
+  private final LongHashSet orphanCandidates = new LongHashSet();
+  private final List<String> skippedSubjects = new ArrayList<>();
+  private long subjectsUnchanged = 0;
+  private long relationshipsDeleted = 0;
+  private long nodesDeleted = 0;
+
+  DatasetSync(GraphDatabaseService db, Log log, String source, int batchSize) {
+    this.db = db;
+    this.log = log;
+    this.source = source;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Finds the subjects to reset and the ones to load comparing the stored digests with the
+   * incoming ones.
+   */
+  void compare(LongLongHashMap digests) {
+    subjectsToLoad.addAll(digests.keySet());
+    try (Transaction tx = db.beginTx(); ResourceIterator<Node> resources = tx
+        .findNodes(RESOURCE)) {
+      while (resources.hasNext()) {
+        Node node = resources.next();
+        Object storedDigest = node.getProperty(DIGEST_PROPERTY, null);
+        if (storedDigest == null || !isTagged(node)) {
+          continue;
+        }
+        String uri = (String) node.getProperty("uri");
+        long key = SubjectDigester.subjectKey(uri);
+        boolean removed = !digests.containsKey(key);
+        if (!removed && digests.get(key) == (long) storedDigest) {
+          subjectsToLoad.remove(key);
+          subjectsUnchanged++;
+        } else if (isShared(node)) {
+          // its labels and properties may come from the other sources too
+          subjectsToLoad.remove(key);
+          skippedSubjects.add(uri);
+        } else if (removed) {
+          removedNodeIds.add(node.getId());
+        } else {
+          changedNodeIds.put(key, node.getId());
+          changedUris.put(key, uri);
+        }
+      }
+    }
+    log.debug("Sync of source " + source + ": " + subjectsUnchanged + " subjects unchanged, "
+        + changedNodeIds.size() + " changed, " + getSubjectsAdded() + " added and "
+        + removedNodeIds.size() + " removed");
+  }
+
+  /**
+   * Removes the labels, properties (other than the uri and the source tags) and outgoing
+   * relationships tagged with the source of the changed and removed subjects. The digest goes with
+   * the properties, so that a sync that fails before the changed subjects are loaded again picks
+   * them up next time.
+   */
+  void resetSubjects() {
+    inBatches(LongArrayList.newListWith(changedNodeIds.values().toArray()), this::reset);
+    inBatches(removedNodeIds, this::reset);
+  }
+
+  /**
+   * Changed subjects not loaded again are no longer in the dataset: their key belongs to another
+   * subject in it. They're deleted with the removed ones.
+   *
+   * @param loadedSubjects key of each subject loaded, by uri
+   */
+  void checkChangedLoaded(Map<String, Long> loadedSubjects) {
+    changedUris.forEachKeyValue((key, uri) -> {
+      if (!loadedSubjects.containsKey(uri)) {
+        removedNodeIds.add(changedNodeIds.get(key));
+      }
+    });
+  }
+
+  /**
+   * Stores the incoming digests of the subjects loaded.
+   *
+   * @param loadedSubjects key of each subject loaded, by uri
+   */
+  void storeDigests(Map<String, Long> loadedSubjects, LongLongHashMap digests) {
+    Iterator<Entry<String, Long>> subjects = loadedSubjects.entrySet().iterator();
+    while (subjects.hasNext()) {
+      Entry<String, Long>[] batch = nextBatch(subjects);
+      PipelinedBatchWriter.commitWithRetries(db, log, false, tx -> {
+        for (Entry<String, Long> subject : batch) {
+          Node node = tx.findNode(RESOURCE, "uri", subject.getKey());
+          // none when all the statements about the subject were filtered out by the config
+          if (node != null) {
+            node.setProperty(DIGEST_PROPERTY, digests.get(subject.getValue()));
+          }
+        }
+        return 0;
+      });
+    }
+  }
+
+  /**
+   * Deletes the removed subjects and the nodes the reset subjects linked to, if they're left empty
+   * and unconnected (and not tagged with other sources).
+   */
+  void deleteOrphans() {
+    LongArrayList candidates = new LongArrayList();
+    candidates.addAll(removedNodeIds);
+    orphanCandidates.removeAll(removedNodeIds);
+    candidates.addAll(orphanCandidates);
+    inBatches(candidates, this::deleteIfOrphan);
+  }
+
+  private interface NodeOperation {
+
+    /**
+     * @param counts of relationships and nodes deleted, to be added to
+     * @param linked ids of the nodes linked from the node, to be added to
+     */
+    void apply(Node node, long[] counts, LongArrayList linked);
+  }
+
+  private void inBatches(LongArrayList nodeIds, NodeOperation operation) {
+    for (int first = 0; first < nodeIds.size(); first += batchSize) {
+      int from = first;
+      int to = Math.min(nodeIds.size(), first + batchSize);
+      long[] counts = new long[2];
+      LongArrayList linked = new LongArrayList();
+      PipelinedBatchWriter.commitWithRetries(db, log, false, tx -> {
+        // only what the attempt that commits did
+        Arrays.fill(counts, 0);
+        linked.clear();
+        for (int i = from; i < to; i++) {
+          try {
+            operation.apply(tx.getNodeById(nodeIds.get(i)), counts, linked);
+          } catch (NotFoundException e) {
+            // deleted since it was found
+          }
+        }
+        return 0;
+      });
+      relationshipsDeleted += counts[0];
+      nodesDeleted += counts[1];
+      orphanCandidates.addAll(linked);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Entry<String, Long>[] nextBatch(Iterator<Entry<String, Long>> entries) {
+    Entry<String, Long>[] batch = new Entry[batchSize];
+    int size = 0;
+    while (size < batchSize && entries.hasNext()) {
+      batch[size++] = entries.next();
+    }
+    return Arrays.copyOf(batch, size);
+  }
+
+  /**
+   * Also resets the blank nodes the node links to (unless shared with other sources), as their
+   * description is synced with it and they get new ids when loaded again.
+   */
+  private void reset(Node node, long[] counts, LongArrayList linked) {
+    for (Relationship rel : node.getRelationships(Direction.OUTGOING)) {
+      if (isTagged(rel) && untag(rel, source)) {
+        Node end = rel.getEndNode();
+        linked.add(end.getId());
+        rel.delete();
+        counts[0]++;
+        if (((String) end.getProperty("uri", "")).startsWith(BLANK_NODE_PREFIX) && isTagged(end)
+            && !isShared(end)) {
+          reset(end, counts, linked);
+        }
+      }
+    }
+    for (Label label : node.getLabels()) {
+      if (!label.equals(RESOURCE)) {
+        node.removeLabel(label);
+      }
+    }
+    for (String key : node.getPropertyKeys()) {
+      if (!key.equals("uri") && !key.equals(SOURCES_PROPERTY)) {
+        node.removeProperty(key);
+      }
+    }
+  }
+
+  private void deleteIfOrphan(Node node, long[] counts, LongArrayList linked) {
+    if (node.hasRelationship() || !node.hasLabel(RESOURCE)
+        || Iterators.size(node.getLabels().iterator()) > 1) {
+      return;
+    }
+    for (String key : node.getPropertyKeys()) {
+      if (!key.equals("uri") && !key.equals(SOURCES_PROPERTY)) {
+        return;
+      }
+    }
+    if (untag(node, source)) {
+      node.delete();
+      counts[1]++;
+    }
+  }
+
+  private boolean isTagged(Entity entity) {
+    String[] sources = (String[]) entity.getProperty(SOURCES_PROPERTY, null);
+    return sources != null && Arrays.asList(sources).contains(source);
+  }
+
+  /**
+   * @return true if the node is tagged with other sources as well (or the untagged placeholder)
+   */
+  private boolean isShared(Node node) {
+    String[] sources = (String[]) node.getProperty(SOURCES_PROPERTY, null);
+    return sources != null && Arrays.stream(sources).anyMatch(s -> !s.equals(source));
+  }
+
+  LongHashSet getSubjectsToLoad() {
+    return subjectsToLoad;
+  }
+
+  /**
+   * @return uri of each changed subject, by subject key
+   */
+  LongObjectHashMap<String> getChangedUris() {
+    return changedUris;
+  }
+
+  /**
+   * @return uris of the subjects shared with other sources, that were not synced
+   */
+  List<String> getSkippedSubjects() {
+    return skippedSubjects;
+  }
+
+  long getSubjectsUnchanged() {
+    return subjectsUnchanged;
+  }
+
+  long getSubjectsChanged() {
+    return changedNodeIds.size();
+  }
+
+  long getSubjectsAdded() {
+    return subjectsToLoad.size() - changedNodeIds.size();
+  }
+
+  long getSubjectsRemoved() {
+    return removedNodeIds.size();
+  }
+
+  long getRelationshipsDeleted() {
+    return relationshipsDeleted;
+  }
+
+  long getNodesDeleted() {
+    return nodesDeleted;
+  }
+}
@@ -0,0 +1,131 @@
+package n10s.rdf.sync;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.GraphConfigCache;
+import n10s.graphconfig.RDFParserConfig;
+import n10s.rdf.RDFProcedures;
+import n10s.rdf.load.DirectStatementLoader;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+
+public class RDFSyncProcedures extends RDFProcedures {
+
+  // uris of the subjects not synced listed in the results
+  private static final int MAX_SKIPPED_REPORTED = 10;
+
+  @Procedure(name = "n10s.rdf.sync", mode = Mode.WRITE)
+  @Description("Brings the graph loaded by previous syncs of a dataset (identified by the 'source' "
+      + "param, the url by default) up to date with a new version of it, fetched from url. Only "
+      + "the subjects whose statements changed are loaded again.")
+  public Stream<SyncResults> sync(@Name("url") String url, @Name("format") String format,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+    SyncResults results = new SyncResults();
+    // the source tags tell the subjects of the dataset from the rest of the graph
+    Map<String, Object> syncProps = new HashMap<>(props);
+    syncProps.putIfAbsent("source", url);
+    RDFParserConfig conf;
+    RDFFormat rdfFormat;
+    try {
+      checkConstraintExist();
+      conf = new RDFParserConfig(syncProps, GraphConfigCache.get(tx));
+      rdfFormat = getFormat(format);
+    } catch (RDFImportPreRequisitesNotMet | RDFImportBadParams e) {
+      results.setTerminationKO(e.getMessage());
+      return Stream.of(results);
+    } catch (GraphConfig.GraphConfigNotFound e) {
+      results.setTerminationKO("A Graph Config is required for RDF importing procedures to run");
+      return Stream.of(results);
+    }
+    results.callParams = syncProps;
+
+    DatasetSync sync = new DatasetSync(db, log, conf.getSource(), (int) conf.getCommitSize());
+    DirectStatementLoader loader = null;
+    List<String> skipped = new ArrayList<>();
+    try {
+      SubjectDigester digester = new SubjectDigester(conf);
+      parseRDFPayloadOrFromUrl(rdfFormat, url, null, syncProps, digester);
+      results.triplesParsed = digester.getStatementCount();
+      if (digester.getBlankNodeStatementCount() > 0) {
+        results.extraInfo = digester.getBlankNodeStatementCount()
+            + " statements about blank nodes not referenced from any subject were not synced. ";
+      }
+      sync.compare(digester.getDigests());
+      skipped.addAll(sync.getSkippedSubjects());
+      sync.resetSubjects();
+      if (!sync.getSubjectsToLoad().isEmpty()) {
+        loader = new DirectStatementLoader(db, tx, conf, log);
+        ChangedSubjectsFilter filter = new ChangedSubjectsFilter(loader, sync.getSubjectsToLoad(),
+            sync.getChangedUris());
+        parseRDFPayloadOrFromUrl(rdfFormat, url, null, syncProps, filter);
+        sync.storeDigests(filter.getLoadedSubjects(), digester.getDigests());
+        sync.checkChangedLoaded(filter.getLoadedSubjects());
+        skipped.addAll(filter.getCollidingSubjects());
+      }
+      sync.deleteOrphans();
+    } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+      if (loader != null) {
+        //batches already handed over to writer threads (if any) are completed before reporting
+        loader.awaitPendingWrites();
+      }
+      results.setTerminationKO(e.getMessage());
+    }
+    if (loader != null) {
+      results.triplesLoaded = loader.totalTriplesMapped;
+      results.namespaces = loader.getNamespaces();
+      if (results.terminationStatus.equals("OK")) {
+        results.extraInfo += loader.getWarnings();
+      }
+      results.stats = loader.getImportStats();
+    }
+    results.subjectsUnchanged = sync.getSubjectsUnchanged();
+    results.subjectsChanged = sync.getSubjectsChanged();
+    results.subjectsAdded = sync.getSubjectsAdded();
+    results.subjectsRemoved = sync.getSubjectsRemoved();
+    results.subjectsSkipped = skipped.size();
+    if (!skipped.isEmpty() && results.terminationStatus.equals("OK")) {
+      results.extraInfo += skipped.size() + " subjects shared with other sources (or with the same "
+          + "key as another subject) were not synced: " + String.join(", ",
+          skipped.subList(0, Math.min(skipped.size(), MAX_SKIPPED_REPORTED)))
+          + (skipped.size() > MAX_SKIPPED_REPORTED ? ", ..." : "") + ". ";
+    }
+    results.relationshipsDeleted = sync.getRelationshipsDeleted();
+    results.nodesDeleted = sync.getNodesDeleted();
+    return Stream.of(results);
+  }
+
+  public static class SyncResults {
+
+    public String terminationStatus = "OK";
+    public long triplesParsed = 0;
+    public long triplesLoaded = 0;
+    public long subjectsUnchanged = 0;
+    public long subjectsChanged = 0;
+    public long subjectsAdded = 0;
+    public long subjectsRemoved = 0;
+    public long subjectsSkipped = 0;
+    public long relationshipsDeleted = 0;
+    public long nodesDeleted = 0;
+    public Map<String, String> namespaces;
+    public String extraInfo = "";
+    public Map<String, Object> callParams;
+    public Map<String, Object> stats = new HashMap<>();
+
+    public void setTerminationKO(String message) {
+      this.terminationStatus = "KO";
+      this.extraInfo = message;
+    }
+  }
+
+}
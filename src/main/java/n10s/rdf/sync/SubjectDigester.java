@@ -0,0 +1,160 @@
+package n10s.rdf.sync;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import n10s.ConfiguredStatementHandler;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Triple;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * First pass of a sync: computes a digest of the statements about each subject in the dataset,
+ * without writing anything. Subjects are keyed by a 64 bit hash of their uri and the digest is the
+ * sum of the hashes of their statements, so it doesn't depend on the order of the statements in
+ * the input (but a repeated statement counts twice). Statements with an RDF-star subject count for
+ * the subject of the quoted triple, as that's where the relationship they describe starts.
+ * Statements about blank nodes count for the subject referencing the blank node (see {@link
+ * BlankNodeOwners}), once the whole input is read. Those about blank nodes not referenced from
+ * any subject are left out, as blank node ids are not kept across parses.
+ */
+public class SubjectDigester extends ConfiguredStatementHandler {
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final RDFParserConfig parserConfig;
+  private final LongLongHashMap digests = new LongLongHashMap();
+  private final BlankNodeOwners blankNodeOwners = new BlankNodeOwners();
+  // digest and count of the statements about each blank node
+  private final Map<BNode, long[]> blankNodeDigests = new UnifiedMap<>();
+  private long statementCount = 0;
+  private long blankNodeStatementCount = 0;
+
+  public SubjectDigester(RDFParserConfig parserConfig) {
+    this.parserConfig = parserConfig;
+  }
+
+  /**
+   * @return the subject (or blank node) the statement is about
+   */
+  static Resource describedResource(Statement st) {
+    Resource subject = st.getSubject();
+    while (subject instanceof Triple) {
+      subject = ((Triple) subject).getSubject();
+    }
+    return subject;
+  }
+
+  static long subjectKey(String uri) {
+    return HASH.hashString(uri, StandardCharsets.UTF_8).asLong();
+  }
+
+  static long statementHash(Statement st) {
+    Hasher hasher = HASH.newHasher();
+    putValue(hasher, st.getSubject());
+    putValue(hasher, st.getPredicate());
+    putValue(hasher, st.getObject());
+    return hasher.hash().asLong();
+  }
+
+  private static void putValue(Hasher hasher, Value value) {
+    if (value instanceof Triple) {
+      Triple triple = (Triple) value;
+      hasher.putByte((byte) 't');
+      putValue(hasher, triple.getSubject());
+      putValue(hasher, triple.getPredicate());
+      putValue(hasher, triple.getObject());
+    } else if (value instanceof BNode) {
+      // the id of a blank node changes with every parse of the same input
+      hasher.putByte((byte) 'b');
+    } else if (value instanceof Literal) {
+      Literal literal = (Literal) value;
+      hasher.putByte((byte) 'l').putString(literal.getLabel(), StandardCharsets.UTF_8);
+      hasher.putByte((byte) 0).putString(literal.getLanguage().orElse(""), StandardCharsets.UTF_8);
+      hasher.putByte((byte) 0)
+          .putString(literal.getDatatype().stringValue(), StandardCharsets.UTF_8);
+    } else {
+      hasher.putByte((byte) 'i').putString(value.stringValue(), StandardCharsets.UTF_8);
+    }
+    hasher.putByte((byte) 0);
+  }
+
+  @Override
+  public void handleStatement(Statement st) throws RDFHandlerException {
+    Set<String> excludedPredicates = parserConfig.getPredicateExclusionList();
+    if (excludedPredicates != null && excludedPredicates
+        .contains(st.getPredicate().stringValue())) {
+      return;
+    }
+    statementCount++;
+    Resource subject = describedResource(st);
+    if (st.getObject() instanceof BNode) {
+      blankNodeOwners.reference(subject, (BNode) st.getObject());
+    }
+    if (subject instanceof BNode) {
+      long[] digest = blankNodeDigests.computeIfAbsent((BNode) subject, bnode -> new long[2]);
+      digest[0] += statementHash(st);
+      digest[1]++;
+    } else {
+      digests.addToValue(subjectKey(subject.stringValue()), statementHash(st));
+    }
+  }
+
+  @Override
+  public void startRDF() throws RDFHandlerException {
+  }
+
+  @Override
+  public void endRDF() throws RDFHandlerException {
+    blankNodeDigests.forEach((bnode, digest) -> {
+      Resource owner = blankNodeOwners.owner(bnode);
+      if (owner != null) {
+        digests.addToValue(subjectKey(owner.stringValue()), digest[0]);
+      } else {
+        blankNodeStatementCount += digest[1];
+      }
+    });
+    blankNodeDigests.clear();
+  }
+
+  @Override
+  public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+  }
+
+  @Override
+  public void handleComment(String comment) throws RDFHandlerException {
+  }
+
+  @Override
+  public RDFParserConfig getParserConfig() {
+    return parserConfig;
+  }
+
+  /**
+   * @return digest of the statements about each subject, by subject key
+   */
+  public LongLongHashMap getDigests() {
+    return digests;
+  }
+
+  public long getStatementCount() {
+    return statementCount;
+  }
+
+  /**
+   * @return number of statements about blank nodes not referenced from any subject
+   */
+  public long getBlankNodeStatementCount() {
+    return blankNodeStatementCount;
+  }
+}
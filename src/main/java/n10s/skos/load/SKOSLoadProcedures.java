@@ -5,6 +5,7 @@ import java.util.Map;
 import java.util.stream.Stream;
 import n10s.RDFImportException;
 import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.graphconfig.RDFParserConfig;
 import n10s.rdf.RDFProcedures;
 import org.eclipse.rdf4j.rio.RDFFormat;
@@ -50,7 +51,7 @@ public class SKOSLoadProcedures extends RDFProcedures {
     ImportResults importResults = new ImportResults();
     try {
       checkConstraintExist();
-      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      conf = new RDFParserConfig(props, GraphConfigCache.get(tx));
       rdfFormat = getFormat(format);
       skosImporter = new SkosImporter(db, tx, conf, log);
     } catch (RDFImportPreRequisitesNotMet e) {
@@ -67,11 +68,13 @@ public class SKOSLoadProcedures extends RDFProcedures {
         parseRDFPayloadOrFromUrl(rdfFormat, url, rdfFragment, props, skosImporter);
         importResults.setTriplesLoaded(skosImporter.totalTriplesMapped);
         importResults.setTriplesParsed(skosImporter.totalTriplesParsed);
+        importResults.setStats(skosImporter.getImportStats());
         importResults.setConfigSummary(props);
       } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
         importResults.setTerminationKO(e.getMessage());
         importResults.setTriplesLoaded(skosImporter.totalTriplesMapped);
         importResults.setTriplesParsed(skosImporter.totalTriplesParsed);
+        importResults.setStats(skosImporter.getImportStats());
         importResults.setConfigSummary(props);
         e.printStackTrace();
       }
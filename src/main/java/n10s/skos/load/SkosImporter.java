@@ -24,7 +24,6 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
-import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 
@@ -64,14 +63,19 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
       }
     }
 
+    long triples = mappedTripleCounter;
+    long pendingState = resourceLabels.size() + statements.size();
+    long startNanos = System.nanoTime();
     try (Transaction tempTransaction = graphdb.beginTx()) {
       this.runPartialTx(tempTransaction);
       tempTransaction.commit();
       log.debug("partial commit: " + mappedTripleCounter + " triples ingested. Total so far: "
               + totalTriplesMapped);
       totalTriplesMapped += mappedTripleCounter;
+      adaptCommitSize(triples, pendingState, startNanos, true);
     } catch (Exception e) {
       log.error("Problems when running partial commit. Partial transaction rolled back. "  + mappedTripleCounter + " triples lost.", e);
+      adaptCommitSize(triples, pendingState, startNanos, false);
       if (getParserConfig().isAbortOnError()){
         throw new PartialCommitException("Problems when running partial commit. Partial transaction rolled back. " , e);
       }
@@ -244,7 +248,7 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
             }
           });
 
-          entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
+          entry.getValue().forEach(l -> node.addLabel(labelFor(l)));
 
           resourceProps.get(entry.getKey()).forEach((k, v) -> {
             //node.setProperty(k, v);
@@ -298,13 +302,13 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
         // check if the rel is already present. If so, don't recreate.
         // explore the node with the lowest degree
         boolean found = false;
-        if (fromNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+        if (fromNode.getDegree(relationshipTypeFor(translateRelName(st.getPredicate())),
             Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+            toNode.getDegree(relationshipTypeFor(translateRelName(st.getPredicate())),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)))) {
+                  relationshipTypeFor(translateRelName(st.getPredicate())))) {
             if (rel.getEndNode().equals(toNode)) {
               found = true;
               break;
@@ -313,7 +317,7 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)))) {
+                  relationshipTypeFor(translateRelName(st.getPredicate())))) {
             if (rel.getStartNode().equals(fromNode)) {
               found = true;
               break;
@@ -324,7 +328,7 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
         if (!found) {
           fromNode.createRelationshipTo(
               toNode,
-              RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)));
+              relationshipTypeFor(translateRelName(st.getPredicate())));
         }
       } catch (ExecutionException e) {
         e.printStackTrace();
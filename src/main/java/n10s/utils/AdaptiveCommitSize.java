@@ -0,0 +1,73 @@
+package n10s.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the number of triples for the next partial commit based on how the previous ones went.
+ * <p>
+ * The cost of a commit is driven by the state pending in the transaction (nodes and
+ * relationships to be written) rather than by the number of triples: a batch of literals turns
+ * into a few node updates while a batch of relationships on supernodes can be orders of magnitude
+ * more expensive. After every commit, the average cost (in millis) per pending entry is updated
+ * and the next size is the number of triples that, with the entries per triple of the last batch,
+ * is expected to commit in the target time. Sizes change at most by a factor of two per commit
+ * and are halved after a failed commit. They always stay within the configured bounds.
+ */
+public class AdaptiveCommitSize {
+
+  private final long minSize;
+  private final long maxSize;
+  private final long targetMillis;
+  private long currentSize;
+  private double avgMillisPerEntry = -1;
+  private final List<Long> chosenSizes = new ArrayList<>();
+
+  public AdaptiveCommitSize(long initialSize, long minSize, long maxSize, long targetMillis) {
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.targetMillis = targetMillis;
+    this.currentSize = Math.min(maxSize, Math.max(minSize, initialSize));
+  }
+
+  /**
+   * Records the outcome of a partial commit.
+   *
+   * @param triples triples in the batch
+   * @param pendingState nodes and relationships written by the batch
+   * @param durationMillis time taken to write and commit the batch
+   * @param success whether the commit went through
+   * @return commit size for the next batch
+   */
+  public synchronized long batchCommitted(long triples, long pendingState, long durationMillis,
+      boolean success) {
+    chosenSizes.add(currentSize);
+    if (!success) {
+      currentSize = Math.max(minSize, currentSize / 2);
+      return currentSize;
+    }
+    if (triples == 0 || pendingState == 0) {
+      return currentSize;
+    }
+    double millisPerEntry = (double) durationMillis / pendingState;
+    avgMillisPerEntry = (avgMillisPerEntry < 0 ? millisPerEntry
+        : (avgMillisPerEntry + millisPerEntry) / 2);
+    double entriesPerTriple = (double) pendingState / triples;
+    double idealSize = avgMillisPerEntry > 0 ? targetMillis / (avgMillisPerEntry * entriesPerTriple)
+        : Double.MAX_VALUE;
+    long nextSize = (long) Math.min(Math.max(idealSize, currentSize / 2.0), currentSize * 2.0);
+    currentSize = Math.min(maxSize, Math.max(minSize, nextSize));
+    return currentSize;
+  }
+
+  public synchronized long getCommitSize() {
+    return currentSize;
+  }
+
+  /**
+   * @return the commit size used for each of the batches committed so far
+   */
+  public synchronized List<Long> getChosenSizes() {
+    return new ArrayList<>(chosenSizes);
+  }
+}
@@ -3,6 +3,8 @@ package n10s.utils;
 import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeParseException;
 import java.util.Calendar;
 
@@ -19,72 +21,216 @@ public class DateUtils {
 	 * @throws IllegalArgumentException if the string is not parseable to a date.
 	 */
 	public static LocalDateTime parseDateTime(String stringDateTime) {
-		boolean dateParsed = false;
-		LocalDateTime localDateTime = null;
-		StringBuilder parserErrors = new StringBuilder("Error parsing ").append(stringDateTime).append(":\n");
+		LocalDateTime localDateTime = parseDateTimeOrNull(stringDateTime);
+		if (localDateTime == null) {
+			throw new IllegalArgumentException("Error parsing " + stringDateTime);
+		}
+		return localDateTime;
+	}
 
-		/* Try date parsing with LocalDateTime.parse */
-		try {
-			localDateTime = LocalDateTime.parse(stringDateTime);
-			dateParsed = true;
-		} catch (DateTimeParseException e) {
-			dateParsed = false;
-			parserErrors.append(e.getMessage()).append("\n");
+	/**
+	 * Same as {@link #parseDateTime(String)}, returning null instead of throwing
+	 * if the string is not parseable to a date. Values in the xsd:dateTime
+	 * lexical form, with or without time zone and fractional seconds, are read
+	 * in a single pass without throwing: only values outside of it go to
+	 * LocalDateTime.parse and DatatypeConverter.parseDateTime.
+	 */
+	public static LocalDateTime parseDateTimeOrNull(String stringDateTime) {
+		LocalDateTime localDateTime = new XsdDateParser(stringDateTime).dateTime();
+		if (localDateTime != null) {
+			return localDateTime;
 		}
 
-		/* If date is not parsed */
-		if (!dateParsed) {
-			/* Try with DatatypeConverter.parseDateTime */
+		/* Try date parsing with LocalDateTime.parse */
+		if (!hasTimeZone(stringDateTime)) {
 			try {
-				Calendar calendar = DatatypeConverter.parseDateTime(stringDateTime);
-				localDateTime = LocalDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
-				dateParsed = true;
-			} catch (IllegalArgumentException | DateTimeException e) {
-				dateParsed = false;
-				parserErrors.append(e.getMessage()).append("\n");
+				return LocalDateTime.parse(stringDateTime);
+			} catch (DateTimeParseException e) {
+				//not ISO, try with DatatypeConverter
 			}
 		}
 
-		/* If date is not parsed, throw exception */
-		if (!dateParsed) {
-			throw new IllegalArgumentException(parserErrors.toString());
-		} else {
-			return localDateTime;
+		/* Try with DatatypeConverter.parseDateTime */
+		try {
+			Calendar calendar = DatatypeConverter.parseDateTime(stringDateTime);
+			return LocalDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+		} catch (IllegalArgumentException | DateTimeException e) {
+			return null;
 		}
 	}
 
 	public static LocalDate parseDate(String stringDate) {
-		boolean dateParsed = false;
-		LocalDate localDate = null;
-		StringBuilder parserErrors = new StringBuilder("Error parsing ").append(stringDate).append(":\n");
+		LocalDate localDate = parseDateOrNull(stringDate);
+		if (localDate == null) {
+			throw new IllegalArgumentException("Error parsing " + stringDate);
+		}
+		return localDate;
+	}
 
-		/* Try date parsing with LocalDateTime.parse */
-		try {
-			localDate = LocalDate.parse(stringDate);
-			dateParsed = true;
-		} catch (DateTimeParseException e) {
-			dateParsed = false;
-			parserErrors.append(e.getMessage()).append("\n");
+	/**
+	 * Same as {@link #parseDate(String)}, returning null instead of throwing if
+	 * the string is not parseable to a date. Values in the xsd:date lexical form
+	 * are read in a single pass, like in {@link #parseDateTimeOrNull(String)}.
+	 */
+	public static LocalDate parseDateOrNull(String stringDate) {
+		LocalDate localDate = new XsdDateParser(stringDate).date();
+		if (localDate != null) {
+			return localDate;
 		}
 
-		/* If date is not parsed */
-		if (!dateParsed) {
-			/* Try with DatatypeConverter.parseDateTime */
+		/* Try date parsing with LocalDate.parse */
+		if (!hasTimeZone(stringDate)) {
 			try {
-				Calendar calendar = DatatypeConverter.parseDate(stringDate);
-				localDate = LocalDate.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
-				dateParsed = true;
-			} catch (IllegalArgumentException | DateTimeException e) {
-				dateParsed = false;
-				parserErrors.append(e.getMessage()).append("\n");
+				return LocalDate.parse(stringDate);
+			} catch (DateTimeParseException e) {
+				//not ISO, try with DatatypeConverter
 			}
 		}
 
-		/* If date is not parsed, throw exception */
-		if (!dateParsed) {
-			throw new IllegalArgumentException(parserErrors.toString());
-		} else {
-			return localDate;
+		/* Try with DatatypeConverter.parseDate */
+		try {
+			Calendar calendar = DatatypeConverter.parseDate(stringDate);
+			return LocalDate.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+		} catch (IllegalArgumentException | DateTimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if the string ends in a time zone: Z, or an offset like +01:00
+	 */
+	private static boolean hasTimeZone(String value) {
+		int length = value.length();
+		if (length > 0 && value.charAt(length - 1) == 'Z') {
+			return true;
+		}
+		return length > 6 && value.charAt(length - 3) == ':'
+				&& (value.charAt(length - 6) == '+' || value.charAt(length - 6) == '-');
+	}
+
+	/**
+	 * Single pass reader of the xsd:date and xsd:dateTime lexical forms
+	 * ({@code [-]yyyy-MM-dd['T'HH:mm:ss[.S+]][Z|(+|-)hh:mm]}) returning null,
+	 * rather than throwing, on anything else (including valid but unusual values
+	 * like 24:00:00, left to the slower parsers). As with DatatypeConverter, the
+	 * time zone is checked but not applied: the result is the local date and time
+	 * as written.
+	 */
+	private static class XsdDateParser {
+
+		private final String value;
+		private int pos;
+
+		private XsdDateParser(String value) {
+			this.value = value;
+		}
+
+		private LocalDate date() {
+			LocalDate date = readDate();
+			return date != null && readTimeZone() ? date : null;
+		}
+
+		private LocalDateTime dateTime() {
+			LocalDate date = readDate();
+			if (date == null || !read('T')) {
+				return null;
+			}
+			int hour = readDigits(2);
+			int minute = read(':') ? readDigits(2) : -1;
+			int second = read(':') ? readDigits(2) : -1;
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+				return null;
+			}
+			int nano = 0;
+			if (read('.')) {
+				int digits = 0;
+				while (pos < value.length() && isDigit(value.charAt(pos))) {
+					// nanosecond precision, further digits are dropped
+					if (digits++ < 9) {
+						nano = nano * 10 + (value.charAt(pos) - '0');
+					}
+					pos++;
+				}
+				if (digits == 0) {
+					return null;
+				}
+				for (; digits < 9; digits++) {
+					nano *= 10;
+				}
+			}
+			return readTimeZone() ? date.atTime(hour, minute, second, nano) : null;
+		}
+
+		private LocalDate readDate() {
+			boolean negative = read('-');
+			int yearStart = pos;
+			long year = 0;
+			while (pos < value.length() && isDigit(value.charAt(pos)) && pos - yearStart < 10) {
+				year = year * 10 + (value.charAt(pos++) - '0');
+			}
+			// at least four digits, no leading zeros beyond those
+			int yearDigits = pos - yearStart;
+			if (yearDigits < 4 || (yearDigits > 4 && value.charAt(yearStart) == '0')) {
+				return null;
+			}
+			year = negative ? -year : year;
+			int month = read('-') ? readDigits(2) : -1;
+			int day = read('-') ? readDigits(2) : -1;
+			if (year < Year.MIN_VALUE || year > Year.MAX_VALUE || month < 1 || month > 12
+					|| day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+				return null;
+			}
+			return LocalDate.of((int) year, month, day);
+		}
+
+		/**
+		 * @return true if the rest of the value is empty or a valid time zone
+		 */
+		private boolean readTimeZone() {
+			if (pos == value.length()) {
+				return true;
+			}
+			if (read('Z')) {
+				return pos == value.length();
+			}
+			if (!read('+') && !read('-')) {
+				return false;
+			}
+			int hours = readDigits(2);
+			int minutes = read(':') ? readDigits(2) : -1;
+			return pos == value.length() && hours >= 0 && minutes >= 0 && minutes <= 59
+					&& (hours < 14 || (hours == 14 && minutes == 0));
+		}
+
+		private boolean read(char c) {
+			if (pos < value.length() && value.charAt(pos) == c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return the number made of the next count digits, -1 if there are not as many
+		 */
+		private int readDigits(int count) {
+			if (pos + count > value.length()) {
+				return -1;
+			}
+			int number = 0;
+			for (int i = 0; i < count; i++) {
+				char c = value.charAt(pos + i);
+				if (!isDigit(c)) {
+					return -1;
+				}
+				number = number * 10 + (c - '0');
+			}
+			pos += count;
+			return number;
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
 		}
 	}
 }
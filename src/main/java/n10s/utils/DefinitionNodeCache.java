@@ -0,0 +1,138 @@
+package n10s.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.atomic.AtomicLong;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListener;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+
+/**
+ * Copy, for one database, of a definition stored on a single node (like the namespace prefixes on
+ * the _NsPrefDef node), so that code reading it does not have to go to the store on every call.
+ * Registered as a transaction event listener on the database: the copy is dropped when a committed
+ * transaction creates, deletes, relabels or changes the properties of the node. A transaction that
+ * has changed the definition itself (see {@link #recordChange}) keeps reading it from the db until it
+ * completes, as the copy does not include its changes.
+ */
+public abstract class DefinitionNodeCache<T, E extends Exception> implements
+    TransactionEventListener<Boolean> {
+
+  private static final int MAX_CHANGING_TRANSACTIONS = 10000;
+
+  private final Label label;
+  private final AtomicLong version = new AtomicLong();
+  private volatile Snapshot<T> snapshot;
+  // id of the definition node when the snapshot was taken, -1 if there was none
+  private volatile long definitionNodeId = -1;
+  // user transaction ids (the Transaction objects differ between the statements of a transaction)
+  // of the open transactions that changed the definition. Rolled back ones are never removed.
+  private final Cache<Long, Boolean> changingTransactions = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CHANGING_TRANSACTIONS).build();
+
+  protected DefinitionNodeCache(Label label) {
+    this.label = label;
+  }
+
+  /**
+   * Reads the definition from the db.
+   */
+  protected abstract T load(Transaction tx) throws E;
+
+  /**
+   * @return the definition as seen by the transaction
+   */
+  protected T lookup(Transaction tx) throws E {
+    if (changingTransactions.getIfPresent(userTransactionId(tx)) != null) {
+      return load(tx);
+    }
+    // read before loading: a change committed while loading leaves the snapshot already stale
+    long currentVersion = version.get();
+    Snapshot<T> current = snapshot;
+    if (current != null && current.version == currentVersion) {
+      return current.value;
+    }
+    try (ResourceIterator<Node> definitionNodes = tx.findNodes(label)) {
+      definitionNodeId = definitionNodes.hasNext() ? definitionNodes.next().getId() : -1;
+    }
+    T value = load(tx);
+    snapshot = new Snapshot<>(currentVersion, value);
+    return value;
+  }
+
+  /**
+   * Records that the transaction has changed the definition in the db.
+   */
+  protected void recordChange(Transaction tx) {
+    changingTransactions.put(userTransactionId(tx), true);
+  }
+
+  private static long userTransactionId(Transaction tx) {
+    return ((InternalTransaction) tx).kernelTransaction().getUserTransactionId();
+  }
+
+  @Override
+  public Boolean beforeCommit(TransactionData data, Transaction transaction,
+      GraphDatabaseService databaseService) {
+    if (transaction instanceof InternalTransaction) {
+      changingTransactions.invalidate(userTransactionId(transaction));
+    }
+    // the definition node created, deleted or relabelled
+    for (LabelEntry entry : data.assignedLabels()) {
+      if (entry.label().equals(label)) {
+        return true;
+      }
+    }
+    for (LabelEntry entry : data.removedLabels()) {
+      if (entry.label().equals(label)) {
+        return true;
+      }
+    }
+    // or its properties changed
+    long nodeId = definitionNodeId;
+    if (nodeId >= 0) {
+      for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+        if (entry.entity().getId() == nodeId) {
+          return true;
+        }
+      }
+      for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+        if (entry.entity().getId() == nodeId) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void afterCommit(TransactionData data, Boolean changed,
+      GraphDatabaseService databaseService) {
+    if (changed) {
+      version.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void afterRollback(TransactionData data, Boolean changed,
+      GraphDatabaseService databaseService) {
+  }
+
+  private static class Snapshot<T> {
+
+    private final long version;
+    private final T value;
+
+    private Snapshot(long version, T value) {
+      this.version = version;
+      this.value = value;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.ResourceIterator;
@@ -47,8 +48,19 @@ public class NsPrefixMap {
     return ns;
   }
 
-  Map<String, String> prefixToNs = new HashMap<>();
-  Map<String, String> nsToPrefix = new HashMap<>();
+  // concurrent maps and synchronized updates: a map can be shared by the loaders of a
+  // multi-file import running on different threads
+  Map<String, String> prefixToNs = new ConcurrentHashMap<>();
+  Map<String, String> nsToPrefix = new ConcurrentHashMap<>();
+  // number of prefixes starting with "ns", kept up to date by add and remove so that the next
+  // generated prefix does not require a scan of the prefixes
+  private int nsPrefixCount = 0;
+  // prefixes added and not yet seen committed to the db, the only ones partialRefresh needs to
+  // write. They're kept after being written, as the transaction writing them can roll back
+  private final Set<String> newPrefixes = ConcurrentHashMap.newKeySet();
+  private long syncCount = 0;
+  private long skippedSyncCount = 0;
+  private long lockWaitNanos = 0;
 
   public NsPrefixMap(Transaction tx, boolean acquireLock)
       throws InvalidNamespacePrefixDefinitionInDB {
@@ -64,7 +76,7 @@ public class NsPrefixMap {
         }
 
         for (Entry<String, Object> entry : nspd.getAllProperties().entrySet()) {
-          add(entry.getKey(), (String) entry.getValue());
+          put(entry.getKey(), (String) entry.getValue());
         }
 
       }
@@ -91,7 +103,7 @@ public class NsPrefixMap {
     return nsToPrefix.containsKey(ns);
   }
 
-  public String getPrefixOrAdd(String ns, boolean strict) {
+  public synchronized String getPrefixOrAdd(String ns, boolean strict) {
     if (nsToPrefix.containsKey(ns)) {
       return nsToPrefix.get(ns);
     } else if (!strict) {
@@ -101,8 +113,7 @@ public class NsPrefixMap {
         return standardNamespaces.get(ns);
       } else {
         //it's not a standard, we need to generate next in sequence
-        String nextNsPrefix =
-            "ns" + prefixToNs.keySet().stream().filter(x -> x.startsWith("ns")).count();
+        String nextNsPrefix = nextGeneratedPrefix();
         add(nextNsPrefix, ns);
         return nextNsPrefix;
       }
@@ -112,7 +123,28 @@ public class NsPrefixMap {
     }
   }
 
-  public void add(String prefix, String ns) throws NamespacePrefixConflictException {
+  /**
+   * @return "ns" followed by the number of prefixes starting with "ns", or by the next free
+   * number if that prefix is taken (which can be the case after prefixes have been removed)
+   */
+  private String nextGeneratedPrefix() {
+    int index = nsPrefixCount;
+    while (prefixToNs.containsKey("ns" + index)) {
+      index++;
+    }
+    return "ns" + index;
+  }
+
+  public synchronized void add(String prefix, String ns) throws NamespacePrefixConflictException {
+    if (put(prefix, ns)) {
+      newPrefixes.add(prefix);
+    }
+  }
+
+  /**
+   * @return true if the pair was not in the map yet
+   */
+  private boolean put(String prefix, String ns) throws NamespacePrefixConflictException {
     if (standardPrefixes.containsKey(prefix) && !standardPrefixes.get(prefix).equals(ns)) {
       throw new NamespacePrefixConflictException("Invalid prefix + namespace combination: "
           + prefix + " is a reserved namespace prefix for <" + standardPrefixes.get(prefix) + ">");
@@ -123,6 +155,10 @@ public class NsPrefixMap {
     } else if (!prefixToNs.containsKey(prefix) && !nsToPrefix.containsKey(ns)) {
       prefixToNs.put(prefix, ns);
       nsToPrefix.put(ns, prefix);
+      if (prefix.startsWith("ns")) {
+        nsPrefixCount++;
+      }
+      return true;
     } else if (prefixToNs.containsKey(prefix) && !prefixToNs.get(prefix).equals(ns)) {
       throw new NamespacePrefixConflictException(
           "prefix " + prefix + " is in use for namespace <" + prefixToNs.get(prefix) + ">");
@@ -130,19 +166,28 @@ public class NsPrefixMap {
       throw new NamespacePrefixConflictException(
           "namespace <" + ns + "> has already an associated prefix (" + nsToPrefix.get(ns) + ")");
     }
+    return false;
   }
 
-  public void removePrefix(String prefix) {
+  public synchronized void removePrefix(String prefix) {
     if (prefixToNs.containsKey(prefix)) {
       nsToPrefix.remove(prefixToNs.get(prefix));
       prefixToNs.remove(prefix);
+      newPrefixes.remove(prefix);
+      if (prefix.startsWith("ns")) {
+        nsPrefixCount--;
+      }
     }
   }
 
-  public void removeNamespace(String ns) {
+  public synchronized void removeNamespace(String ns) {
     if (nsToPrefix.containsKey(ns)) {
-      prefixToNs.remove(nsToPrefix.get(ns));
-      nsToPrefix.remove(ns);
+      String prefix = nsToPrefix.remove(ns);
+      prefixToNs.remove(prefix);
+      newPrefixes.remove(prefix);
+      if (prefix.startsWith("ns")) {
+        nsPrefixCount--;
+      }
     }
   }
 
@@ -162,8 +207,9 @@ public class NsPrefixMap {
     return nsToPrefix;
   }
 
-  public void flushToDB(Transaction tx) {
+  public synchronized void flushToDB(Transaction tx) {
     Node nsPrefDefNode;
+    NsPrefixMapCache.changedIn(tx);
 
     ResourceIterator<Node> namespacePrefixDefinitionNodes = tx
         .findNodes(Label.label("_NsPrefDef"));
@@ -211,48 +257,108 @@ public class NsPrefixMap {
     return sb.toString();
   }
 
-  private boolean reloadFromDB(Transaction tx) throws DynamicNamespacePrefixConflict {
-    Node nsPrefDefNode;
+  /**
+   * Adds the prefixes in the db that are not in the map yet.
+   *
+   * @return the prefix definitions in the db
+   */
+  private Map<String, Object> reloadFromDB(Node nsPrefDefNode)
+      throws DynamicNamespacePrefixConflict {
+    Map<String, Object> nsPrefDefInDB = nsPrefDefNode.getAllProperties();
+    for (Entry<String, Object> entry : nsPrefDefInDB.entrySet()) {
+      if (!prefixToNs.containsKey(entry.getKey()) && !nsToPrefix.containsKey(entry.getValue())) {
+        //it's a new entry. We get it.
+        put(entry.getKey(), (String) entry.getValue());
+      } else if (prefixToNs.containsKey(entry.getKey()) && !nsToPrefix
+          .containsKey(entry.getValue())) {
+        throw new DynamicNamespacePrefixConflict(
+            "Prefix " + entry.getKey() + " is already in use for namespace <" +
+                entry.getValue() + ">");
+      } else if (!prefixToNs.containsKey(entry.getKey()) && nsToPrefix
+          .containsKey(entry.getValue())) {
+        throw new DynamicNamespacePrefixConflict(
+            "An alternative prefix (" + entry.getKey() + ") is already in use for namespace <" +
+                entry.getValue() + ">");
+      }
+    }
+    return nsPrefDefInDB;
+  }
+
+  /**
+   * Writes the prefixes added and not in the db yet, after picking up (under a write lock on the
+   * _NsPrefDef node) the ones added there by others in the meantime. Prefixes are only forgotten
+   * once a later call finds them in the db, so the ones written by a transaction that's rolled back
+   * are written again by the next call. Does not take the lock if there's nothing to write.
+   */
+  public synchronized Integer partialRefresh(Transaction tx) throws DynamicNamespacePrefixConflict {
+
+    if (newPrefixes.isEmpty()) {
+      skippedSyncCount++;
+      return 0;
+    }
 
     ResourceIterator<Node> namespacePrefixDefinitionNodes = tx
         .findNodes(Label.label("_NsPrefDef"));
+    Node nsPrefDefNode = namespacePrefixDefinitionNodes.hasNext()
+        ? namespacePrefixDefinitionNodes.next() : null;
+    if (nsPrefDefNode != null) {
+      forgetPersisted(nsPrefDefNode.getAllProperties());
+      if (newPrefixes.isEmpty()) {
+        skippedSyncCount++;
+        return 0;
+      }
+    }
 
-    if (namespacePrefixDefinitionNodes.hasNext()) {
-      nsPrefDefNode = namespacePrefixDefinitionNodes.next();
-
+    NsPrefixMapCache.changedIn(tx);
+    Map<String, Object> nsPrefDefInDB;
+    long lockStart = System.nanoTime();
+    if (nsPrefDefNode != null) {
       //to prevent concurrent updates
       tx.acquireWriteLock(nsPrefDefNode);
+      lockWaitNanos += System.nanoTime() - lockStart;
+      nsPrefDefInDB = reloadFromDB(nsPrefDefNode);
+    } else {
+      nsPrefDefNode = (Node) tx.execute("MERGE (n:_NsPrefDef) RETURN n ")
+          .next().get("n");
+      lockWaitNanos += System.nanoTime() - lockStart;
+      nsPrefDefInDB = new HashMap<>();
+    }
 
-      // get the latest from the DB and update it.
-      for (Entry<String, Object> entry : nsPrefDefNode.getAllProperties().entrySet()) {
-        if (!prefixToNs.containsKey(entry.getKey()) && !nsToPrefix.containsKey(entry.getValue())) {
-          //it's a new entry. We get it.
-          add(entry.getKey(), (String) entry.getValue());
-        } else if (prefixToNs.containsKey(entry.getKey()) && !nsToPrefix
-            .containsKey(entry.getValue())) {
-          throw new DynamicNamespacePrefixConflict(
-              "Prefix " + entry.getKey() + " is already in use for namespace <" +
-                  entry.getValue() + ">");
-        } else if (!prefixToNs.containsKey(entry.getKey()) && nsToPrefix
-            .containsKey(entry.getValue())) {
-          throw new DynamicNamespacePrefixConflict(
-              "An alternative prefix (" + entry.getKey() + ") is already in use for namespace <" +
-                  entry.getValue() + ">");
-        }
-      }
+    forgetPersisted(nsPrefDefInDB);
+    for (String prefix : newPrefixes) {
+      nsPrefDefNode.setProperty(prefix, prefixToNs.get(prefix));
     }
+    syncCount++;
+    return 0;
+  }
 
-    return true;
+  /**
+   * Drops from the prefixes to write the ones already in the db with the same namespace.
+   */
+  private void forgetPersisted(Map<String, Object> nsPrefDefInDB) {
+    newPrefixes.removeIf(prefix -> prefixToNs.get(prefix) == null || prefixToNs.get(prefix)
+        .equals(nsPrefDefInDB.get(prefix)));
   }
 
+  /**
+   * @return number of partialRefresh calls that wrote new prefixes to the db
+   */
+  public long getSyncCount() {
+    return syncCount;
+  }
 
-  public Integer partialRefresh(Transaction tx) throws DynamicNamespacePrefixConflict {
+  /**
+   * @return number of partialRefresh calls skipped because there were no prefixes to write
+   */
+  public long getSkippedSyncCount() {
+    return skippedSyncCount;
+  }
 
-    if (reloadFromDB(tx)) {
-      flushToDB(tx);
-      return 0;
-    }
-    return 1;
+  /**
+   * @return time spent by partialRefresh waiting for the lock on the _NsPrefDef node
+   */
+  public long getLockWaitMillis() {
+    return lockWaitNanos / 1_000_000;
   }
 
 
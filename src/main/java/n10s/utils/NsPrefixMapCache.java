@@ -0,0 +1,65 @@
+package n10s.utils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+
+/**
+ * Per database copy of the namespace prefix definitions (the _NsPrefDef node) for code that only
+ * reads them, like the uri shortening functions and the exporters.
+ * <p>
+ * Caches are created for each database by the {@code DefinitionCachesExtension}. Without one, the
+ * definitions are read from the db as before.
+ */
+public class NsPrefixMapCache extends
+    DefinitionNodeCache<NsPrefixMap, InvalidNamespacePrefixDefinitionInDB> {
+
+  private static final Map<UUID, NsPrefixMapCache> caches = new ConcurrentHashMap<>();
+
+  private NsPrefixMapCache() {
+    super(Label.label("_NsPrefDef"));
+  }
+
+  public static NsPrefixMapCache register(UUID databaseId) {
+    return caches.computeIfAbsent(databaseId, id -> new NsPrefixMapCache());
+  }
+
+  public static void unregister(UUID databaseId) {
+    caches.remove(databaseId);
+  }
+
+  /**
+   * @return the namespace prefix definitions as seen by the transaction. The map returned can be
+   * shared with other transactions and must not be modified.
+   */
+  public static NsPrefixMap get(Transaction tx) throws InvalidNamespacePrefixDefinitionInDB {
+    NsPrefixMapCache cache = cacheFor(tx);
+    if (cache == null) {
+      return new NsPrefixMap(tx, false);
+    }
+    return cache.lookup(tx);
+  }
+
+  /**
+   * Records that the transaction has changed the namespace prefix definitions in the db.
+   */
+  static void changedIn(Transaction tx) {
+    NsPrefixMapCache cache = cacheFor(tx);
+    if (cache != null) {
+      cache.recordChange(tx);
+    }
+  }
+
+  private static NsPrefixMapCache cacheFor(Transaction tx) {
+    return tx instanceof InternalTransaction ? caches
+        .get(((InternalTransaction) tx).getDatabaseId()) : null;
+  }
+
+  @Override
+  protected NsPrefixMap load(Transaction tx) throws InvalidNamespacePrefixDefinitionInDB {
+    return new NsPrefixMap(tx, false);
+  }
+}
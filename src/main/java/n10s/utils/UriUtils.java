@@ -36,7 +36,7 @@ public class UriUtils {
   public static String getShortForm(String str, Transaction tx)
       throws UriNamespaceHasNoAssociatedPrefix, InvalidNamespacePrefixDefinitionInDB {
     IRI iri = SimpleValueFactory.getInstance().createIRI(str);
-    NsPrefixMap prefixDefs = new NsPrefixMap(tx, false);
+    NsPrefixMap prefixDefs = NsPrefixMapCache.get(tx);
     if (!prefixDefs.hasNs(iri.getNamespace())) {
       throw new UriNamespaceHasNoAssociatedPrefix(
           "Prefix Undefined: No prefix defined for namespace <" + str
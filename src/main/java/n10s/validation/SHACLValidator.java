@@ -4,6 +4,8 @@ import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_KEEP;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_MAP;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN_STRICT;
+import static n10s.graphconfig.Params.DIGEST_PROPERTY;
+import static n10s.graphconfig.Params.SOURCES_PROPERTY;
 import static n10s.utils.UriUtils.translateUri;
 
 import java.io.IOException;
@@ -17,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
+import n10s.graphconfig.GraphConfigCache;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
 import n10s.utils.UriUtils.UriNamespaceHasNoAssociatedPrefix;
 import org.eclipse.rdf4j.model.BNode;
@@ -140,7 +143,7 @@ public class SHACLValidator {
     this.tx = transaction;
     this.log = l;
     try {
-      this.gc = new GraphConfig(tx);
+      this.gc = GraphConfigCache.get(tx);
     } catch (GraphConfigNotFound graphConfigNotFound) {
       //valid when it's a pure LPG
       this.gc = null;
@@ -1134,6 +1137,8 @@ public class SHACLValidator {
         "UNWIND [ x in [(focus)-[r]->()| type(r)] where not x in params.allAllowedProps] + [ x in keys(focus) where "
         +
         (shallIUseUriInsteadOfId() ? " x <> 'uri' and " : "")
+        // bookkeeping of the imports tagged with a source and of the syncs
+        + " not x in ['" + SOURCES_PROPERTY + "', '" + DIGEST_PROPERTY + "'] and "
         + " not x in params.allAllowedProps] as noProp\n"
         + "RETURN  " + (shallIUseUriInsteadOfId() ? " focus.uri " : " id(focus) ") +
         " as nodeId , " + (shallIShorten() ? "n10s.rdf.fullUriFromShortForm('%s')" : " '%s' ")
@@ -80,6 +80,23 @@ public class RDFExportTest {
     }
   }
 
+  @Test
+  public void testExportFromCypherOnLPGSkipsCheckpoints() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      session.run("CREATE (:Node { a: 1 }), (:_ImportCheckpoint { url: 'file:///data.nt', "
+          + "byteOffset: 10, line: 1, triplesParsed: 1, triplesLoaded: 1 })");
+
+      List<Record> statements = session.run(" CALL n10s.rdf.export.cypher(' MATCH (n) "
+          + "RETURN n ', {}) ").list();
+      assertEquals(2, statements.size());
+      for (Record statement : statements) {
+        assertFalse(statement.get("object").asString().contains("_ImportCheckpoint"));
+      }
+    }
+  }
+
   @Test
   public void testExportFromCypherOnLPGWithMappings() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -171,6 +188,32 @@ public class RDFExportTest {
     }
   }
 
+  @Test
+  public void testExportFromCypherOnRDFWithSourceTags() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), " { handleVocabUris: 'SHORTEN' } ");
+
+      Result importResults = session.run("CALL n10s.rdf.import.inline('" +
+          jsonLdFragment + "','JSON-LD', { source: 'markus' })");
+      assertEquals(11L, importResults.single().get("triplesLoaded").asLong());
+      assertEquals(0L, session.run("MATCH (n:Resource)-[r]->() WHERE NOT "
+          + "(n._sources = ['markus'] AND r._sources = ['markus']) RETURN count(r) AS count")
+          .single().get("count").asLong());
+
+      // the source tags of nodes and relationships are not exported
+      Result res = session.run(" CALL n10s.rdf.export.cypher(' MATCH path = (n)-[r]->(m) "
+          + "RETURN path ', {}) ");
+      int resultCount = 0;
+      while (res.hasNext()) {
+        assertFalse(res.next().get("predicate").asString().contains("_sources"));
+        resultCount++;
+      }
+      assertEquals(9, resultCount);
+    }
+  }
+
   private Statement recordAsStatement(ValueFactory vf,  Record r) {
     IRI s = vf.createIRI(r.get("subject").asString());
     IRI p = vf.createIRI(r.get("predicate").asString());
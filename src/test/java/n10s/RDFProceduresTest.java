@@ -9,29 +9,48 @@ import static org.junit.Assert.assertTrue;
 import static org.neo4j.driver.Values.NULL;
 import static org.neo4j.driver.Values.ofNode;
 
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.xml.bind.DatatypeConverter;
 import n10s.experimental.ExperimentalImports;
+import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfigProcedures;
+import n10s.graphconfig.RDFParserConfig;
 import n10s.mapping.MappingUtils;
 import n10s.nsprefixes.NsPrefixDefProcedures;
 import n10s.quadrdf.delete.QuadRDFDeleteProcedures;
 import n10s.quadrdf.load.QuadRDFLoadProcedures;
 import n10s.rdf.RDFProcedures;
 import n10s.rdf.delete.RDFDeleteProcedures;
+import n10s.rdf.load.DirectStatementLoader;
 import n10s.rdf.load.RDFLoadProcedures;
 import n10s.rdf.preview.RDFPreviewProcedures;
 import n10s.rdf.stream.RDFStreamProcedures;
+import n10s.rdf.sync.RDFSyncProcedures;
 import n10s.skos.load.SKOSLoadProcedures;
+import n10s.utils.DateUtils;
+import n10s.utils.NsPrefixMap;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import org.junit.Rule;
 import org.junit.Test;
@@ -41,13 +60,17 @@ import org.neo4j.driver.GraphDatabase;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Values;
 import org.neo4j.driver.internal.InternalRelationship;
 import org.neo4j.driver.internal.value.IntegerValue;
 import org.neo4j.driver.internal.value.ListValue;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.harness.junit.rule.Neo4jRule;
+import org.neo4j.logging.NullLog;
 
 /**
  * Created by jbarrasa on 21/03/2016.
@@ -58,6 +81,7 @@ public class RDFProceduresTest {
   public Neo4jRule neo4j = new Neo4jRule()
       .withProcedure(RDFLoadProcedures.class)
       .withProcedure(RDFDeleteProcedures.class)
+      .withProcedure(RDFSyncProcedures.class)
       .withProcedure(RDFPreviewProcedures.class)
       .withProcedure(RDFStreamProcedures.class)
       .withFunction(RDFProcedures.class)
@@ -574,6 +598,119 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testImportFetchAll() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      String incremental = RDFProceduresTest.class.getClassLoader().getResource("incremental")
+          .toURI().toString();
+      Result importResults = session.run("CALL n10s.rdf.import.fetchAll(['" + incremental
+          + "/step*.ttl', '" + RDFProceduresTest.class.getClassLoader()
+          .getResource("deleteRDF/dataset1.ttl").toURI() + "'],'Turtle',"
+          + "{ commitSize: 2, workers: 2 })");
+
+      List<Record> fileResults = importResults.list();
+      assertEquals(4, fileResults.size());
+      long triplesLoaded = 0;
+      for (int i = 0; i < fileResults.size(); i++) {
+        Record fileResult = fileResults.get(i);
+        assertEquals("OK", fileResult.get("terminationStatus").asString());
+        assertTrue(fileResult.get("url").asString()
+            .endsWith(i < 3 ? "step" + (i + 1) + ".ttl" : "dataset1.ttl"));
+        assertTrue(fileResult.get("triplesParsed").asLong() > 0);
+        triplesLoaded += fileResult.get("triplesLoaded").asLong();
+      }
+      assertEquals(1L, session.run("MATCH (n:_NsPrefDef) RETURN count(n) AS count").next()
+          .get("count").asLong());
+
+      long sequentialTriplesLoaded = 0;
+      for (String file : new String[]{"incremental/step1.ttl", "incremental/step2.ttl",
+          "incremental/step3.ttl", "deleteRDF/dataset1.ttl"}) {
+        sequentialTriplesLoaded += session.run("CALL n10s.rdf.import.fetch('"
+            + RDFProceduresTest.class.getClassLoader().getResource(file).toURI()
+            + "','Turtle')").next().get("triplesLoaded").asLong();
+      }
+      assertEquals(sequentialTriplesLoaded, triplesLoaded);
+
+      Record koResult = session.run("CALL n10s.rdf.import.fetchAll(['file:///not/there.ttl'],"
+          + "'Turtle')").single();
+      assertEquals("file:///not/there.ttl", koResult.get("url").asString());
+      assertEquals("KO", koResult.get("terminationStatus").asString());
+    }
+  }
+
+  @Test
+  public void testImportArchiveEntriesGlob() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+              "{ handleVocabUris: 'KEEP', handleRDFTypes: 'LABELS' }");
+
+      for (String archive : new String[]{"rdf.zip", "rdf.tar.gz"}) {
+        Record singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+                RDFProceduresTest.class.getClassLoader().getResource(archive).toURI()
+                + "!rdf/*.owl','RDF/XML', { commitSize: 50 })").single();
+
+        assertEquals("OK", singleResult.get("terminationStatus").asString());
+        List<Object> entries = singleResult.get("stats").get("entries").asList();
+        assertEquals(2, entries.size());
+        long entryTriplesParsed = 0;
+        for (Object entry : entries) {
+          Map<String, Object> entryStats = (Map<String, Object>) entry;
+          assertTrue(((String) entryStats.get("entry")).endsWith(".owl"));
+          assertTrue((Long) entryStats.get("bytesParsed") > 0);
+          entryTriplesParsed += (Long) entryStats.get("triplesParsed");
+          if (entryStats.get("entry").equals("rdf/moviesontology.owl")) {
+            assertEquals(60L, entryStats.get("triplesLoaded"));
+          }
+        }
+        assertEquals(singleResult.get("triplesParsed").asLong(), entryTriplesParsed);
+      }
+
+      assertEquals(0L, session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("rdf.zip").toURI()
+              + "!rdf/*.nothing','RDF/XML')").single().get("triplesParsed").asLong());
+    }
+  }
+
+  @Test
+  public void testImportArchiveEntriesGlobHeaderParams() throws Exception {
+    byte[] archive = Files.readAllBytes(Paths.get(
+        RDFProceduresTest.class.getClassLoader().getResource("rdf.zip").toURI()));
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/rdf.zip", exchange -> {
+      if ("Bearer n10s".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+        exchange.sendResponseHeaders(200, archive.length);
+        exchange.getResponseBody().write(archive);
+      } else {
+        exchange.sendResponseHeaders(401, -1);
+      }
+      exchange.close();
+    });
+    server.start();
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'KEEP', handleRDFTypes: 'LABELS' }");
+
+      String url = "http://localhost:" + server.getAddress().getPort() + "/rdf.zip!rdf/*.owl";
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" + url + "','RDF/XML', "
+          + "{ headerParams: { Authorization: 'Bearer n10s' } })").single();
+      assertEquals("OK", singleResult.get("terminationStatus").asString());
+      assertEquals(2, singleResult.get("stats").get("entries").asList().size());
+
+      assertEquals("KO", session.run("CALL n10s.rdf.import.fetch('" + url + "','RDF/XML')")
+          .single().get("terminationStatus").asString());
+    } finally {
+      server.stop(0);
+    }
+  }
+
   @Test
   public void testImportZippedMultiFile() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -990,6 +1127,276 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testImportRDFXMLParallelWriters() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Result importResults
+          = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5, parallelism: 2, queueDepth: 1 })");
+      Record singleResult = importResults.next();
+      assertEquals("OK", singleResult.get("terminationStatus").asString());
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      assertEquals(7L,
+          session
+              .run("MATCH ()-[r]->(b) WHERE type(r) CONTAINS 'relation' RETURN count(b) as count")
+              .next().get("count").asLong());
+
+      assertEquals(
+          "http://opendata.paris.fr/opendata/jsp/site/Portal.jsp?document_id=109&portlet_id=106",
+          session.run(
+              "MATCH (x:Resource) WHERE x.rdfs" + PREFIX_SEPARATOR + "label = 'harvest_dataset_url'"
+
+                  + "\nRETURN x.rdf" + PREFIX_SEPARATOR + "value AS datasetUrl").next()
+              .get("datasetUrl").asString());
+
+      //re-importing does not duplicate relationships between non-blank nodes
+      String relsBetweenIris = "MATCH (a)-[r]->(b) WHERE NOT a.uri STARTS WITH 'bnode://' "
+          + "AND NOT b.uri STARTS WITH 'bnode://' RETURN count(r) as count";
+      long relCount = session.run(relsBetweenIris).next().get("count").asLong();
+      importResults = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5, parallelism: 3, partitionRels: true })");
+      assertEquals(38L, importResults.next().get("triplesLoaded").asLong());
+      assertEquals(relCount, session.run(relsBetweenIris).next().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportPartitionedRelsHotEndNode() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      // every partition links to the same end nodes, so concurrent partitions contend for them
+      StringBuilder nt = new StringBuilder();
+      for (int i = 0; i < 3000; i++) {
+        nt.append("<http://example.org/s").append(i).append("> <http://example.org/links> ")
+            .append("<http://example.org/hub").append(i % 2).append("> .\n");
+      }
+      Path file = Files.createTempFile("n10s-hub", ".nt");
+      Files.write(file, nt.toString().getBytes(StandardCharsets.UTF_8));
+
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples',{ commitSize: 500, parallelism: 4, queueDepth: 4, "
+          + "partitionRels: true })").single();
+      assertEquals("OK", singleResult.get("terminationStatus").asString());
+      assertEquals(3000L, singleResult.get("triplesLoaded").asLong());
+      assertEquals(3000L, session.run("MATCH (:Resource)-[r]->(hub:Resource) "
+          + "WHERE hub.uri STARTS WITH 'http://example.org/hub' RETURN count(r) AS count")
+          .single().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportNodeIdCacheAcrossPartialCommits() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5 })").next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      Map<String, Object> stats = singleResult.get("stats").asMap();
+      assertTrue((Long) stats.get("nodeIdCacheHits") > 0L);
+      assertTrue((Long) stats.get("nodeIdCacheMisses") > 0L);
+
+      singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5, nodeIdCacheMB: 0 })").next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      assertFalse(singleResult.get("stats").asMap().containsKey("nodeIdCacheHits"));
+    }
+  }
+
+  @Test
+  public void testImportElementNameCache() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5 })").next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      Map<String, Object> stats = singleResult.get("stats").asMap();
+      //each distinct predicate, type or datatype iri is only resolved once
+      long misses = (Long) stats.get("elementNameCacheMisses");
+      assertTrue(misses > 0L);
+      assertTrue(misses < 38L);
+      assertTrue((Long) stats.get("elementNameCacheHits") > 0L);
+    }
+  }
+
+  @Test
+  public void testImportCompactBatches() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5, compactBatches: true, parallelism: 2 })").next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      List<Object> batchHeapBytes = singleResult.get("stats").get("batchHeapBytes").asList();
+      assertTrue(batchHeapBytes.size() > 1);
+      assertTrue((Long) batchHeapBytes.get(0) > 0L);
+      assertEquals(7L, session
+          .run("MATCH ()-[r]->(b) WHERE type(r) CONTAINS 'relation' RETURN count(b) as count")
+          .next().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportRelationshipsBatchedExistenceCheck() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      // a class and a hub with an edge to/from every instance
+      int instanceCount = 3000;
+      StringBuilder nt = new StringBuilder();
+      for (int i = 0; i < instanceCount; i++) {
+        nt.append("<http://example.org/s").append(i).append("> <http://example.org/type> ")
+            .append("<http://example.org/Class> .\n");
+        nt.append("<http://example.org/hub> <http://example.org/links> <http://example.org/s")
+            .append(i).append("> .\n");
+      }
+      // repeated within the first partial commit
+      nt.insert(0, "<http://example.org/hub> <http://example.org/links> "
+          + "<http://example.org/s0> .\n");
+      Path file = Files.createTempFile("n10s-rels", ".nt");
+      Files.write(file, nt.toString().getBytes(StandardCharsets.UTF_8));
+
+      Record firstLoad = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 1000, compactBatches: true, "
+          + "assumeNoExistingRels: true })").single();
+      assertEquals(0L, firstLoad.get("stats").get("relGroupsScanned").asLong());
+      assertEquals(instanceCount * 2L, session.run("MATCH ()-[r]->() RETURN count(r) AS count")
+          .single().get("count").asLong());
+
+      Record reload = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 1000 })").single();
+      assertTrue(reload.get("stats").get("relGroupsScanned").asLong() > 0);
+      assertEquals(instanceCount * 2L, session.run("MATCH ()-[r]->() RETURN count(r) AS count")
+          .single().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportAdaptiveCommitSize() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5, adaptiveCommit: true, minCommitSize: 2, "
+          + "maxCommitSize: 8 })").next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      List<Object> commitSizes = singleResult.get("stats").get("commitSizes").asList();
+      assertTrue(commitSizes.size() > 1);
+      assertEquals(5L, commitSizes.get(0));
+      for (Object size : commitSizes) {
+        assertTrue((Long) size >= 2L && (Long) size <= 8L);
+      }
+      assertEquals(7L, session
+          .run("MATCH ()-[r]->(b) WHERE type(r) CONTAINS 'relation' RETURN count(b) as count")
+          .next().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportMemoryMapped() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Record singleResult = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5, memoryMapped: true })").next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      assertTrue(singleResult.get("stats").get("bytesParsed").asLong() > 0);
+      assertTrue(singleResult.get("stats").get("mbPerSecond").asDouble() > 0);
+      assertEquals(7L, session
+          .run("MATCH ()-[r]->(b) WHERE type(r) CONTAINS 'relation' RETURN count(b) as count")
+          .next().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportQuadRDFMemoryMapped() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDBForQuads(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'KEEP', handleRDFTypes: 'LABELS', keepCustomDataTypes: true, handleMultival: 'ARRAY' }");
+      Record singleResult = session.run("CALL n10s.experimental.quadrdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader().getResource("RDFDatasets/RDFDataset.nq")
+              .toURI()
+          + "','N-Quads',{ memoryMapped: true, fastLineParser: true, parseThreads: 2 })").next();
+      assertEquals(13L, singleResult.get("triplesLoaded").asLong());
+      assertTrue(singleResult.get("stats").get("bytesParsed").asLong() > 0);
+      assertEquals(3L, session
+          .run("MATCH (n:Resource {uri: 'http://www.example.org/exampleDocument#Monica'}) "
+              + "RETURN count(n) AS count").next().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportRDFStarCompactBatches() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'IGNORE' }");
+
+      Result importResults
+          = session.run("CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader().getResource("movies.ttls").toURI()
+          + "','Turtle-star', { compactBatches: true, commitSize: 100 })");
+
+      assertEquals(1372L, importResults
+          .single().get("triplesLoaded").asLong());
+      Result queryResults = session.run(
+          "MATCH (ee:Person { name: 'Emil Eifrem'})-[ai:ACTED_IN]->(m) "
+              + " RETURN ai.roles as roles, m.title as title");
+      assertTrue(queryResults.hasNext());
+      Record result = queryResults.next();
+      assertEquals("Emil", result.get("roles").asString());
+      assertEquals("The Matrix", result.get("title").asString());
+      assertFalse(queryResults.hasNext());
+    }
+  }
+
   @Test
   public void testImportRDFXMLShorteningWithPrefixPreDefinition() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -1598,6 +2005,78 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testImportTypesAsLabelsAndNodesDeferred() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'SHORTEN', handleRDFTypes: 'LABELS_AND_NODES'}");
+
+      int instanceCount = 2000;
+      StringBuilder nt = new StringBuilder();
+      for (int i = 0; i < instanceCount; i++) {
+        nt.append("<http://example.org/s").append(i)
+            .append("> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> ")
+            .append("<http://example.org/Class> .\n");
+        nt.append("<http://example.org/s").append(i).append("> <http://example.org/next> ")
+            .append("<http://example.org/s").append(i + 1).append("> .\n");
+      }
+      Path file = Files.createTempFile("n10s-types", ".nt");
+      Files.write(file, nt.toString().getBytes(StandardCharsets.UTF_8));
+
+      Record deferred = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 500, deferTypeRels: true, parallelism: 2 })").single();
+      assertEquals(instanceCount * 2L, deferred.get("triplesLoaded").asLong());
+      assertEquals((long) instanceCount, deferred.get("stats").get("deferredTypeRels").asLong());
+      assertEquals((long) instanceCount, session.run("MATCH (:ns0__Class)-[:rdf__type]->"
+          + "(c { uri: 'http://example.org/Class' }) RETURN count(*) AS count").single()
+          .get("count").asLong());
+      assertEquals((long) instanceCount, session.run("MATCH ()-[r:ns0__next]->() "
+          + "RETURN count(r) AS count").single().get("count").asLong());
+
+      // reloaded, with and without deferring: no duplicate type relationships
+      session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 500, deferTypeRels: true })");
+      session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 500 })");
+      assertEquals((long) instanceCount, session.run("MATCH ()-[r:rdf__type]->() "
+          + "RETURN count(r) AS count").single().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testDeferTypeRelsInCallersTransactionWarns() throws Throwable {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      GraphDatabaseService db = neo4j.defaultDatabaseService();
+      initialiseGraphDB(db, "{ handleVocabUris: 'SHORTEN', handleRDFTypes: 'LABELS_AND_NODES'}");
+
+      Map<String, Object> params = new HashMap<>();
+      params.put("deferTypeRels", true);
+      try (Transaction tx = db.beginTx()) {
+        DirectStatementLoader loader = new DirectStatementLoader(db, tx,
+            new RDFParserConfig(params, new GraphConfig(tx)), NullLog.getInstance());
+        SimpleValueFactory vf = SimpleValueFactory.getInstance();
+        loader.startRDF();
+        loader.handleStatement(vf.createStatement(vf.createIRI("http://example.org/s"),
+            RDF.TYPE, vf.createIRI("http://example.org/Class")));
+        loader.runPartialTx(tx);
+        loader.runPartialTx(tx);
+        tx.commit();
+        String warnings = loader.getWarnings();
+        assertTrue(warnings.contains("deferTypeRels is not supported"));
+        assertEquals(warnings.indexOf("deferTypeRels"), warnings.lastIndexOf("deferTypeRels"));
+      }
+
+      // written with the batch instead
+      assertEquals(1L, session.run("MATCH (:Resource { uri: 'http://example.org/s' })"
+          + "-[:rdf__type]->({ uri: 'http://example.org/Class' }) RETURN count(*) AS count")
+          .single().get("count").asLong());
+    }
+  }
+
   @Test
   public void testPreviewFromSnippetLangFilter() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -2475,6 +2954,74 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testIncrementalLoadMultivaluesMergedIntoArrays() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleMultival: 'ARRAY' }");
+
+      String rdf = "@prefix ex: <http://example.org/> .\n"
+          + "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+          + "ex:s ex:name \"b\", \"a\" ; ex:count 2, 1 ; ex:score 1.5e0 ; "
+          + "ex:day \"2020-01-02\"^^xsd:date .";
+      Record first = session.run("CALL n10s.rdf.import.inline('" + rdf + "','Turtle')")
+          .single();
+      assertEquals(0L, first.get("stats").get("multivalWritesSkipped").asLong());
+
+      // same values again: nothing to write
+      Record again = session.run("CALL n10s.rdf.import.inline('" + rdf + "','Turtle')")
+          .single();
+      assertEquals(4L, again.get("stats").get("multivalWritesSkipped").asLong());
+
+      // new values are appended after the stored ones
+      Record more = session.run("CALL n10s.rdf.import.inline('"
+          + "@prefix ex: <http://example.org/> .\n"
+          + "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+          + "ex:s ex:name \"c\", \"a\" ; ex:count 3 ; ex:score 1.5e0 ; "
+          + "ex:day \"2020-01-01\"^^xsd:date .','Turtle')").single();
+      assertEquals(1L, more.get("stats").get("multivalWritesSkipped").asLong());
+
+      Record node = session.run("MATCH (n:Resource { uri: 'http://example.org/s' }) "
+          + "RETURN n.ns0__name AS name, n.ns0__count AS count, n.ns0__score AS score, "
+          + "n.ns0__day AS day").single();
+      List<Object> names = node.get("name").asList();
+      assertEquals(3, names.size());
+      assertEquals("c", names.get(2));
+      List<Object> counts = node.get("count").asList();
+      assertEquals(3, counts.size());
+      assertEquals(3L, counts.get(2));
+      assertEquals(Arrays.asList(1.5D), node.get("score").asList());
+      assertEquals(Arrays.asList(LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 1)),
+          node.get("day").asList());
+    }
+  }
+
+  @Test
+  public void testIncrementalLoadMultivaluedBooleans() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+          "{ handleMultival: 'ARRAY', handleVocabUris: 'IGNORE' }");
+
+      String prefixes = "@prefix ex: <http://example.org/> .\n"
+          + "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n";
+      session.run("CALL n10s.rdf.import.inline('" + prefixes
+          + "ex:a ex:flag true, \"1\"^^xsd:boolean . ex:b ex:flag false .','Turtle')");
+      Record more = session.run("CALL n10s.rdf.import.inline('" + prefixes
+          + "ex:a ex:flag true . ex:b ex:flag true, false .','Turtle')").single();
+      assertEquals(1L, more.get("stats").get("multivalWritesSkipped").asLong());
+
+      try (Transaction tx = neo4j.defaultDatabaseService().beginTx()) {
+        Node a = tx.findNode(Label.label("Resource"), "uri", "http://example.org/a");
+        assertArrayEquals(new boolean[]{true}, (boolean[]) a.getProperty("flag"));
+        Node b = tx.findNode(Label.label("Resource"), "uri", "http://example.org/b");
+        assertArrayEquals(new boolean[]{false, true}, (boolean[]) b.getProperty("flag"));
+      }
+    }
+  }
+
   @Test
   public void testIncrementalLoadNamespaces() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -3408,6 +3955,291 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testDeleteManyValuesFromArrays() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+          "{handleVocabUris: 'KEEP', handleMultival: 'ARRAY'}");
+
+      int valueCount = 5000;
+      StringBuilder all = new StringBuilder();
+      StringBuilder evens = new StringBuilder();
+      for (int i = 0; i < valueCount; i++) {
+        String triples = "<http://example.org/s> <http://example.org/name> \"n" + i + "\" .\n"
+            + "<http://example.org/s> <http://example.org/count> \"" + i
+            + "\"^^<http://www.w3.org/2001/XMLSchema#long> .\n"
+            + "<http://example.org/s> <http://example.org/day> \"" + LocalDate.of(2000, 1, 1)
+            .plusDays(i) + "\"^^<http://www.w3.org/2001/XMLSchema#date> .\n";
+        all.append(triples);
+        if (i % 2 == 0) {
+          evens.append(triples);
+        }
+      }
+      all.append("<http://example.org/s> <http://example.org/flag> "
+          + "\"true\"^^<http://www.w3.org/2001/XMLSchema#boolean> .\n");
+      all.append("<http://example.org/s> <http://example.org/flag> "
+          + "\"false\"^^<http://www.w3.org/2001/XMLSchema#boolean> .\n");
+      evens.append("<http://example.org/s> <http://example.org/flag> "
+          + "\"false\"^^<http://www.w3.org/2001/XMLSchema#boolean> .\n");
+      Path allFile = Files.createTempFile("n10s-values", ".nt");
+      Files.write(allFile, all.toString().getBytes(StandardCharsets.UTF_8));
+      Path evensFile = Files.createTempFile("n10s-values-delete", ".nt");
+      Files.write(evensFile, evens.toString().getBytes(StandardCharsets.UTF_8));
+
+      session.run("CALL n10s.rdf.import.fetch('" + allFile.toUri() + "','N-Triples')");
+      assertEquals(valueCount * 3L / 2 + 1, session.run("CALL n10s.rdf.delete.fetch('"
+          + evensFile.toUri() + "','N-Triples')").single().get("triplesDeleted").asLong());
+
+      Record record = session.run("MATCH (n { uri: 'http://example.org/s' }) "
+          + "RETURN n.`http://example.org/name` AS names, n.`http://example.org/count` AS counts, "
+          + "n.`http://example.org/day` AS days, n.`http://example.org/flag` AS flags").single();
+      Set<Object> names = new HashSet<>(record.get("names").asList());
+      Set<Object> counts = new HashSet<>(record.get("counts").asList());
+      Set<Object> days = new HashSet<>(record.get("days").asList());
+      assertEquals(valueCount / 2, names.size());
+      assertEquals(valueCount / 2, counts.size());
+      assertEquals(valueCount / 2, days.size());
+      for (int i = 1; i < valueCount; i += 2) {
+        assertTrue(names.contains("n" + i));
+        assertTrue(counts.contains((long) i));
+        assertTrue(days.contains(LocalDate.of(2000, 1, 1).plusDays(i)));
+      }
+      assertEquals(Arrays.asList(true), record.get("flags").asList());
+
+      // deleting the remaining values drops the properties
+      session.run("CALL n10s.rdf.delete.fetch('" + allFile.toUri() + "','N-Triples')");
+      assertEquals(0L, session.run("MATCH (n { uri: 'http://example.org/s' }) "
+          + "RETURN count(n) AS count").single().get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testDeleteBySource() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      String first = "<http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n"
+          + "<http://example.org/a> <http://example.org/name> \"a\" .\n"
+          + "<http://example.org/b> <http://example.org/knows> <http://example.org/c> .\n"
+          + "<http://example.org/c> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> "
+          + "<http://example.org/Thing> .\n";
+      String second = "<http://example.org/c> <http://example.org/knows> <http://example.org/d> .\n"
+          + "<http://example.org/b> <http://example.org/knows> <http://example.org/c> .\n";
+      session.run("CALL n10s.rdf.import.inline('" + first
+          + "','N-Triples', { source: 'first', commitSize: 2 })");
+      session.run("CALL n10s.rdf.import.inline('" + second
+          + "','N-Triples', { source: 'second' })");
+      // an untagged relationship to a node of the first source
+      session.run("MATCH (a { uri: 'http://example.org/a' }) CREATE (:Other)-[:LINKS]->(a)");
+
+      Record deleted = session.run("CALL n10s.rdf.delete.bySource('first', "
+          + "{ batchSize: 1, parallelism: 2 })").single();
+      assertEquals("OK", deleted.get("terminationStatus").asString());
+      assertEquals(1L, deleted.get("relationshipsDeleted").asLong());
+      assertEquals(1L, deleted.get("relationshipsUntagged").asLong());
+      // a is kept for the untagged relationship, b and c are shared with the second source
+      assertEquals(0L, deleted.get("nodesDeleted").asLong());
+      assertEquals(3L, deleted.get("nodesUntagged").asLong());
+      assertEquals(2L, session.run("MATCH (:Resource)-[r:`http://example.org/knows`]->() "
+          + "RETURN count(r) AS count").single().get("count").asLong());
+
+      deleted = session.run("CALL n10s.rdf.delete.bySource('second')").single();
+      assertEquals(2L, deleted.get("relationshipsDeleted").asLong());
+      assertEquals(3L, deleted.get("nodesDeleted").asLong());
+      assertEquals(Arrays.asList("http://example.org/a"), session.run("MATCH (r:Resource) "
+          + "RETURN collect(r.uri) AS uris").single().get("uris").asList());
+    }
+  }
+
+  @Test
+  public void testDeleteBySourceKeepsUntaggedImports() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      String untagged = "<http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n"
+          + "<http://example.org/a> <http://example.org/name> \"a\" .\n";
+      String tagged = "<http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n"
+          + "<http://example.org/a> <http://example.org/knows> <http://example.org/x> .\n";
+      session.run("CALL n10s.rdf.import.inline('" + untagged + "','N-Triples')");
+      session.run("CALL n10s.rdf.import.inline('" + tagged + "','N-Triples', { source: 's' })");
+
+      Record deleted = session.run("CALL n10s.rdf.delete.bySource('s')").single();
+      assertEquals(1L, deleted.get("relationshipsDeleted").asLong());
+      assertEquals(1L, deleted.get("nodesDeleted").asLong());
+      // what the untagged import wrote is kept, as it was
+      Record kept = session.run("MATCH (a:Resource { uri: 'http://example.org/a' })"
+          + "-[r:`http://example.org/knows`]->(b:Resource) RETURN a, r, collect(b.uri) AS uris")
+          .single();
+      assertEquals(Arrays.asList("http://example.org/b"), kept.get("uris").asList());
+      assertEquals("a", kept.get("a").get("http://example.org/name").asString());
+      assertTrue(kept.get("a").get("_sources").isNull());
+      assertTrue(kept.get("r").get("_sources").isNull());
+      assertEquals(0L, session.run("MATCH (n) WHERE n._sources IS NOT NULL "
+          + "OR n.uri = 'http://example.org/x' RETURN count(n) AS count").single().get("count")
+          .asLong());
+    }
+  }
+
+  @Test
+  public void testSyncAppliesOnlyChangedSubjects() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      String v1 = "<http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n"
+          + "<http://example.org/a> <http://example.org/name> \"a\" .\n"
+          + "<http://example.org/b> <http://example.org/name> \"b\" .\n"
+          + "<http://example.org/b> <http://example.org/knows> <http://example.org/c> .\n"
+          + "<http://example.org/c> <http://example.org/name> \"c\" .\n"
+          + "<http://example.org/d> <http://example.org/likes> <http://example.org/e> .\n"
+          + "<http://example.org/d> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> "
+          + "<http://example.org/Thing> .\n";
+      // b changes, d is gone and f is new. Same statements as before for a and c, in another order
+      String v2 = "<http://example.org/c> <http://example.org/name> \"c\" .\n"
+          + "<http://example.org/a> <http://example.org/name> \"a\" .\n"
+          + "<http://example.org/b> <http://example.org/name> \"b2\" .\n"
+          + "<http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n"
+          + "<http://example.org/f> <http://example.org/name> \"f\" .\n";
+      Path file = Files.createTempFile("n10s-sync", ".nt");
+      Files.write(file, v1.getBytes(StandardCharsets.UTF_8));
+      String sync = "CALL n10s.rdf.sync('" + file.toUri() + "','N-Triples', "
+          + "{ source: 'daily', commitSize: 2 })";
+
+      Record first = session.run(sync).single();
+      assertEquals("OK", first.get("terminationStatus").asString());
+      assertEquals(4L, first.get("subjectsAdded").asLong());
+      assertEquals(7L, first.get("triplesLoaded").asLong());
+
+      Record again = session.run(sync).single();
+      assertEquals(4L, again.get("subjectsUnchanged").asLong());
+      assertEquals(0L, again.get("subjectsAdded").asLong());
+      assertEquals(0L, again.get("triplesLoaded").asLong());
+
+      Files.write(file, v2.getBytes(StandardCharsets.UTF_8));
+      Record second = session.run(sync).single();
+      assertEquals("OK", second.get("terminationStatus").asString());
+      assertEquals(5L, second.get("triplesParsed").asLong());
+      assertEquals(2L, second.get("subjectsUnchanged").asLong());
+      assertEquals(1L, second.get("subjectsChanged").asLong());
+      assertEquals(1L, second.get("subjectsAdded").asLong());
+      assertEquals(1L, second.get("subjectsRemoved").asLong());
+      assertEquals(2L, second.get("triplesLoaded").asLong());
+      // d and e (only linked from d) are deleted, c is kept as it's a subject itself
+      assertEquals(2L, second.get("nodesDeleted").asLong());
+      assertEquals(Arrays.asList("http://example.org/a", "http://example.org/b",
+          "http://example.org/c", "http://example.org/f"), session.run("MATCH (r:Resource) "
+          + "RETURN r.uri AS uri ORDER BY uri").list(r -> r.get("uri").asString()));
+      assertEquals("b2", session.run("MATCH (b { uri: 'http://example.org/b' }) "
+          + "RETURN b.`http://example.org/name` AS name").single().get("name").asString());
+      assertEquals(Arrays.asList("http://example.org/a"), session.run("MATCH (s)"
+          + "-[:`http://example.org/knows`]->() RETURN collect(s.uri) AS uris").single()
+          .get("uris").asList());
+      // a sync only deals with the subjects of its source
+      session.run("CALL n10s.rdf.import.inline('<http://example.org/g> "
+          + "<http://example.org/name> \"g\" .','N-Triples')");
+      assertEquals(4L, session.run(sync).single().get("subjectsUnchanged").asLong());
+      assertEquals(5L, session.run("MATCH (r:Resource) RETURN count(r) AS count").single()
+          .get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testSyncBlankNodesWithTheirSubject() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      // statements about _:a come before the one linking it to s
+      String v1 = "_:a <http://example.org/city> \"X\" .\n"
+          + "<http://example.org/s> <http://example.org/addr> _:a .\n"
+          + "_:a <http://example.org/geo> _:g .\n"
+          + "_:g <http://example.org/lat> \"1\" .\n"
+          + "<http://example.org/t> <http://example.org/name> \"t\" .\n"
+          + "_:orphan <http://example.org/name> \"o\" .\n";
+      Path file = Files.createTempFile("n10s-sync", ".nt");
+      Files.write(file, v1.getBytes(StandardCharsets.UTF_8));
+      String sync = "CALL n10s.rdf.sync('" + file.toUri() + "','N-Triples', { source: 'daily' })";
+      String address = "MATCH (:Resource { uri: 'http://example.org/s' })"
+          + "-[:`http://example.org/addr`]->(a)-[:`http://example.org/geo`]->(g) "
+          + "RETURN a.`http://example.org/city` AS city, g.`http://example.org/lat` AS lat";
+
+      Record first = session.run(sync).single();
+      assertEquals("OK", first.get("terminationStatus").asString());
+      assertEquals(2L, first.get("subjectsAdded").asLong());
+      assertEquals(5L, first.get("triplesLoaded").asLong());
+      assertTrue(first.get("extraInfo").asString().startsWith("1 statements about blank nodes"));
+      Record loaded = session.run(address).single();
+      assertEquals("X", loaded.get("city").asString());
+      assertEquals("1", loaded.get("lat").asString());
+
+      assertEquals(2L, session.run(sync).single().get("subjectsUnchanged").asLong());
+
+      // a change in the blank nodes is a change of s
+      Files.write(file, v1.replace("\"X\"", "\"Y\"").getBytes(StandardCharsets.UTF_8));
+      Record second = session.run(sync).single();
+      assertEquals(1L, second.get("subjectsChanged").asLong());
+      assertEquals(1L, second.get("subjectsUnchanged").asLong());
+      loaded = session.run(address).single();
+      assertEquals("Y", loaded.get("city").asString());
+      assertEquals("1", loaded.get("lat").asString());
+      // the blank nodes loaded before are gone
+      assertEquals(2L, second.get("nodesDeleted").asLong());
+      assertEquals(4L, session.run("MATCH (r:Resource) RETURN count(r) AS count").single()
+          .get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testSyncSkipsSubjectsSharedWithOtherSources() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      String v1 = "<http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n"
+          + "<http://example.org/a> <http://example.org/name> \"a\" .\n"
+          + "<http://example.org/c> <http://example.org/name> \"c\" .\n";
+      String v2 = "<http://example.org/a> <http://example.org/name> \"a2\" .\n"
+          + "<http://example.org/c> <http://example.org/name> \"c2\" .\n";
+      Path file = Files.createTempFile("n10s-sync", ".nt");
+      Files.write(file, v1.getBytes(StandardCharsets.UTF_8));
+      String sync = "CALL n10s.rdf.sync('" + file.toUri() + "','N-Triples', { source: 'daily' })";
+      session.run(sync);
+      // c is also described by another source, a has an untagged relationship
+      session.run("CALL n10s.rdf.import.inline('<http://example.org/c> "
+          + "<http://example.org/code> \"C\" .','N-Triples', { source: 'other' })");
+      session.run("MATCH (a { uri: 'http://example.org/a' }) CREATE (a)-[:LINKS]->(:Other)");
+
+      Files.write(file, v2.getBytes(StandardCharsets.UTF_8));
+      Record second = session.run(sync).single();
+      assertEquals("OK", second.get("terminationStatus").asString());
+      assertEquals(1L, second.get("subjectsChanged").asLong());
+      assertEquals(1L, second.get("subjectsSkipped").asLong());
+      assertTrue(second.get("extraInfo").asString().contains("http://example.org/c"));
+      assertEquals(1L, second.get("relationshipsDeleted").asLong());
+      // b, only linked from a, is gone. The untagged relationship is kept
+      assertEquals(1L, second.get("nodesDeleted").asLong());
+      Record a = session.run("MATCH (a { uri: 'http://example.org/a' })-[r]->(o) "
+          + "RETURN a.`http://example.org/name` AS name, collect(type(r)) AS rels").single();
+      assertEquals("a2", a.get("name").asString());
+      assertEquals(Arrays.asList("LINKS"), a.get("rels").asList());
+      // c is left as it was
+      Record c = session.run("MATCH (c { uri: 'http://example.org/c' }) "
+          + "RETURN c.`http://example.org/name` AS name, c.`http://example.org/code` AS code")
+          .single();
+      assertEquals("c", c.get("name").asString());
+      assertEquals("C", c.get("code").asString());
+    }
+  }
+
   @Test
   public void testDeleteSubjectNode() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -3530,6 +4362,85 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testDateParsingWithoutExceptions() throws Exception {
+    assertEquals(LocalDateTime.of(2020, 1, 1, 10, 0),
+        DateUtils.parseDateTimeOrNull("2020-01-01T10:00:00"));
+    assertEquals(LocalDateTime.of(2020, 1, 1, 10, 0),
+        DateUtils.parseDateTimeOrNull("2020-01-01T10:00:00Z"));
+    assertEquals(LocalDateTime.of(2020, 1, 1, 10, 0),
+        DateUtils.parseDateTimeOrNull("2020-01-01T10:00:00-05:30"));
+    assertEquals(LocalDateTime.of(2020, 1, 1, 10, 0, 0, 123456789),
+        DateUtils.parseDateTimeOrNull("2020-01-01T10:00:00.1234567891+01:00"));
+    assertEquals(LocalDateTime.of(2020, 1, 1, 10, 0, 0, 500000000),
+        DateUtils.parseDateTimeOrNull("2020-01-01T10:00:00.5"));
+    assertEquals(LocalDateTime.of(12020, 2, 29, 23, 59, 59),
+        DateUtils.parseDateTimeOrNull("12020-02-29T23:59:59Z"));
+    assertEquals(LocalDate.of(2020, 2, 29), DateUtils.parseDateOrNull("2020-02-29"));
+    assertEquals(LocalDate.of(-44, 3, 15), DateUtils.parseDateOrNull("-0044-03-15Z"));
+    assertEquals(LocalDate.of(2020, 1, 1), DateUtils.parseDateOrNull("2020-01-01+14:00"));
+    // left to the slower parsers
+    assertEquals(LocalDateTime.of(2020, 1, 2, 0, 0),
+        DateUtils.parseDateTimeOrNull("2020-01-01T24:00:00"));
+    assertNull(DateUtils.parseDateTimeOrNull("2021-02-29T10:00:00Z"));
+    assertNull(DateUtils.parseDateTimeOrNull("2020-01-01T10:00:00+15:00"));
+    assertNull(DateUtils.parseDateOrNull("2020-13-01"));
+    assertNull(DateUtils.parseDateOrNull("not a date"));
+
+    assertNull(DateUtils.parseDateTimeOrNull("2020-04-31T10:00:00"));
+    assertNull(DateUtils.parseDateOrNull("1900-02-29"));
+    assertNull(DateUtils.parseDateOrNull("2020-02-00"));
+
+    // same results as going straight to LocalDateTime.parse and DatatypeConverter. Calendar only
+    // keeps milliseconds, and uses the Julian calendar before 1582, so values are compared at
+    // millisecond precision and in the Gregorian era
+    String[] dateTimes = {"2020-01-01T10:00:00", "2020-01-01T10:00:00Z",
+        "2020-06-30T23:59:59.999+14:00", "2020-06-30T00:00:00-12:00", "1999-12-31T23:59:59.1",
+        "2020-01-01T10:00:00.1234567891", "2020-01-01T10:00:00.1234567891-03:00",
+        "2020-01-01T24:00:00", "2020-12-31T24:00:00Z", "12020-02-29T23:59:59Z",
+        "2000-02-29T12:00:00", "2021-02-29T10:00:00Z", "2020-04-31T10:00:00", "2020-01-01T10:00",
+        "2020-01-01T10:00:60", "02020-01-01T10:00:00", "2020-01-01", "2020-01-01T10:00:00+15:00"};
+    for (String value : dateTimes) {
+      assertEquals(value, truncatedToMillis(converterDateTime(value)),
+          truncatedToMillis(DateUtils.parseDateTimeOrNull(value)));
+    }
+    String[] dates = {"2020-02-29", "2020-02-29Z", "2020-01-01+14:00", "2020-01-01-05:00",
+        "12020-01-31", "2000-02-29", "1900-02-29", "2020-13-01", "2020-02-30"};
+    for (String value : dates) {
+      assertEquals(value, converterDate(value), DateUtils.parseDateOrNull(value));
+    }
+  }
+
+  private static LocalDateTime converterDateTime(String value) {
+    try {
+      return LocalDateTime.parse(value);
+    } catch (DateTimeParseException e) {
+      try {
+        Calendar calendar = DatatypeConverter.parseDateTime(value);
+        return LocalDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+      } catch (IllegalArgumentException | DateTimeException ex) {
+        return null;
+      }
+    }
+  }
+
+  private static LocalDate converterDate(String value) {
+    try {
+      return LocalDate.parse(value);
+    } catch (DateTimeParseException e) {
+      try {
+        Calendar calendar = DatatypeConverter.parseDate(value);
+        return LocalDate.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+      } catch (IllegalArgumentException | DateTimeException ex) {
+        return null;
+      }
+    }
+  }
+
+  private static LocalDateTime truncatedToMillis(LocalDateTime dateTime) {
+    return dateTime == null ? null : dateTime.truncatedTo(ChronoUnit.MILLIS);
+  }
+
   @Test
   public void testImportDatesAndTimesMultivalued() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -3721,6 +4632,398 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testStreamNTriplesLineParser() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      String rdf = "<http://ex.org/a> <http://ex.org/name> \"Caf\\u00E9 \\\"q\\\"\"@fr .\n"
+          + "<http://ex.org/a> <http://ex.org/age> "
+          + "\"42\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n"
+          + "# a comment\n"
+          + "\n"
+          + "<http://ex.org/a> <http://ex.org/knows> <http://ex.org/b> . # trailing comment\n"
+          + "<http://ex.org/b> <http://ex.org/skip> \"x\" .\r\n"
+          + "<http://ex.org/b>\t<http://ex.org/label> \"\u00fcn\u00efc\u00f6d\u00e9\\ttab\" .\n"
+          + "_:b1 <http://ex.org/knows> <http://ex.org/a>.\n"
+          + "<http://ex.org/b> <http://ex.org/knows> _:b1.";
+
+      Map<String, Object> params = new HashMap<>();
+      params.put("rdf", rdf);
+      List<Map<String, Object>> expected = new ArrayList<>();
+      session.run("CALL n10s.rdf.stream.inline($rdf, 'N-Triples', "
+          + "{ predicateExclusionList: ['http://ex.org/skip'] })", params)
+          .forEachRemaining(r -> expected.add(withoutBNodeIds(r.asMap())));
+      assertEquals(6, expected.size());
+
+      for (long threads = 1; threads <= 2; threads++) {
+        List<Map<String, Object>> actual = new ArrayList<>();
+        session.run("CALL n10s.rdf.stream.inline($rdf, 'N-Triples', "
+            + "{ predicateExclusionList: ['http://ex.org/skip'], fastLineParser: true, "
+            + "parseThreads: " + threads + " })", params)
+            .forEachRemaining(r -> actual.add(withoutBNodeIds(r.asMap())));
+        assertEquals(expected, actual);
+      }
+
+      params.put("rdf", "<http://ex.org/a> <http://ex.org/b> \"c\" .\n"
+          + "<http://ex.org/a> \"b\" \"c\" .");
+      try {
+        Result result = session.run("CALL n10s.rdf.stream.inline($rdf, 'N-Triples', "
+            + "{ fastLineParser: true })", params);
+        result.hasNext();
+        assertFalse(true);
+      } catch (Exception e) {
+        assertTrue(e.getMessage().contains("line 2"));
+      }
+    }
+  }
+
+  @Test
+  public void testNTriplesLineParserVerifiesUriSyntax() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      for (String badIri : new String[]{"http://ex.org/c d", "http://ex.org/c<d",
+          "http://ex.org/c^d"}) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("rdf", "<http://ex.org/a> <http://ex.org/b> \"c\" .\n"
+            + "<http://ex.org/a> <http://ex.org/b> <" + badIri + "> .");
+        List<String> errors = new ArrayList<>();
+        List<Integer> rowCounts = new ArrayList<>();
+        for (String parser : new String[]{"", "fastLineParser: true",
+            "fastLineParser: true, parseThreads: 2"}) {
+          try {
+            session.run("CALL n10s.rdf.stream.inline($rdf, 'N-Triples', { " + parser + " })",
+                params).list();
+            errors.add("no error");
+          } catch (Exception e) {
+            errors.add(e.getMessage());
+          }
+          rowCounts.add(session.run("CALL n10s.rdf.stream.inline($rdf, 'N-Triples', { "
+              + parser + (parser.isEmpty() ? "" : ", ") + "verifyUriSyntax: false })", params)
+              .list().size());
+        }
+        for (String error : errors) {
+          assertTrue(error, error.endsWith("[line 2]"));
+        }
+        assertEquals(errors.get(1), errors.get(2));
+        if (!badIri.contains(" ")) {
+          // Rio reports unencoded spaces with its own message
+          assertEquals(errors.get(0), errors.get(1));
+        }
+        assertEquals(Arrays.asList(2, 2, 2), rowCounts);
+      }
+    }
+  }
+
+  private Map<String, Object> withoutBNodeIds(Map<String, Object> row) {
+    Map<String, Object> copy = new HashMap<>(row);
+    copy.replaceAll((k, v) -> ("subject".equals(k) || "object".equals(k)) && !(Boolean) row
+        .get("isLiteral") && !v.toString().startsWith("http") ? "bnode" : v);
+    return copy;
+  }
+
+  @Test
+  public void testNamespaceSyncRolledBackIsWrittenAgain() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      GraphDatabaseService db = neo4j.defaultDatabaseService();
+      NsPrefixMap namespaces;
+      try (Transaction tx = db.beginTx()) {
+        namespaces = new NsPrefixMap(tx, false);
+      }
+      String prefix = namespaces.getPrefixOrAdd("http://example.org/voc#", false);
+
+      // the partial commit carrying the new prefix fails
+      try (Transaction tx = db.beginTx()) {
+        namespaces.partialRefresh(tx);
+        tx.rollback();
+      }
+      assertFalse(session.run("MATCH (n:_NsPrefDef) RETURN n").hasNext());
+
+      // the next one writes it again
+      try (Transaction tx = db.beginTx()) {
+        namespaces.partialRefresh(tx);
+        tx.commit();
+      }
+      assertEquals("http://example.org/voc#", session.run("MATCH (n:_NsPrefDef) "
+          + "RETURN n[$prefix] AS ns", Values.parameters("prefix", prefix)).single().get("ns")
+          .asString());
+      assertEquals(2L, namespaces.getSyncCount());
+
+      // and, once it's seen committed, the ones after that have nothing to write
+      try (Transaction tx = db.beginTx()) {
+        namespaces.partialRefresh(tx);
+        namespaces.partialRefresh(tx);
+        tx.commit();
+      }
+      assertEquals(2L, namespaces.getSyncCount());
+      assertEquals(2L, namespaces.getSkippedSyncCount());
+    }
+  }
+
+  @Test
+  public void testImportNamespaceSyncOnlyWhenNew() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      String importParis = "CALL n10s.rdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader()
+              .getResource("jeu-de-donnees-des-jeux-de-donnees-open-data-paris.rdf")
+              .toURI()
+          + "','RDF/XML',{ commitSize: 5 })";
+      Record singleResult = session.run(importParis).next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      Map<String, Object> stats = singleResult.get("stats").asMap();
+      assertTrue((Long) stats.get("nsPrefixSyncs") > 0L);
+      assertTrue((Long) stats.get("nsPrefixSyncsSkipped") > 0L);
+      assertTrue(stats.containsKey("nsPrefixLockWaitMillis"));
+      Map<String, Object> prefixes = session.run("MATCH (n:_NsPrefDef) RETURN n").single()
+          .get("n").asMap();
+      assertEquals("http://purl.org/dc/terms/", prefixes.get("dct"));
+
+      //all the namespaces are in the db already: nothing to sync
+      singleResult = session.run(importParis).next();
+      assertEquals(38L, singleResult.get("triplesLoaded").asLong());
+      stats = singleResult.get("stats").asMap();
+      assertEquals(0L, stats.get("nsPrefixSyncs"));
+      assertTrue((Long) stats.get("nsPrefixSyncsSkipped") > 0L);
+      assertEquals(prefixes, session.run("MATCH (n:_NsPrefDef) RETURN n").single()
+          .get("n").asMap());
+    }
+  }
+
+  @Test
+  public void testImportLiteralDatatypeConversion() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'IGNORE' }");
+
+      String xsd = "http://www.w3.org/2001/XMLSchema#";
+      String[][] literals = {
+          {"integer", "\"42\"^^<" + xsd + "integer>"},
+          {"negative", "\"-7\"^^<" + xsd + "negativeInteger>"},
+          {"unsignedByte", "\"255\"^^<" + xsd + "unsignedByte>"},
+          {"decimal", "\"3.5\"^^<" + xsd + "decimal>"},
+          {"float", "\"1.25E2\"^^<" + xsd + "float>"},
+          {"boolean", "\"1\"^^<" + xsd + "boolean>"},
+          {"dateTimeZoned", "\"2020-01-01T10:00:00.25+02:00\"^^<" + xsd + "dateTime>"},
+          {"dateTime", "\"2020-02-29T23:59:59\"^^<" + xsd + "dateTime>"},
+          {"date", "\"2020-01-01Z\"^^<" + xsd + "date>"},
+          {"badDate", "\"2021-02-29\"^^<" + xsd + "date>"},
+          {"string", "\"plain\"^^<" + xsd + "string>"},
+          {"langString", "\"tagged\"@en"},
+          {"custom", "\"10\"^^<http://example.org/units#cm>"}};
+      StringBuilder nt = new StringBuilder();
+      for (String[] literal : literals) {
+        nt.append("<http://example.org/s> <http://example.org/").append(literal[0]).append("> ")
+            .append(literal[1]).append(" .\n");
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("rdf", nt.toString());
+      Record result = session.run("CALL n10s.rdf.import.inline($rdf, 'N-Triples')", params)
+          .single();
+      assertEquals((long) literals.length, result.get("triplesLoaded").asLong());
+
+      Map<String, Object> props = session.run("MATCH (r:Resource) RETURN r").single().get("r")
+          .asMap();
+      assertEquals(42L, props.get("integer"));
+      assertEquals(-7L, props.get("negative"));
+      assertEquals(255L, props.get("unsignedByte"));
+      assertEquals(3.5d, props.get("decimal"));
+      assertEquals(125d, props.get("float"));
+      assertEquals(true, props.get("boolean"));
+      // the time zone is checked but not applied
+      assertEquals(LocalDateTime.of(2020, 1, 1, 10, 0, 0, 250000000),
+          props.get("dateTimeZoned"));
+      assertEquals(LocalDateTime.of(2020, 2, 29, 23, 59, 59), props.get("dateTime"));
+      assertEquals(LocalDate.of(2020, 1, 1), props.get("date"));
+      // values that can't be converted are kept as strings
+      assertEquals("2021-02-29", props.get("badDate"));
+      assertEquals("plain", props.get("string"));
+      assertEquals("tagged", props.get("langString"));
+      assertEquals("10", props.get("custom"));
+    }
+  }
+
+  @Test
+  public void testImportManyNamespaces() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      // every predicate in its own namespace, spread over a few partial commits
+      int namespaceCount = 500;
+      StringBuilder nt = new StringBuilder();
+      for (int i = 0; i < namespaceCount; i++) {
+        nt.append("<http://example.org/s").append(i % 100).append("> <http://voc").append(i)
+            .append(".example.org/def#p> \"v\" .\n");
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("rdf", nt.toString());
+      Record result = session.run("CALL n10s.rdf.import.inline($rdf, 'N-Triples', "
+          + "{ commitSize: 100 })", params).single();
+      assertEquals((long) namespaceCount, result.get("triplesLoaded").asLong());
+
+      // one generated prefix per namespace, all of them persisted
+      Map<String, Object> prefixes = session.run("MATCH (n:_NsPrefDef) RETURN n").single()
+          .get("n").asMap();
+      assertEquals(namespaceCount, prefixes.size());
+      assertEquals(namespaceCount, new HashSet<>(prefixes.values()).size());
+      for (int i = 0; i < namespaceCount; i++) {
+        assertEquals("http://voc" + i + ".example.org/def#", prefixes.get("ns" + i));
+      }
+      assertEquals((long) namespaceCount, session.run("MATCH (r:Resource) "
+          + "UNWIND [k IN keys(r) WHERE k ENDS WITH '__p'] AS k RETURN count(DISTINCT k) AS count")
+          .single().get("count").asLong());
+      session.run("MATCH (n) WHERE n:Resource OR n:_NsPrefDef DETACH DELETE n");
+
+      // prefixes keep being generated in sequence after loading them from the db, also when
+      // some of them have been removed
+      session.run("CREATE (:_NsPrefDef { ns0: 'http://voc0.example.org/def#', "
+          + "ns2: 'http://voc2.example.org/def#' })");
+      session.run("CALL n10s.rdf.import.inline('<http://example.org/s0> "
+          + "<http://vocnew.example.org/def#p> \"v\" .','N-Triples')");
+      assertEquals("http://vocnew.example.org/def#",
+          session.run("MATCH (n:_NsPrefDef) RETURN n.ns3 AS ns").single().get("ns").asString());
+    }
+  }
+
+  @Test
+  public void testImportCheckpointAndResume() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      StringBuilder nt = new StringBuilder();
+      long sixLinesBytes = 0;
+      for (int i = 1; i <= 10; i++) {
+        nt.append("<http://example.org/s").append(i).append("> <http://example.org/p> \"v")
+            .append(i).append("\" .\n");
+        if (i == 6) {
+          sixLinesBytes = nt.length();
+        }
+      }
+      Path file = Files.createTempFile("n10s-checkpoint", ".nt");
+      Files.write(file, nt.toString().getBytes(StandardCharsets.UTF_8));
+
+      // checkpoint saved as if the import had died after committing the first six lines
+      session.run("CREATE (:_ImportCheckpoint { url: $url, byteOffset: $offset, line: 6, "
+              + "triplesParsed: 6, triplesLoaded: 6 })",
+          Values.parameters("url", file.toUri().toString(), "offset", sixLinesBytes));
+
+      Record result = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 3, resumeFrom: 'checkpoint' })").single();
+      assertEquals(10L, result.get("triplesParsed").asLong());
+      assertEquals(10L, result.get("triplesLoaded").asLong());
+      assertEquals(sixLinesBytes, result.get("stats").get("resumedFromOffset").asLong());
+      assertEquals(4L, session.run("MATCH (r:Resource) RETURN count(r) AS count").next()
+          .get("count").asLong());
+      assertFalse(session.run("MATCH (r:Resource { uri: 'http://example.org/s6' }) RETURN r")
+          .hasNext());
+      Record checkpoint = session.run("MATCH (c:_ImportCheckpoint) RETURN c.byteOffset AS offset,"
+          + " c.line AS line, c.triplesParsed AS parsed, c.triplesLoaded AS loaded").single();
+      assertEquals(nt.length(), checkpoint.get("offset").asLong());
+      assertEquals(10L, checkpoint.get("line").asLong());
+      assertEquals(10L, checkpoint.get("parsed").asLong());
+      assertEquals(10L, checkpoint.get("loaded").asLong());
+
+      // checkpoints with the writer threads only follow batches committed in order
+      session.run("MATCH (c:_ImportCheckpoint) DELETE c");
+      result = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { commitSize: 2, checkpoint: true, parallelism: 2 })").single();
+      assertEquals(10L, result.get("triplesLoaded").asLong());
+      checkpoint = session.run("MATCH (c:_ImportCheckpoint) RETURN c.byteOffset AS offset,"
+          + " c.triplesLoaded AS loaded").single();
+      assertEquals(nt.length(), checkpoint.get("offset").asLong());
+      assertEquals(10L, checkpoint.get("loaded").asLong());
+
+      // resuming a completed import parses nothing new
+      result = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { resumeFrom: 'checkpoint', fastLineParser: true, parseThreads: 2 })")
+          .single();
+      assertEquals(10L, result.get("triplesParsed").asLong());
+
+      result = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','Turtle', { resumeFrom: 'checkpoint' })").single();
+      assertEquals("KO", result.get("terminationStatus").asString());
+
+      result = session.run("CALL n10s.rdf.import.fetch('"
+          + RDFProceduresTest.class.getClassLoader().getResource("rdf.zip").toURI()
+          + "!rdf/*.ttls','Turtle', { checkpoint: true })").single();
+      assertEquals("KO", result.get("terminationStatus").asString());
+      assertTrue(result.get("extraInfo").asString().contains("glob"));
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testImportResumedKeepsBlankNodes() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+
+      String beforeCrash = "<http://example.org/s> <http://example.org/addr> _:a .\n"
+          + "_:a <http://example.org/street> \"Main St\" .\n";
+      String afterCrash = "_:a <http://example.org/city> \"X\" .\n";
+      Path file = Files.createTempFile("n10s-checkpoint", ".nt");
+      // as if the import had died after committing the first lines
+      Files.write(file, beforeCrash.getBytes(StandardCharsets.UTF_8));
+      session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples', { checkpoint: true })");
+      Files.write(file, (beforeCrash + afterCrash).getBytes(StandardCharsets.UTF_8));
+      for (String resumeFrom : new String[]{"'checkpoint'", String.valueOf(beforeCrash.length())}) {
+        Record result = session.run("CALL n10s.rdf.import.fetch('" + file.toUri()
+            + "','N-Triples', { resumeFrom: " + resumeFrom + " })").single();
+        assertEquals("OK", result.get("terminationStatus").asString());
+
+        Record address = session.run("MATCH (:Resource { uri: 'http://example.org/s' })"
+            + "-[:`http://example.org/addr`]->(a) RETURN a.`http://example.org/street` AS street, "
+            + "a.`http://example.org/city` AS city").single();
+        assertEquals("Main St", address.get("street").asString());
+        assertEquals("X", address.get("city").asString());
+        assertEquals(2L, session.run("MATCH (r:Resource) RETURN count(r) AS count").single()
+            .get("count").asLong());
+      }
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testImportQuadRDFNQuadsLineParser() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDBForQuads(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'KEEP', handleRDFTypes: 'LABELS', keepCustomDataTypes: true, handleMultival: 'ARRAY' }");
+
+      Result importResults = session.run("CALL n10s.experimental.quadrdf.import.fetch('" +
+          RDFProceduresTest.class.getClassLoader().getResource("RDFDatasets/RDFDataset.nq")
+              .toURI()
+          + "','N-Quads',{ commitSize: 500, fastLineParser: true, parseThreads: 2 })");
+
+      assertEquals(13L, importResults.next().get("triplesLoaded").asLong());
+      Result result = session
+          .run("MATCH (n:Resource {uri: 'http://www.example.org/exampleDocument#Monica'})"
+              + "RETURN n.graphUri AS graphUri ORDER BY graphUri");
+      List<Record> list = result.list();
+      assertEquals(3, list.size());
+      assertEquals("http://www.example.org/exampleDocument#G1",
+          list.get(0).get("graphUri").asString());
+      result = session.run("MATCH (n:Resource {uri: 'http://www.example.org/exampleDocument#G2'})"
+          + "RETURN n.`http://www.example.org/vocabulary#created` AS created");
+      assertEquals(LocalDateTime.parse("2019-06-07T10:15:30"),
+          result.next().get("created").asList().get(0));
+    }
+  }
+
   @Test
   public void testImportQuadRDFNQuads() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -3857,6 +5160,141 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testImportAndDeleteQuadsCompositeIndexLookup() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDBForQuads(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'KEEP' }");
+      session.run("CREATE INDEX FOR (r:Resource) ON (r.uri, r.graphUri)");
+      session.run("CALL db.awaitIndexes()");
+
+      // the hub of each graph is written again by many partial commits
+      StringBuilder nq = new StringBuilder();
+      for (int g = 0; g < 5; g++) {
+        for (int i = 0; i < 40; i++) {
+          nq.append("<http://example.org/hub> <http://example.org/links> <http://example.org/s")
+              .append(i).append("> <http://example.org/g").append(g).append("> .\n");
+        }
+      }
+      nq.append("<http://example.org/hub> <http://example.org/links> <http://example.org/s0> .\n");
+      Path file = Files.createTempFile("n10s-quads", ".nq");
+      Files.write(file, nq.toString().getBytes(StandardCharsets.UTF_8));
+
+      Record imported = session.run("CALL n10s.experimental.quadrdf.import.fetch('"
+          + file.toUri() + "','N-Quads', { commitSize: 10 })").single();
+      assertEquals(201L, imported.get("triplesLoaded").asLong());
+      assertTrue(imported.get("stats").get("nodeIdCacheHits").asLong() > 0);
+      assertEquals(6L, session.run("MATCH (n:Resource { uri: 'http://example.org/hub' }) "
+          + "RETURN count(n) AS count").single().get("count").asLong());
+      assertEquals(1L, session.run("MATCH (n:Resource { uri: 'http://example.org/hub' }) "
+          + "WHERE n.graphUri IS NULL RETURN count(n) AS count").single().get("count").asLong());
+      assertEquals(201L, session.run("MATCH ()-[r]->() RETURN count(r) AS count").single()
+          .get("count").asLong());
+
+      // no duplicates when loading again
+      session.run("CALL n10s.experimental.quadrdf.import.fetch('" + file.toUri()
+          + "','N-Quads', { commitSize: 10 })");
+      assertEquals(207L, session.run("MATCH (n:Resource) RETURN count(n) AS count").single()
+          .get("count").asLong());
+      assertEquals(201L, session.run("MATCH ()-[r]->() RETURN count(r) AS count").single()
+          .get("count").asLong());
+
+      Record deleted = session.run("CALL n10s.experimental.quadrdf.delete.fetch('"
+          + file.toUri() + "','N-Quads', { commitSize: 10 })").single();
+      assertEquals(201L, deleted.get("triplesDeleted").asLong());
+      assertEquals(0L, session.run("MATCH (n:Resource) RETURN count(n) AS count").single()
+          .get("count").asLong());
+    }
+  }
+
+  @Test
+  public void testImportQuadsPartitionedByGraph() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDBForQuads(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'KEEP', handleMultival: 'ARRAY' }");
+
+      int graphCount = 30;
+      StringBuilder nq = new StringBuilder();
+      for (int i = 0; i < 10; i++) {
+        for (int g = 0; g < graphCount; g++) {
+          nq.append("<http://example.org/hub> <http://example.org/links> <http://example.org/s")
+              .append(i).append("> <http://example.org/g").append(g).append("> .\n");
+          nq.append("<http://example.org/hub> <http://example.org/tag> \"t").append(i)
+              .append("\" <http://example.org/g").append(g).append("> .\n");
+        }
+      }
+      nq.append("<http://example.org/hub> <http://example.org/tag> \"default\" .\n");
+      Path file = Files.createTempFile("n10s-graphs", ".nq");
+      Files.write(file, nq.toString().getBytes(StandardCharsets.UTF_8));
+
+      Record imported = session.run("CALL n10s.experimental.quadrdf.import.fetch('"
+          + file.toUri() + "','N-Quads', { commitSize: 25, partitionByGraph: true, "
+          + "parallelism: 4 })").single();
+      assertEquals("OK", imported.get("terminationStatus").asString());
+      assertEquals(graphCount * 20L + 1, imported.get("triplesLoaded").asLong());
+      List<Object> graphs = imported.get("stats").get("graphs").asList();
+      assertEquals(graphCount + 1, graphs.size());
+      long loaded = 0;
+      for (Object graph : graphs) {
+        Map<String, Object> graphStats = (Map<String, Object>) graph;
+        assertEquals(0L, graphStats.get("triplesFailed"));
+        assertEquals(graphStats.get("graphUri") == null ? 1L : 20L,
+            graphStats.get("triplesLoaded"));
+        loaded += (long) graphStats.get("triplesLoaded");
+      }
+      assertEquals(graphCount * 20L + 1, loaded);
+
+      // same graph as a sequential import
+      assertEquals(graphCount * 11L + 1, session.run("MATCH (n:Resource) "
+          + "RETURN count(n) AS count").single().get("count").asLong());
+      assertEquals(graphCount * 10L, session.run("MATCH ()-[r]->() RETURN count(r) AS count")
+          .single().get("count").asLong());
+      assertEquals(10L, session.run("MATCH (n:Resource { uri: 'http://example.org/hub', "
+          + "graphUri: 'http://example.org/g7' }) "
+          + "RETURN size(n.`http://example.org/tag`) AS tags").single().get("tags").asLong());
+    }
+  }
+
+  @Test
+  public void testImportQuadsPartitionedByGraphShorten() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDBForQuads(neo4j.defaultDatabaseService(),
+          "{ handleVocabUris: 'SHORTEN', handleMultival: 'ARRAY' }");
+
+      // the namespace of 'links' is only used by relationships
+      StringBuilder nq = new StringBuilder();
+      for (int g = 0; g < 5; g++) {
+        nq.append("<http://example.org/hub> <http://example.org/rels/links> ")
+            .append("<http://example.org/s").append(g).append("> <http://example.org/g")
+            .append(g).append("> .\n");
+        nq.append("<http://example.org/hub> <http://example.org/props/tag> \"t").append(g)
+            .append("\" <http://example.org/g").append(g).append("> .\n");
+      }
+      Path file = Files.createTempFile("n10s-graphs", ".nq");
+      Files.write(file, nq.toString().getBytes(StandardCharsets.UTF_8));
+
+      Record imported = session.run("CALL n10s.experimental.quadrdf.import.fetch('"
+          + file.toUri() + "','N-Quads', { commitSize: 500, partitionByGraph: true, "
+          + "parallelism: 2 })").single();
+      assertEquals("OK", imported.get("terminationStatus").asString());
+      assertEquals(10L, imported.get("triplesLoaded").asLong());
+
+      Map<String, Object> defs = session.run("MATCH (n:_NsPrefDef) "
+          + "RETURN properties(n) as defs").single().get("defs").asMap();
+      assertTrue(defs.containsValue("http://example.org/rels/"));
+      assertTrue(defs.containsValue("http://example.org/props/"));
+      String linksType = session.run("MATCH ()-[r]->() RETURN DISTINCT type(r) AS type")
+          .single().get("type").asString();
+      String linksPrefix = linksType.substring(0, linksType.indexOf("__"));
+      assertEquals("http://example.org/rels/", defs.get(linksPrefix));
+    }
+  }
+
   @Test
   public void testRepetitiveDeletionQuadRDF() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -17,6 +17,34 @@ public class GraphConfigProceduresTest {
   public Neo4jRule neo4j = new Neo4jRule()
       .withProcedure(GraphConfigProcedures.class).withProcedure(RDFLoadProcedures.class);
 
+  @Test
+  public void testCachedGraphConfigFollowsChanges() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      String showClassLabel = "CALL n10s.graphconfig.show() yield param, value "
+          + " with param, value where param = 'classLabel' return param, value ";
+      assertFalse(session.run(showClassLabel).hasNext());
+
+      //changes made in a transaction are visible to it before they are committed
+      try (Transaction tx = session.beginTransaction()) {
+        tx.run("CALL n10s.graphconfig.init({ classLabel: 'CATEGORY' })");
+        assertEquals("CATEGORY", tx.run(showClassLabel).single().get("value").asString());
+        tx.rollback();
+      }
+      assertFalse(session.run(showClassLabel).hasNext());
+
+      session.run("CALL n10s.graphconfig.init()");
+      assertEquals("Class", session.run(showClassLabel).single().get("value").asString());
+
+      //committed changes, also when not made through the procedures
+      session.run("MATCH (gc:_GraphConfig) SET gc._classLabel = 'Concept'");
+      assertEquals("Concept", session.run(showClassLabel).single().get("value").asString());
+      session.run("MATCH (gc:_GraphConfig) DELETE gc");
+      assertFalse(session.run(showClassLabel).hasNext());
+    }
+  }
+
   @Test
   public void testInitGraphConfig() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -9,6 +9,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import n10s.graphconfig.GraphConfigProcedures;
+import n10s.rdf.RDFProcedures;
 import n10s.rdf.load.RDFLoadProcedures;
 import org.junit.Rule;
 import org.junit.Test;
@@ -18,6 +19,8 @@ import org.neo4j.driver.GraphDatabase;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Values;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.harness.junit.rule.Neo4jRule;
 
@@ -28,7 +31,8 @@ public class NsPrefixDefProceduresTest {
 
   @Rule
   public Neo4jRule neo4j = new Neo4jRule().withProcedure(NsPrefixDefProcedures.class)
-      .withProcedure(RDFLoadProcedures.class).withProcedure(GraphConfigProcedures.class);
+      .withProcedure(RDFLoadProcedures.class).withProcedure(GraphConfigProcedures.class)
+      .withFunction(RDFProcedures.class);
 
 
   @Test
@@ -54,6 +58,47 @@ public class NsPrefixDefProceduresTest {
     }
   }
 
+  @Test
+  public void testCachedPrefixesFollowChanges() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      String shortForm = "RETURN n10s.rdf.shortFormFromFullUri($uri) AS sf";
+      session.run("CALL n10s.nsprefixes.add('abc','http://myvoc#')");
+      assertEquals("abc__x", session.run(shortForm, Values.parameters("uri", "http://myvoc#x"))
+          .single().get("sf").asString());
+
+      //changes made in a transaction are visible to it before they are committed
+      try (Transaction tx = session.beginTransaction()) {
+        tx.run("CALL n10s.nsprefixes.add('xyz','http://othervoc#')");
+        assertEquals("xyz__y", tx.run(shortForm, Values.parameters("uri", "http://othervoc#y"))
+            .single().get("sf").asString());
+        tx.rollback();
+      }
+      try {
+        session.run(shortForm, Values.parameters("uri", "http://othervoc#y")).single();
+        assertTrue(false);
+      } catch (Exception e) {
+        assertTrue(e.getMessage().contains("No prefix defined for this namespace"));
+      }
+
+      //committed changes, also when not made through the procedures
+      session.run("CALL n10s.nsprefixes.remove('abc')");
+      session.run("MATCH (n:_NsPrefDef) SET n.def = 'http://myvoc#'");
+      assertEquals("def__x", session.run(shortForm, Values.parameters("uri", "http://myvoc#x"))
+          .single().get("sf").asString());
+      assertEquals("http://myvoc#x", session.run("RETURN n10s.rdf.fullUriFromShortForm('def__x') "
+          + "AS uri").single().get("uri").asString());
+      session.run("MATCH (n:_NsPrefDef) DELETE n");
+      try {
+        session.run(shortForm, Values.parameters("uri", "http://myvoc#x")).single();
+        assertTrue(false);
+      } catch (Exception e) {
+        assertTrue(e.getMessage().contains("No prefix defined for this namespace"));
+      }
+    }
+  }
+
   @Test
   public void testAddNamespacePrefixInUse() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
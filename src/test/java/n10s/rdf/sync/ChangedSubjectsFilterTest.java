@@ -0,0 +1,73 @@
+package n10s.rdf.sync;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import n10s.ConfiguredStatementHandler;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+public class ChangedSubjectsFilterTest {
+
+  private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+  @Test
+  public void testSubjectWithTheKeyOfAChangedOneIsNotLoaded() throws Exception {
+    String changed = "http://example.org/a";
+    String added = "http://example.org/b";
+    // c stands for a subject with the same key as a, that was changed
+    String colliding = "http://example.org/c";
+    long collidingKey = SubjectDigester.subjectKey(colliding);
+    LongHashSet subjectsToLoad = LongHashSet.newSetWith(SubjectDigester.subjectKey(changed),
+        SubjectDigester.subjectKey(added), collidingKey);
+    LongObjectHashMap<String> changedUris = new LongObjectHashMap<>();
+    changedUris.put(SubjectDigester.subjectKey(changed), changed);
+    changedUris.put(collidingKey, changed);
+
+    List<Statement> loaded = new ArrayList<>();
+    ChangedSubjectsFilter filter = new ChangedSubjectsFilter(new ConfiguredStatementHandler() {
+      @Override
+      public RDFParserConfig getParserConfig() {
+        return null;
+      }
+
+      @Override
+      public void handleStatement(Statement st) {
+        loaded.add(st);
+      }
+
+      @Override
+      public void startRDF() {
+      }
+
+      @Override
+      public void endRDF() {
+      }
+
+      @Override
+      public void handleNamespace(String prefix, String uri) {
+      }
+
+      @Override
+      public void handleComment(String comment) {
+      }
+    }, subjectsToLoad, changedUris);
+
+    for (String subject : Arrays.asList(changed, added, colliding, colliding)) {
+      filter.handleStatement(VF.createStatement(VF.createIRI(subject),
+          VF.createIRI("http://example.org/name"), VF.createLiteral(subject)));
+    }
+    assertEquals(2, loaded.size());
+    assertEquals(2L, filter.getStatementsSkipped());
+    assertEquals(Collections.singletonList(colliding), filter.getCollidingSubjects());
+    assertEquals(2, filter.getLoadedSubjects().size());
+  }
+}
@@ -138,6 +138,38 @@ public class SHACLValidationProceduresTest {
     }
   }
 
+  @Test
+  public void testClosedShapeIgnoresSourceTags() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      session.run("CREATE CONSTRAINT ON ( resource:Resource ) ASSERT (resource.uri) IS UNIQUE ");
+      session.run("CALL n10s.graphconfig.init()");
+      session.run("CALL n10s.nsprefixes.add('ex','http://example.org/')");
+      session.run("CALL n10s.rdf.import.inline('<http://example.org/a> "
+          + "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://example.org/Thing> .\n"
+          + "<http://example.org/a> <http://example.org/name> \"a\" .','N-Triples', "
+          + "{ source: 'daily' })");
+      // as left by a sync
+      session.run("MATCH (a:Resource { uri: 'http://example.org/a' }) SET a._digest = 1");
+
+      String shapes = "@prefix ex: <http://example.org/> .\n"
+          + "@prefix sh: <http://www.w3.org/ns/shacl#> .\n"
+          + "ex:ThingShape a sh:NodeShape ;\n"
+          + "  sh:targetClass ex:Thing ;\n"
+          + "  sh:property [ sh:path ex:name ; sh:maxCount 1 ] ;\n"
+          + "  sh:closed true ;\n"
+          + "  sh:ignoredProperties ( ex:code ) .";
+      session.run("CALL n10s.validation.shacl.import.inline('" + shapes + "','Turtle', {})");
+
+      assertFalse(session.run("CALL n10s.validation.shacl.validate()").hasNext());
+
+      // any other property is still reported
+      session.run("MATCH (a:Resource { uri: 'http://example.org/a' }) SET a.ex__other = 1");
+      assertEquals(1, session.run("CALL n10s.validation.shacl.validate()").list().size());
+    }
+  }
+
   @Test
   public void testLargeShapesFile() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),